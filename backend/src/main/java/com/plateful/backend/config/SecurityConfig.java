@@ -14,6 +14,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.web.cors.CorsConfiguration;
 
 import com.plateful.backend.auth.JwtAuthenticationFilter;
+import com.plateful.backend.controller.RestaurantController;
 
 @Configuration
 public class SecurityConfig {
@@ -34,6 +35,7 @@ public class SecurityConfig {
                 c.setAllowedOrigins(frontendOrigins);
                 c.setAllowedMethods(List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
                 c.setAllowedHeaders(List.of("Content-Type","Authorization"));
+                c.setExposedHeaders(List.of(RestaurantController.NEXT_CURSOR_HEADER));
                 c.setAllowCredentials(true);
                 return c;
             }))
@@ -41,6 +43,7 @@ public class SecurityConfig {
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/public/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/restaurants/**").permitAll()   // ← public GET for browsing and vote-status
+                .requestMatchers(HttpMethod.POST, "/api/restaurants/vote-status").permitAll()   // ← bulk vote-status, read-only
                 .requestMatchers("/api/restaurants/*/upvote").authenticated()   // ← require auth
                 .requestMatchers("/api/restaurants/*/downvote").authenticated()   // ← require auth
                 .requestMatchers(HttpMethod.DELETE, "/api/restaurants/*/vote").authenticated()   // ← require auth
@@ -1,12 +1,28 @@
 package com.plateful.backend.controller;
 
-import com.plateful.backend.model.Restaurant;
-import com.plateful.backend.repository.RestaurantRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.dto.RestaurantFilter;
+import com.plateful.backend.dto.RestaurantDetail;
+import com.plateful.backend.dto.RestaurantFacets;
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantSummary;
 import com.plateful.backend.service.RestaurantSearchService;
 import com.plateful.backend.service.RestaurantService;
+import com.plateful.backend.service.TrendingService;
+import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,57 +30,104 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller handling all restaurant-related endpoints. Provides APIs for restaurant listing,
  * searching, filtering, and cuisine discovery. Configured to accept CORS requests from development
  * frontend servers.
+ *
+ * <p>Listing endpoints are keyset-paginated in ID order: they accept {@code cursor} and {@code
+ * limit} parameters, return a JSON array of at most {@code limit} restaurants, and put the cursor
+ * for the following page in the {@value #NEXT_CURSOR_HEADER} response header (absent on the last
+ * page). Without {@code limit} a page holds at most 100 restaurants, and never more than 500.
+ *
+ * <p>Listings return {@link RestaurantSummary} views; only {@code /{id}} returns the full {@link
+ * RestaurantDetail}. Neither carries the raw voter ID sets — the caller's own vote is reported as
+ * {@code hasUpvoted}/{@code hasDownvoted} when a bearer token is supplied.
+ *
+ * <p>Every read endpoint accepts a sparse fieldset, e.g. {@code ?fields=id,name,location}. Only
+ * the listed properties are read from MongoDB and written to the response; unknown names are
+ * rejected with 400. See {@link RestaurantFields} for the allowed names.
  */
 @RestController
 @RequestMapping("/api/restaurants")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174", "http://localhost:5175"})
 public class RestaurantController {
 
+  /** Response header carrying the opaque cursor for the next page. */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  private static final String NDJSON = "application/x-ndjson";
+
+  /** Restaurants written between explicit flushes of the NDJSON stream. */
+  private static final int STREAM_FLUSH_EVERY = 100;
+
   private final RestaurantService restaurantService;
   private final RestaurantSearchService searchService;
-  private final RestaurantRepository restaurantRepository;
+  private final ObjectMapper objectMapper;
 
   public RestaurantController(
       RestaurantService restaurantService,
       RestaurantSearchService searchService,
-      RestaurantRepository restaurantRepository) {
+      ObjectMapper objectMapper) {
     this.restaurantService = restaurantService;
     this.searchService = searchService;
-    this.restaurantRepository = restaurantRepository;
+    this.objectMapper = objectMapper;
   }
 
-  /** Get all restaurants (no filters). */
+  /** Get all restaurants (no filters), one page at a time. */
   @GetMapping
-  public List<Restaurant> list() {
-    return restaurantService.getAllRestaurants();
+  public ResponseEntity<List<Object>> list(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
+    RestaurantFields selection = RestaurantFields.summary(fields);
+    return paged(
+        restaurantService.getRestaurants(cursor, limit, userIdOf(authentication), selection),
+        selection);
   }
 
   /** Get a single restaurant by id. */
   @GetMapping("/{id}")
-  public Restaurant get(@PathVariable String id) {
-    return restaurantService
-        .getRestaurantById(id)
-        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found: " + id));
+  public Object get(
+      @PathVariable String id,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
+    RestaurantFields selection = RestaurantFields.detail(fields);
+    RestaurantDetail detail =
+        restaurantService
+            .getRestaurantById(id, userIdOf(authentication), selection)
+            .orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Not found: " + id));
+    return select(detail, selection);
   }
 
   /**
-   * Basic search endpoint that performs a case-insensitive partial match across restaurant names,
-   * descriptions, and cuisines.
+   * Basic search endpoint that matches every word of the query, case-insensitively and as a prefix,
+   * against restaurant names, descriptions, cuisines and tags.
    *
    * @param query The search term to match against multiple fields
-   * @return List of restaurants matching the search criteria, or all restaurants if query is empty
+   * @param cursor Cursor from the previous page's {@value #NEXT_CURSOR_HEADER} header
+   * @param limit Maximum number of restaurants to return
+   * @param fields Properties to return for each restaurant; all when omitted
+   * @return Page of restaurants matching the search criteria, or of all restaurants if query is
+   *     empty
    */
   @GetMapping("/search")
-  public List<Restaurant> search(@RequestParam(required = false) String query) {
-    if (query == null || query.trim().isEmpty()) {
-      return restaurantService.getAllRestaurants();
-    }
-    return restaurantService.searchRestaurants(query.trim());
+  public ResponseEntity<List<Object>> search(
+      @RequestParam(required = false) String query,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
+    String q = query == null ? null : query.trim();
+    RestaurantFields selection = RestaurantFields.summary(fields);
+    return paged(
+        restaurantService.searchRestaurants(
+            q, cursor, limit, userIdOf(authentication), selection),
+        selection);
   }
 
   /**
@@ -72,69 +135,276 @@ public class RestaurantController {
    * search, cuisine type, price range, reservation availability, current operating status, and city
    * location. All parameters are optional.
    *
-   * @param query Free text search across name, description, and cuisine
+   * @param query Free text search across name, description, cuisine and tags
    * @param cuisine Specific cuisine type to filter by
    * @param priceMin Minimum price range (inclusive)
    * @param priceMax Maximum price range (inclusive)
    * @param reservation Filter for restaurants that accept reservations
    * @param openNow Filter for currently open restaurants
+   * @param openAt Filter for restaurants open at an ISO-8601 date-time (NZ local unless an offset
+   *     is given); overrides openNow
    * @param city List of cities to include in search
-   * @return Filtered list of restaurants matching all specified criteria
+   * @param near Point as {@code lat,lng}; each result then carries its {@code distanceKm}
+   * @param radiusKm Only restaurants within this many kilometres of {@code near}
+   * @param sort {@code distance} for nearest first (requires {@code near}); ID order otherwise
+   * @param cursor Cursor from the previous page's {@value #NEXT_CURSOR_HEADER} header
+   * @param limit Maximum number of restaurants to return
+   * @param fields Properties to return for each restaurant; all when omitted
+   * @return Page of restaurants matching all specified criteria
    */
   @GetMapping("/filter")
-  public List<Restaurant> filter(
+  public ResponseEntity<List<Object>> filter(
       @RequestParam(required = false) String query,
       @RequestParam(required = false) String cuisine,
       @RequestParam(required = false) Integer priceMin,
       @RequestParam(required = false) Integer priceMax,
       @RequestParam(required = false) Boolean reservation,
       @RequestParam(required = false) Boolean openNow,
-      @RequestParam(required = false) List<String> city) {
+      @RequestParam(required = false) String openAt,
+      @RequestParam(required = false) List<String> city,
+      @RequestParam(required = false) String near,
+      @RequestParam(required = false) Double radiusKm,
+      @RequestParam(required = false) String sort,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
 
-    // Optional: quick guard for inverted price bounds (fail fast or swap; here we fail fast)
-    if (priceMin != null && priceMax != null && priceMin > priceMax) {
-      throw new ResponseStatusException(
-          HttpStatus.BAD_REQUEST, "priceMin cannot be greater than priceMax");
+    RestaurantFilter filter =
+        toFilter(
+            query, cuisine, priceMin, priceMax, reservation, openNow, openAt, city, near, radiusKm);
+    RestaurantFields selection = RestaurantFields.summary(fields);
+    String userId = userIdOf(authentication);
+    if (sort == null || sort.isBlank() || sort.equals("id")) {
+      return paged(searchService.filter(filter, cursor, limit, userId, selection), selection);
+    }
+    if (sort.equals("distance")) {
+      return paged(
+          searchService.filterByDistance(filter, cursor, limit, userId, selection), selection);
     }
+    throw new IllegalArgumentException("sort must be 'id' or 'distance', got: " + sort);
+  }
 
-    List<Restaurant> base =
-        searchService.filter(cuisine, priceMin, priceMax, reservation, openNow, city);
+  /**
+   * Facet counts for the filter UI. Accepts the same filter parameters as {@code /filter} and
+   * returns, in one response, how many matching restaurants there are per cuisine, price level,
+   * city, tag and reservation requirement.
+   */
+  @GetMapping("/facets")
+  public RestaurantFacets facets(
+      @RequestParam(required = false) String query,
+      @RequestParam(required = false) String cuisine,
+      @RequestParam(required = false) Integer priceMin,
+      @RequestParam(required = false) Integer priceMax,
+      @RequestParam(required = false) Boolean reservation,
+      @RequestParam(required = false) Boolean openNow,
+      @RequestParam(required = false) String openAt,
+      @RequestParam(required = false) List<String> city,
+      @RequestParam(required = false) String near,
+      @RequestParam(required = false) Double radiusKm) {
+    RestaurantFilter filter =
+        toFilter(
+            query, cuisine, priceMin, priceMax, reservation, openNow, openAt, city, near, radiusKm);
+    return searchService.facets(filter);
+  }
+
+  /**
+   * Streams every restaurant matching the given criteria as newline-delimited JSON, one restaurant
+   * per line in ID order. Accepts the same filter parameters as {@code /filter} but is not paged:
+   * it reads from a MongoDB cursor and writes each document as it arrives, so server memory stays
+   * constant and a slow client simply slows the cursor down. Intended for sync jobs and bulk
+   * consumers.
+   */
+  @GetMapping(value = "/stream", produces = NDJSON)
+  public ResponseEntity<StreamingResponseBody> stream(
+      @RequestParam(required = false) String query,
+      @RequestParam(required = false) String cuisine,
+      @RequestParam(required = false) Integer priceMin,
+      @RequestParam(required = false) Integer priceMax,
+      @RequestParam(required = false) Boolean reservation,
+      @RequestParam(required = false) Boolean openNow,
+      @RequestParam(required = false) String openAt,
+      @RequestParam(required = false) List<String> city,
+      @RequestParam(required = false) String near,
+      @RequestParam(required = false) Double radiusKm,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
+
+    RestaurantFilter filter =
+        toFilter(
+            query, cuisine, priceMin, priceMax, reservation, openNow, openAt, city, near, radiusKm);
+    RestaurantFields selection = RestaurantFields.summary(fields);
+    String userId = userIdOf(authentication);
 
-    return searchService.filterByTextQuery(base, query);
+    StreamingResponseBody body =
+        out -> {
+          try (Stream<RestaurantSummary> restaurants =
+                  searchService.stream(filter, userId, selection);
+              JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(new SerializedString("\n"));
+            int written = 0;
+            for (RestaurantSummary r : (Iterable<RestaurantSummary>) restaurants::iterator) {
+              json.writeObject(select(r, selection));
+              if (++written % STREAM_FLUSH_EVERY == 0) {
+                json.flush();
+              }
+            }
+            if (written > 0) {
+              json.writeRaw('\n');
+            }
+          }
+        };
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
   }
 
   /**
    * Retrieves a unique, sorted list of all available cuisine types in the system. Filters out null
-   * or empty cuisine values for data consistency.
+   * or empty cuisine values for data consistency. Tagged with the cuisine catalog's version as
+   * ETag so clients can revalidate with {@code If-None-Match} and get a 304 while it is unchanged.
    *
    * @return Alphabetically sorted list of unique cuisine types
    */
   @GetMapping("/cuisines")
-  public List<String> getCuisines() {
-    return restaurantService.getAllCuisines();
+  public ResponseEntity<List<String>> getCuisines() {
+    OptionalLong version = restaurantService.getCuisineCatalogVersion();
+    return revalidated(version, restaurantService.getAllCuisines());
   }
 
   /**
-   * Fetch restaurants by tags.
-   * - any: returns restaurants that match ANY of the provided tags
-   * - all: returns restaurants that match ALL of the provided tags
-   * If both are empty/missing, returns all restaurants.
+   * Number of restaurants serving each cuisine, keyed and ordered by cuisine. ETag-tagged like
+   * {@code /cuisines}.
+   */
+  @GetMapping("/cuisines/counts")
+  public ResponseEntity<Map<String, Integer>> getCuisineCounts() {
+    OptionalLong version = restaurantService.getCuisineCatalogVersion();
+    return revalidated(version, restaurantService.getCuisineCounts());
+  }
+
+  /**
+   * Fetch restaurants by tags (case-insensitive).
+   * - any: restaurants must match ANY of the provided tags
+   * - all: restaurants must match ALL of the provided tags
+   * When both are given, both apply. If both are empty/missing, returns all restaurants.
    */
   @GetMapping("/by-tags")
-  public List<Restaurant> byTags(
+  public ResponseEntity<List<Object>> byTags(
       @RequestParam(required = false, name = "any") List<String> any,
-      @RequestParam(required = false, name = "all") List<String> all) {
+      @RequestParam(required = false, name = "all") List<String> all,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
+    RestaurantFields selection = RestaurantFields.summary(fields);
+    return paged(
+        searchService.findByTags(any, all, cursor, limit, userIdOf(authentication), selection),
+        selection);
+  }
+
+  /**
+   * Restaurants trending over a recent window: ranked by net votes cast in the window, with recent
+   * votes weighted more than older ones. Not paged.
+   *
+   * @param window How far back to look, as whole hours or days up to {@code 7d}; default {@code
+   *     24h}
+   * @param limit Maximum number of restaurants to return
+   * @param fields Properties to return for each restaurant; all when omitted
+   * @return The trending restaurants, most trending first
+   */
+  @GetMapping("/trending")
+  public List<Object> trending(
+      @RequestParam(required = false) String window,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) List<String> fields,
+      Authentication authentication) {
+    RestaurantFields selection = RestaurantFields.summary(fields);
+    return restaurantService
+        .getTrending(
+            TrendingService.parseWindow(window), limit, userIdOf(authentication), selection)
+        .stream()
+        .map(r -> select(r, selection))
+        .toList();
+  }
+
+  // -------------------- Helpers --------------------
+
+  /**
+   * Validates the raw filter parameters, resolves openNow/openAt into a single instant and parses
+   * the search point.
+   */
+  static RestaurantFilter toFilter(
+      String query,
+      String cuisine,
+      Integer priceMin,
+      Integer priceMax,
+      Boolean reservation,
+      Boolean openNow,
+      String openAt,
+      List<String> city,
+      String near,
+      Double radiusKm) {
+    // Optional: quick guard for inverted price bounds (fail fast or swap; here we fail fast)
+    if (priceMin != null && priceMax != null && priceMin > priceMax) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "priceMin cannot be greater than priceMax");
+    }
 
-    // Normalize empty lists to null for simpler checks
-    boolean hasAll = all != null && !all.isEmpty();
-    boolean hasAny = any != null && !any.isEmpty();
+    ZonedDateTime openAtTime = null;
+    if (openAt != null && !openAt.isBlank()) {
+      openAtTime = RestaurantSearchService.parseOpenAt(openAt);
+    } else if (Boolean.TRUE.equals(openNow)) {
+      openAtTime = RestaurantSearchService.now();
+    }
 
-    if (hasAll) {
-      return restaurantRepository.findByTagsAll(all);
+    if (radiusKm != null && !(radiusKm > 0)) {
+      throw new IllegalArgumentException("radiusKm must be positive");
     }
-    if (hasAny) {
-      return restaurantRepository.findByTagsIn(any);
+
+    return new RestaurantFilter(
+        query,
+        cuisine,
+        priceMin,
+        priceMax,
+        reservation,
+        openAtTime,
+        city,
+        RestaurantSearchService.parseNear(near),
+        radiusKm);
+  }
+
+  /**
+   * Wraps a small, frequently polled body with the version of the data it was read from as ETag.
+   * Spring answers a matching {@code If-None-Match} with 304 and no body. Without a version (e.g.
+   * the catalog is still loading) no ETag is sent.
+   */
+  static <T> ResponseEntity<T> revalidated(OptionalLong version, T body) {
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+    version.ifPresent(v -> ok.eTag(Long.toHexString(v)));
+    return ok.body(body);
+  }
+
+  /** The caller's user ID, or null for anonymous requests. */
+  static String userIdOf(Authentication authentication) {
+    return authentication != null ? authentication.getName() : null;
+  }
+
+  /**
+   * Writes a page as a JSON array of the selected properties, with the next cursor (if any) in a
+   * response header.
+   */
+  private ResponseEntity<List<Object>> paged(
+      CursorPage<? extends Record> page, RestaurantFields selection) {
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+    if (page.nextCursor() != null) {
+      ok.header(NEXT_CURSOR_HEADER, page.nextCursor());
     }
-    return restaurantService.getAllRestaurants();
+    return ok.body(page.items().stream().map(view -> select(view, selection)).toList());
+  }
+
+  /** The view itself, or only its selected properties when a sparse fieldset was requested. */
+  private Object select(Record view, RestaurantFields selection) {
+    if (selection.isAll()) return view;
+    ObjectNode node = objectMapper.valueToTree(view);
+    node.retain(selection.names());
+    return node;
   }
 }
@@ -1,12 +1,19 @@
 package com.plateful.backend.controller;
 
+import com.plateful.backend.dto.RestaurantFields;
 import com.plateful.backend.model.AppUser;
+import com.plateful.backend.service.HistoryIngestQueue;
+import com.plateful.backend.service.RestaurantService;
 import com.plateful.backend.service.UserService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * REST controller for user-specific operations including favorites and browse history.
@@ -18,24 +25,41 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final HistoryIngestQueue historyQueue;
+    private final RestaurantService restaurantService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, HistoryIngestQueue historyQueue,
+                          RestaurantService restaurantService) {
         this.userService = userService;
+        this.historyQueue = historyQueue;
+        this.restaurantService = restaurantService;
     }
 
     /**
-     * Get user's favorite restaurant IDs
+     * Get user's favorite restaurant IDs, as a JSON array in the order they were added
      * @param userId The user ID (for now passed as query param since we don't have JWT auth filter yet)
+     * @param expand "summary" to return restaurant summaries, with vote counts and the user's own
+     *               votes, instead of IDs. They are read with one query, in the same order;
+     *               restaurants deleted since are left out.
      */
     @GetMapping("/favorites")
-    public ResponseEntity<List<String>> getFavorites(@RequestParam String userId) {
-        List<String> favorites = userService.getFavorites(userId);
-        return ResponseEntity.ok(favorites);
+    public ResponseEntity<?> getFavorites(@RequestParam String userId,
+                                          @RequestParam(required = false) String expand) {
+        Set<String> favorites = userService.getFavorites(userId);
+        if (expand == null) {
+            return ResponseEntity.ok(favorites);
+        }
+        if (!"summary".equals(expand)) {
+            throw new IllegalArgumentException("expand must be 'summary', got: " + expand);
+        }
+        return ResponseEntity.ok(restaurantService.getSummaries(
+                List.copyOf(favorites), userId, RestaurantFields.summary(null)));
     }
 
     /**
      * Add a restaurant to favorites
      * Request body: { "userId": "123", "restaurantId": "12345" }
+     * Response "changed" is false if it already was a favorite.
      */
     @PostMapping("/favorites")
     public ResponseEntity<Map<String, Object>> addFavorite(@RequestBody Map<String, String> request) {
@@ -49,13 +73,15 @@ public class UserController {
             return ResponseEntity.badRequest().body(Map.of("error", "restaurantId is required"));
         }
 
-        userService.addFavorite(userId, restaurantId);
-        return ResponseEntity.ok(Map.of("message", "Added to favorites", "restaurantId", restaurantId));
+        boolean changed = userService.addFavorite(userId, restaurantId);
+        return ResponseEntity.ok(Map.of(
+                "message", "Added to favorites", "restaurantId", restaurantId, "changed", changed));
     }
 
     /**
      * Remove a restaurant from favorites
      * Request body: { "userId": "123", "restaurantId": "12345" }
+     * Response "changed" is false if it was not a favorite.
      */
     @DeleteMapping("/favorites")
     public ResponseEntity<Map<String, Object>> removeFavorite(@RequestBody Map<String, String> request) {
@@ -69,22 +95,36 @@ public class UserController {
             return ResponseEntity.badRequest().body(Map.of("error", "restaurantId is required"));
         }
 
-        userService.removeFavorite(userId, restaurantId);
-        return ResponseEntity.ok(Map.of("message", "Removed from favorites", "restaurantId", restaurantId));
+        boolean changed = userService.removeFavorite(userId, restaurantId);
+        return ResponseEntity.ok(Map.of(
+                "message", "Removed from favorites", "restaurantId", restaurantId, "changed", changed));
     }
 
     /**
-     * Get user's browse history
+     * Get user's browse history, most recent first
      * @param userId The user ID (for now passed as query param)
+     * @param limit Most entries to return; all (up to 100) when omitted
+     * @param before ISO-8601 local date-time; only entries viewed before it. Pass the viewedAt of
+     *               the last entry shown to page further back.
+     * @param beforeId restaurantId of the last entry shown, with {@code before}; entries viewed in
+     *                 the same millisecond that come after it are then returned too
+     * @param since ISO-8601 local date-time; only entries viewed at or after it
      */
     @GetMapping("/history")
-    public ResponseEntity<List<AppUser.HistoryEntry>> getHistory(@RequestParam String userId) {
-        List<AppUser.HistoryEntry> history = userService.getHistory(userId);
+    public ResponseEntity<List<AppUser.HistoryEntry>> getHistory(
+            @RequestParam String userId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String beforeId,
+            @RequestParam(required = false) String since) {
+        List<AppUser.HistoryEntry> history = userService.getHistory(userId, limit,
+                parseTime("before", before), beforeId, parseTime("since", since));
         return ResponseEntity.ok(history);
     }
 
     /**
-     * Add an entry to browse history
+     * Add an entry to browse history. The view is queued and written in the background, so the
+     * response is 202 Accepted; a view dropped because the queue is full is only counted.
      * Request body: { "userId": "123", "restaurantId": "12345", "restaurantName": "Restaurant Name", "viewType": "Details viewed" }
      */
     @PostMapping("/history")
@@ -104,8 +144,8 @@ public class UserController {
             return ResponseEntity.badRequest().body(Map.of("error", "restaurantName is required"));
         }
 
-        userService.addToHistory(userId, restaurantId, restaurantName, viewType);
-        return ResponseEntity.ok(Map.of("message", "Added to history"));
+        historyQueue.enqueue(userId, restaurantId, restaurantName, viewType);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("message", "Added to history"));
     }
 
     /**
@@ -123,4 +163,16 @@ public class UserController {
         userService.clearHistory(userId);
         return ResponseEntity.ok(Map.of("message", "History cleared"));
     }
+
+    private static LocalDateTime parseTime(String name, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name
+                    + " must be an ISO-8601 date-time like 2025-01-31T18:30:00, got: " + value);
+        }
+    }
 }
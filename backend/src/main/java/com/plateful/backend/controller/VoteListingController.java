@@ -1,15 +1,17 @@
 package com.plateful.backend.controller;
 
-import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.dto.VoteListing;
 import com.plateful.backend.service.VotingQueryService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+/**
+ * The caller's voted restaurants, most recent vote first. Responses are count-free slices: follow
+ * {@code nextCursor} for the next one ({@code page} still works for the first few), and pass
+ * {@code includeTotal=true} to also get the total, served from a per-user cache.
+ */
 @RestController
 @RequestMapping("/api/me/votes")
 @CrossOrigin(origins = "*")
@@ -18,25 +20,35 @@ public class VoteListingController {
 
   private final VotingQueryService service;
 
-  // GET /api/me/votes/up?page=0&size=20
+  // GET /api/me/votes/up?size=20[&cursor=...][&includeTotal=true]
   @GetMapping("/up")
-  public ResponseEntity<Page<Restaurant>> myUpvotes(
+  public ResponseEntity<VoteListing> myUpvotes(
+      @RequestParam(required = false) String cursor,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size,
+      @RequestParam(defaultValue = "false") boolean includeTotal,
       Authentication auth) {
     if (auth == null) return ResponseEntity.status(401).build();
-    Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(100, size));
-    return ResponseEntity.ok(service.getUpvotedByUser(auth.getName(), pageable));
+    return ResponseEntity.ok(
+        service.getUpvotedByUser(
+            auth.getName(), cursor, Math.max(0, page), clamp(size), includeTotal));
   }
 
-  // GET /api/me/votes/down?page=0&size=20
+  // GET /api/me/votes/down?size=20[&cursor=...][&includeTotal=true]
   @GetMapping("/down")
-  public ResponseEntity<Page<Restaurant>> myDownvotes(
+  public ResponseEntity<VoteListing> myDownvotes(
+      @RequestParam(required = false) String cursor,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size,
+      @RequestParam(defaultValue = "false") boolean includeTotal,
       Authentication auth) {
     if (auth == null) return ResponseEntity.status(401).build();
-    Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(100, size));
-    return ResponseEntity.ok(service.getDownvotedByUser(auth.getName(), pageable));
+    return ResponseEntity.ok(
+        service.getDownvotedByUser(
+            auth.getName(), cursor, Math.max(0, page), clamp(size), includeTotal));
+  }
+
+  private static int clamp(int size) {
+    return Math.max(1, Math.min(100, size));
   }
 }
@@ -1,13 +1,19 @@
 package com.plateful.backend.controller;
 
 import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.service.VoteBroadcaster;
+import com.plateful.backend.service.VoteChangedEvent;
+import com.plateful.backend.service.VoteRateLimiter;
 import com.plateful.backend.service.VotingService;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /** REST controller for handling restaurant voting operations. */
 @RestController
@@ -17,18 +23,23 @@ public class VotingController {
 
   @Autowired private VotingService votingService;
 
+  @Autowired private VoteRateLimiter voteRateLimiter;
+
+  @Autowired private VoteBroadcaster voteBroadcaster;
+
   /**
    * Upvote a restaurant. User is identified via JWT token.
    *
    * @param restaurantId the restaurant ID
    * @param authentication the authenticated user
-   * @return the vote counts and status
+   * @return the vote counts and status; 429 with Retry-After if the user votes too often
    */
   @PostMapping("/{restaurantId}/upvote")
   public ResponseEntity<Map<String, Object>> upvote(
       @PathVariable String restaurantId, Authentication authentication) {
     String userId = authentication.getName(); // Extract userId from JWT token
-    
+    voteRateLimiter.check(VoteRateLimiter.UPVOTE, userId);
+
     Restaurant restaurant = votingService.upvote(restaurantId, userId);
 
     Map<String, Object> response = new HashMap<>();
@@ -45,13 +56,14 @@ public class VotingController {
    *
    * @param restaurantId the restaurant ID
    * @param authentication the authenticated user
-   * @return the vote counts and status
+   * @return the vote counts and status; 429 with Retry-After if the user votes too often
    */
   @PostMapping("/{restaurantId}/downvote")
   public ResponseEntity<Map<String, Object>> downvote(
       @PathVariable String restaurantId, Authentication authentication) {
     String userId = authentication.getName(); // Extract userId from JWT token
-    
+    voteRateLimiter.check(VoteRateLimiter.DOWNVOTE, userId);
+
     Restaurant restaurant = votingService.downvote(restaurantId, userId);
 
     Map<String, Object> response = new HashMap<>();
@@ -68,13 +80,14 @@ public class VotingController {
    *
    * @param restaurantId the restaurant ID
    * @param authentication the authenticated user
-   * @return the vote counts and status
+   * @return the vote counts and status; 429 with Retry-After if the user votes too often
    */
   @DeleteMapping("/{restaurantId}/vote")
   public ResponseEntity<Map<String, Object>> removeVote(
       @PathVariable String restaurantId, Authentication authentication) {
     String userId = authentication.getName(); // Extract userId from JWT token
-    
+    voteRateLimiter.check(VoteRateLimiter.REMOVE_VOTE, userId);
+
     Restaurant restaurant = votingService.removeVote(restaurantId, userId);
 
     Map<String, Object> response = new HashMap<>();
@@ -104,4 +117,44 @@ public class VotingController {
 
     return ResponseEntity.ok(status);
   }
+
+  /**
+   * Get the vote status of up to {@value VotingService#MAX_VOTE_STATUS_IDS} restaurants in one
+   * request, so list screens do not need a call per card. Works like the single-restaurant
+   * endpoint: anonymous callers get counts with hasUpvoted/hasDownvoted false.
+   *
+   * @param restaurantIds JSON array of restaurant IDs
+   * @param authentication the authenticated user (optional)
+   * @return restaurant ID -> vote status, in request order; unknown IDs are left out
+   */
+  @PostMapping("/vote-status")
+  public ResponseEntity<Map<String, Map<String, Object>>> getVoteStatuses(
+      @RequestBody List<String> restaurantIds, Authentication authentication) {
+    String userId = (authentication != null) ? authentication.getName() : null;
+    return ResponseEntity.ok(votingService.getVoteStatuses(restaurantIds, userId));
+  }
+
+  /**
+   * Stream live vote counts for up to {@value VotingService#MAX_VOTE_STATUS_IDS} restaurants as
+   * Server-Sent Events, replacing polling of vote-status. The current counts are sent first; after
+   * that, each restaurant gets at most one "vote" event per coalescing window, carrying its latest
+   * counts.
+   *
+   * @param ids the restaurant IDs to watch
+   * @return the event stream
+   */
+  @GetMapping(path = "/vote-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamVotes(@RequestParam List<String> ids) {
+    Map<String, Map<String, Object>> current = votingService.getVoteStatuses(ids, null);
+    List<VoteChangedEvent> snapshot =
+        current.entrySet().stream()
+            .map(
+                e ->
+                    VoteChangedEvent.of(
+                        e.getKey(),
+                        (Integer) e.getValue().get("upvoteCount"),
+                        (Integer) e.getValue().get("downvoteCount")))
+            .toList();
+    return voteBroadcaster.subscribe(current.keySet(), snapshot);
+  }
 }
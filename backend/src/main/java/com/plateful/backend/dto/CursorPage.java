@@ -0,0 +1,40 @@
+package com.plateful.backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is an opaque token identifying the
+ * last item returned; pass it back to fetch the following page. It is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+  /** Applies {@code mapper} to every item, keeping the cursor. */
+  public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+    return new CursorPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+  }
+
+  /** Encodes a sort key into an opaque, URL-safe cursor token. */
+  public static String encodeCursor(String key) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor token back into its sort key.
+   *
+   * @return the key, or null if no cursor was given
+   * @throws IllegalArgumentException if the token was not produced by {@link #encodeCursor}
+   */
+  public static String decodeCursor(String cursor) {
+    if (cursor == null || cursor.isBlank()) return null;
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+  }
+}
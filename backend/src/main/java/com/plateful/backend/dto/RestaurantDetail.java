@@ -0,0 +1,59 @@
+package com.plateful.backend.dto;
+
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+/**
+ * Restaurant as shown on its detail page: the summary fields plus contact details and opening
+ * hours. Like {@link RestaurantSummary}, exposes vote counts and the caller's own vote only.
+ */
+public record RestaurantDetail(
+    String id,
+    String name,
+    String description,
+    String cuisine,
+    Integer priceLevel,
+    Restaurant.Address address,
+    String phone,
+    String website,
+    GeoJsonPoint location,
+    List<String> images,
+    List<String> tags,
+    Map<String, String> hours,
+    Boolean reservationRequired,
+    int upvoteCount,
+    int downvoteCount,
+    int voteCount,
+    boolean hasUpvoted,
+    boolean hasDownvoted) {
+
+  /**
+   * Builds a detail view with the caller's vote on the restaurant.
+   *
+   * @param vote the caller's vote, or null when they have not voted or are anonymous
+   */
+  public static RestaurantDetail from(Restaurant r, Vote.Direction vote) {
+    return new RestaurantDetail(
+        r.getId(),
+        r.getName(),
+        r.getDescription(),
+        r.getCuisine(),
+        r.getPriceLevel(),
+        r.getAddress(),
+        r.getPhone(),
+        r.getWebsite(),
+        r.getLocation(),
+        r.getImages(),
+        r.getTags(),
+        r.getHours(),
+        r.getReservationRequired(),
+        r.getUpvoteCount(),
+        r.getDownvoteCount(),
+        r.getVoteCount(),
+        vote == Vote.Direction.UP,
+        vote == Vote.Direction.DOWN);
+  }
+}
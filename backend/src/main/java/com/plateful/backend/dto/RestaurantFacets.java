@@ -0,0 +1,23 @@
+package com.plateful.backend.dto;
+
+import java.util.Map;
+
+/**
+ * Counts of restaurants matching a filter, broken down by the values the filter UI offers as
+ * chips. Each map is ordered by descending count, then by value; restaurants without a value for a
+ * facet are left out of it.
+ *
+ * @param total number of restaurants matching the filter
+ * @param cuisine restaurants per cuisine
+ * @param priceLevel restaurants per price level
+ * @param city restaurants per city
+ * @param tags restaurants per tag, keyed in lowercase since tags are matched case-insensitively
+ * @param reservation restaurants per reservation requirement ({@code "true"}/{@code "false"})
+ */
+public record RestaurantFacets(
+    long total,
+    Map<String, Integer> cuisine,
+    Map<String, Integer> priceLevel,
+    Map<String, Integer> city,
+    Map<String, Integer> tags,
+    Map<String, Integer> reservation) {}
@@ -0,0 +1,95 @@
+package com.plateful.backend.dto;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A sparse fieldset requested with {@code ?fields=}: the JSON properties of {@link
+ * RestaurantSummary} or {@link RestaurantDetail} the caller wants back. Only whitelisted names are
+ * accepted; the selection drives both the Mongo projection and the serialized response.
+ *
+ * @param names requested property names, or null for every property
+ */
+public record RestaurantFields(Set<String> names) {
+
+  /** Properties selectable on list endpoints, i.e. the components of {@link RestaurantSummary}. */
+  public static final Set<String> SUMMARY =
+      Set.of(
+          "id",
+          "name",
+          "description",
+          "cuisine",
+          "priceLevel",
+          "address",
+          "location",
+          "images",
+          "tags",
+          "reservationRequired",
+          "upvoteCount",
+          "downvoteCount",
+          "voteCount",
+          "hasUpvoted",
+          "hasDownvoted",
+          "distanceKm");
+
+  /** Properties selectable on the detail endpoint: the summary ones plus contact and hours. */
+  public static final Set<String> DETAIL =
+      union(without(SUMMARY, "distanceKm"), Set.of("phone", "website", "hours"));
+
+  /** No selection: every property of the view is returned. */
+  public static final RestaurantFields ALL = new RestaurantFields(null);
+
+  /** Parses a list endpoint's {@code fields} parameter. */
+  public static RestaurantFields summary(List<String> requested) {
+    return parse(requested, SUMMARY);
+  }
+
+  /** Parses the detail endpoint's {@code fields} parameter. */
+  public static RestaurantFields detail(List<String> requested) {
+    return parse(requested, DETAIL);
+  }
+
+  /** @return true when no selection was made and the full view is returned */
+  public boolean isAll() {
+    return names == null;
+  }
+
+  /** @return true if {@code name} should be read and returned */
+  public boolean includes(String name) {
+    return names == null || names.contains(name);
+  }
+
+  /**
+   * Validates requested names against {@code allowed}. Blank entries are ignored, and an empty
+   * request selects everything.
+   *
+   * @throws IllegalArgumentException if any name is not allowed
+   */
+  private static RestaurantFields parse(List<String> requested, Set<String> allowed) {
+    if (requested == null) return ALL;
+    Set<String> names = new LinkedHashSet<>();
+    for (String raw : requested) {
+      if (raw == null || raw.isBlank()) continue;
+      String name = raw.trim();
+      if (!allowed.contains(name)) {
+        throw new IllegalArgumentException(
+            "Unknown field '" + name + "'; allowed fields are " + allowed);
+      }
+      names.add(name);
+    }
+    return names.isEmpty() ? ALL : new RestaurantFields(Set.copyOf(names));
+  }
+
+  private static Set<String> without(Set<String> a, String name) {
+    Set<String> rest = new LinkedHashSet<>(a);
+    rest.remove(name);
+    return Set.copyOf(rest);
+  }
+
+  private static Set<String> union(Set<String> a, Set<String> b) {
+    Set<String> all = new LinkedHashSet<>(a);
+    all.addAll(b);
+    return Set.copyOf(all);
+  }
+}
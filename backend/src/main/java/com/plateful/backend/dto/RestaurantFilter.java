@@ -0,0 +1,30 @@
+package com.plateful.backend.dto;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.springframework.data.geo.Point;
+
+/**
+ * Criteria accepted by the restaurant filter endpoints. Every component is optional; null means
+ * "no constraint".
+ *
+ * @param query free text matched against name, description, cuisine and tags
+ * @param cuisine case-insensitive partial match for cuisine type
+ * @param priceMin lower bound for price level (inclusive)
+ * @param priceMax upper bound for price level (inclusive)
+ * @param reservation reservation requirement
+ * @param openAt instant at which the restaurant must be open
+ * @param cities cities to match (case-insensitive, exact match)
+ * @param near point distances are measured from, as (longitude, latitude)
+ * @param radiusKm maximum distance from {@code near} in kilometres; ignored without {@code near}
+ */
+public record RestaurantFilter(
+    String query,
+    String cuisine,
+    Integer priceMin,
+    Integer priceMax,
+    Boolean reservation,
+    ZonedDateTime openAt,
+    List<String> cities,
+    Point near,
+    Double radiusKm) {}
@@ -0,0 +1,82 @@
+package com.plateful.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import java.util.List;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+/**
+ * Restaurant as shown in lists, cards and map markers. Carries vote counts and the caller's own
+ * vote, never other voters'. {@code distanceKm} is only present on results of a proximity
+ * search.
+ */
+public record RestaurantSummary(
+    String id,
+    String name,
+    String description,
+    String cuisine,
+    Integer priceLevel,
+    Restaurant.Address address,
+    GeoJsonPoint location,
+    List<String> images,
+    List<String> tags,
+    Boolean reservationRequired,
+    int upvoteCount,
+    int downvoteCount,
+    int voteCount,
+    boolean hasUpvoted,
+    boolean hasDownvoted,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Double distanceKm) {
+
+  /**
+   * Builds a summary with the caller's vote on the restaurant.
+   *
+   * @param vote the caller's vote, or null when they have not voted or are anonymous
+   */
+  public static RestaurantSummary from(Restaurant r, Vote.Direction vote) {
+    return from(r, vote == Vote.Direction.UP, vote == Vote.Direction.DOWN);
+  }
+
+  /** Builds a summary with the caller's vote flags already known. */
+  public static RestaurantSummary from(Restaurant r, boolean hasUpvoted, boolean hasDownvoted) {
+    return new RestaurantSummary(
+        r.getId(),
+        r.getName(),
+        r.getDescription(),
+        r.getCuisine(),
+        r.getPriceLevel(),
+        r.getAddress(),
+        r.getLocation(),
+        r.getImages(),
+        r.getTags(),
+        r.getReservationRequired(),
+        r.getUpvoteCount(),
+        r.getDownvoteCount(),
+        r.getVoteCount(),
+        hasUpvoted,
+        hasDownvoted,
+        null);
+  }
+
+  /** @return this summary with its distance from the search point, in kilometres */
+  public RestaurantSummary withDistanceKm(Double km) {
+    return new RestaurantSummary(
+        id,
+        name,
+        description,
+        cuisine,
+        priceLevel,
+        address,
+        location,
+        images,
+        tags,
+        reservationRequired,
+        upvoteCount,
+        downvoteCount,
+        voteCount,
+        hasUpvoted,
+        hasDownvoted,
+        km);
+  }
+}
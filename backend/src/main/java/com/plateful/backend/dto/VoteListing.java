@@ -0,0 +1,19 @@
+package com.plateful.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+/**
+ * One slice of the restaurants a user voted on, most recent vote first. Unlike a Spring Data page
+ * it is read without a count query: whether more follow is known from fetching one extra vote.
+ *
+ * @param content the restaurants of this slice
+ * @param hasNext whether another slice follows
+ * @param nextCursor opaque token for the following slice; null on the last one
+ * @param totalElements the user's number of votes in this direction, only when asked for
+ */
+public record VoteListing(
+    List<RestaurantSummary> content,
+    boolean hasNext,
+    String nextCursor,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Long totalElements) {}
@@ -2,6 +2,7 @@ package com.plateful.backend.model;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -23,7 +24,8 @@ public class AppUser {
 
     private boolean enabled = true;
 
-    private List<String> favoriteRestaurantIds = new ArrayList<>();
+    // Stored as an array; kept unique by $addToSet, read back as an insertion-ordered set
+    private Set<String> favoriteRestaurantIds = new LinkedHashSet<>();
 
     private List<HistoryEntry> browseHistory = new ArrayList<>();
 
@@ -97,7 +99,7 @@ public class AppUser {
         return enabled;
     }
 
-    public List<String> getFavoriteRestaurantIds() {
+    public Set<String> getFavoriteRestaurantIds() {
         return favoriteRestaurantIds;
     }
 
@@ -126,7 +128,7 @@ public class AppUser {
         this.enabled = enabled;
     }
 
-    public void setFavoriteRestaurantIds(List<String> favoriteRestaurantIds) {
+    public void setFavoriteRestaurantIds(Set<String> favoriteRestaurantIds) {
         this.favoriteRestaurantIds = favoriteRestaurantIds;
     }
 
@@ -1,11 +1,12 @@
 package com.plateful.backend.model;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -22,9 +23,12 @@ import org.springframework.data.mongodb.core.index.Indexed;
  *
  * <p>The class uses various MongoDB-specific annotations for: - Document mapping (@Document) - Text
  * indexing (@TextIndexed) for efficient text search - Geospatial indexing (@GeoSpatialIndexed) for
- * location-based queries
+ * location-based queries - Compound indexing (@CompoundIndex) of the derived open-hours intervals
  */
 @Document(collection = "restaurants")
+@CompoundIndex(
+    name = "ix_open_intervals",
+    def = "{ 'open_intervals.start' : 1, 'open_intervals.end' : 1 }")
 public class Restaurant {
   
   @Id private String id;
@@ -41,24 +45,28 @@ public class Restaurant {
   private String website;
 
   
-  @GeoSpatialIndexed private GeoJsonPoint location;
+  @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+  private GeoJsonPoint location;
 
   private List<String> images;
   @Indexed(name = "ix_tags") 
   private List<String> tags;
   private Map<String, String> hours;
 
+  // Derived from hours on every save (see RestaurantWriteListener); minute-of-week, Monday 00:00 = 0
+  @Field("open_intervals")
+  private List<OpenInterval> openIntervals;
+
   @Field("reservation_required")
   private Boolean reservationRequired;
 
-  // Voting system - stores user IDs who have upvoted/downvoted
-  @Field("upvote_user_ids")
-  @Indexed(name = "ix_upvote_user_ids")  
-  private Set<String> upvoteUserIds = new HashSet<>();
+  // Materialized counts of this restaurant's up/down votes in the votes collection (see Vote).
+  // Only moved by the vote path; RestaurantRepository.save leaves them out of its update
+  @Field("upvote_count")
+  private Integer upvoteCount;
 
-  @Field("downvote_user_ids")
-  @Indexed(name = "ix_downvote_user_ids") 
-  private Set<String> downvoteUserIds = new HashSet<>();
+  @Field("downvote_count")
+  private Integer downvoteCount;
 
   public static class Address {
     private String street;
@@ -99,6 +107,38 @@ public class Restaurant {
     }
   }
 
+  /**
+   * A half-open span [start, end) of minutes in the week during which the restaurant is open.
+   * Overnight hours that run past Sunday midnight are stored as two intervals.
+   */
+  public static class OpenInterval {
+    private int start;
+    private int end;
+
+    public OpenInterval() {}
+
+    public OpenInterval(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    public int getStart() {
+      return start;
+    }
+
+    public void setStart(int start) {
+      this.start = start;
+    }
+
+    public int getEnd() {
+      return end;
+    }
+
+    public void setEnd(int end) {
+      this.end = end;
+    }
+  }
+
   // getters & setters
   public String getId() {
     return id;
@@ -188,6 +228,15 @@ public class Restaurant {
     this.hours = hours;
   }
 
+  @JsonIgnore
+  public List<OpenInterval> getOpenIntervals() {
+    return openIntervals;
+  }
+
+  public void setOpenIntervals(List<OpenInterval> openIntervals) {
+    this.openIntervals = openIntervals;
+  }
+
   public List<String> getTags() {
     return tags;
   }
@@ -204,67 +253,38 @@ public class Restaurant {
     this.reservationRequired = reservationRequired;
   }
 
-  public Set<String> getUpvoteUserIds() {
-    return upvoteUserIds;
-  }
-
-  public void setUpvoteUserIds(Set<String> upvoteUserIds) {
-    this.upvoteUserIds = upvoteUserIds;
-  }
-
-  public Set<String> getDownvoteUserIds() {
-    return downvoteUserIds;
-  }
-
-  public void setDownvoteUserIds(Set<String> downvoteUserIds) {
-    this.downvoteUserIds = downvoteUserIds;
-  }
-
   /**
    * Get the net vote count (upvotes - downvotes).
    *
    * @return the net vote count
    */
   public int getVoteCount() {
-    return (upvoteUserIds != null ? upvoteUserIds.size() : 0)
-        - (downvoteUserIds != null ? downvoteUserIds.size() : 0);
+    return getUpvoteCount() - getDownvoteCount();
   }
 
   /**
    * Get the total number of upvotes.
    *
-   * @return the upvote count
+   * @return the upvote count, 0 if the counter was not read
    */
   public int getUpvoteCount() {
-    return upvoteUserIds != null ? upvoteUserIds.size() : 0;
+    return upvoteCount != null ? upvoteCount : 0;
   }
 
-  /**
-   * Get the total number of downvotes.
-   *
-   * @return the downvote count
-   */
-  public int getDownvoteCount() {
-    return downvoteUserIds != null ? downvoteUserIds.size() : 0;
+  public void setUpvoteCount(Integer upvoteCount) {
+    this.upvoteCount = upvoteCount;
   }
 
   /**
-   * Check if a user has upvoted this restaurant.
+   * Get the total number of downvotes.
    *
-   * @param userId the user ID to check
-   * @return true if the user has upvoted, false otherwise
+   * @return the downvote count, 0 if the counter was not read
    */
-  public boolean hasUserUpvoted(String userId) {
-    return upvoteUserIds != null && upvoteUserIds.contains(userId);
+  public int getDownvoteCount() {
+    return downvoteCount != null ? downvoteCount : 0;
   }
 
-  /**
-   * Check if a user has downvoted this restaurant.
-   *
-   * @param userId the user ID to check
-   * @return true if the user has downvoted, false otherwise
-   */
-  public boolean hasUserDownvoted(String userId) {
-    return downvoteUserIds != null && downvoteUserIds.contains(userId);
+  public void setDownvoteCount(Integer downvoteCount) {
+    this.downvoteCount = downvoteCount;
   }
 }
@@ -0,0 +1,92 @@
+package com.plateful.backend.model;
+
+import java.time.Instant;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * One user's vote on one restaurant, stored in the 'votes' collection. A user has at most one vote
+ * per restaurant, enforced by the unique {@code (user_id, restaurant_id)} index; the restaurant
+ * itself only keeps the materialized {@code upvote_count}/{@code downvote_count}.
+ *
+ * <p>Index auto-creation is disabled for this application, so the indexes declared here are
+ * created by {@code RestaurantMaintenance}.
+ */
+@Document(collection = "votes")
+@CompoundIndexes({
+  @CompoundIndex(
+      name = "ux_user_restaurant",
+      def = "{ 'user_id' : 1, 'restaurant_id' : 1 }",
+      unique = true),
+  @CompoundIndex(
+      name = "ix_user_direction_voted_at",
+      def = "{ 'user_id' : 1, 'direction' : 1, 'voted_at' : -1, '_id' : -1 }"),
+  @CompoundIndex(
+      name = "ix_restaurant_direction",
+      def = "{ 'restaurant_id' : 1, 'direction' : 1 }")
+})
+public class Vote {
+
+  /** Which way a vote goes. */
+  public enum Direction {
+    UP,
+    DOWN
+  }
+
+  @Id private String id;
+
+  @Field("user_id")
+  private String userId;
+
+  @Field("restaurant_id")
+  private String restaurantId;
+
+  private Direction direction;
+
+  // When the vote was last cast; migrated votes carry the time of the migration
+  @Field("voted_at")
+  private Instant votedAt;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public void setUserId(String userId) {
+    this.userId = userId;
+  }
+
+  public String getRestaurantId() {
+    return restaurantId;
+  }
+
+  public void setRestaurantId(String restaurantId) {
+    this.restaurantId = restaurantId;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public void setDirection(Direction direction) {
+    this.direction = direction;
+  }
+
+  public Instant getVotedAt() {
+    return votedAt;
+  }
+
+  public void setVotedAt(Instant votedAt) {
+    this.votedAt = votedAt;
+  }
+}
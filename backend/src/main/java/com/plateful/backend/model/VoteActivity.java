@@ -0,0 +1,86 @@
+package com.plateful.backend.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * How a restaurant's vote counters moved during one hour, stored in the 'vote_activity'
+ * collection: one document per restaurant and hour with any activity, incremented as votes
+ * arrive. The hourly buckets of a restaurant form a ring that MongoDB trims through the TTL index
+ * on {@code hour}, so only the trending horizon is ever kept.
+ *
+ * <p>Index auto-creation is disabled for this application, so the indexes declared here are
+ * created by {@code RestaurantMaintenance}.
+ */
+@Document(collection = "vote_activity")
+@CompoundIndex(
+    name = "ux_restaurant_hour",
+    def = "{ 'restaurant_id' : 1, 'hour' : 1 }",
+    unique = true)
+public class VoteActivity {
+
+  @Id private String id;
+
+  @Field("restaurant_id")
+  private String restaurantId;
+
+  // Start of the hour (UTC); buckets expire a little after the longest trending window
+  @Indexed(name = "ttl_hour", expireAfter = "8d")
+  private Instant hour;
+
+  // Net change of upvote_count during the hour
+  private int up;
+
+  // Net change of downvote_count during the hour
+  private int down;
+
+  /** @return the start of the hour bucket containing {@code instant} */
+  public static Instant hourOf(Instant instant) {
+    return instant.truncatedTo(ChronoUnit.HOURS);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getRestaurantId() {
+    return restaurantId;
+  }
+
+  public void setRestaurantId(String restaurantId) {
+    this.restaurantId = restaurantId;
+  }
+
+  public Instant getHour() {
+    return hour;
+  }
+
+  public void setHour(Instant hour) {
+    this.hour = hour;
+  }
+
+  public int getUp() {
+    return up;
+  }
+
+  public void setUp(int up) {
+    this.up = up;
+  }
+
+  public int getDown() {
+    return down;
+  }
+
+  public void setDown(int down) {
+    this.down = down;
+  }
+}
@@ -4,22 +4,23 @@ import com.plateful.backend.model.Restaurant;
 import java.util.List;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 /**
  * MongoDB repository interface for Restaurant entities. Provides standard CRUD operations through
- * MongoRepository and custom queries for restaurant search functionality.
+ * MongoRepository and custom queries for restaurant search functionality. Saves never write the
+ * vote counters; see {@link RestaurantRepositoryCustom}.
  */
-public interface RestaurantRepository extends MongoRepository<Restaurant, String> {
-  /**
-   * Full-text search across multiple restaurant fields. Performs a case-insensitive partial match
-   * on name, description, and cuisine. The same search term is used for all fields (OR condition).
-   */
-  List<Restaurant>
-      findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseOrCuisineContainingIgnoreCase(
-          String name, String description, String cuisine);
+public interface RestaurantRepository
+    extends MongoRepository<Restaurant, String>, RestaurantRepositoryCustom {
+
+  /** Saves without writing the vote counters; see {@link RestaurantRepositoryCustom}. */
+  @Override
+  <S extends Restaurant> S save(S restaurant);
+
+  /** Saves without writing the vote counters; see {@link RestaurantRepositoryCustom}. */
+  @Override
+  <S extends Restaurant> List<S> saveAll(Iterable<S> restaurants);
 
   /**
    * Optimized query to fetch only cuisine fields from all restaurants. Uses MongoDB projection to
@@ -28,11 +29,4 @@ public interface RestaurantRepository extends MongoRepository<Restaurant, String
    */
   @Query(value = "{}", fields = "{ 'cuisine' : 1, '_id' : 0 }")
   List<Restaurant> findAllCuisines();
-
-    Page<Restaurant> findByUpvoteUserIdsContains(String userId, Pageable pageable);
-      Page<Restaurant> findByDownvoteUserIdsContains(String userId, Pageable pageable);
-      List<Restaurant> findByTagsIn(List<String> tags);  // ANY of the tags
-
-@Query("{ 'tags': { $all: ?0 } }")
-List<Restaurant> findByTagsAll(List<String> tags); // ALL tags must be present
 }
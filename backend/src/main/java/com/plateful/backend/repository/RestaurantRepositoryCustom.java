@@ -0,0 +1,15 @@
+package com.plateful.backend.repository;
+
+import com.plateful.backend.model.Restaurant;
+import java.util.List;
+
+/**
+ * Saves of restaurants that never write the vote counters. Overrides the {@code save}/{@code
+ * saveAll} of {@link RestaurantRepository}; see {@link RestaurantRepositoryCustomImpl}.
+ */
+public interface RestaurantRepositoryCustom {
+
+  <S extends Restaurant> S save(S restaurant);
+
+  <S extends Restaurant> List<S> saveAll(Iterable<S> restaurants);
+}
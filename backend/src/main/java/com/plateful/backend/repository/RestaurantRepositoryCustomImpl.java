@@ -0,0 +1,84 @@
+package com.plateful.backend.repository;
+
+import com.plateful.backend.model.Restaurant;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * A full-document save would write back whatever vote counters the saved object was read with,
+ * overwriting every vote counted since. So a restaurant with an ID is saved as an upsert that
+ * {@code $set}s its other fields and {@code $unset}s the null ones, as a replace would, but leaves
+ * {@code upvote_count}/{@code downvote_count} alone; only the vote path moves them. A restaurant
+ * without an ID is inserted as usual.
+ *
+ * <p>The mapping events a save publishes are published here too, so the derived fields and the
+ * in-memory indexes stay current. {@code MongoTemplate.save} bypasses this and replaces the whole
+ * document.
+ */
+class RestaurantRepositoryCustomImpl implements RestaurantRepositoryCustom {
+
+  /** Stored names of the counters; see {@link Restaurant#getUpvoteCount}. */
+  static final List<String> VOTE_COUNTERS = List.of("upvote_count", "downvote_count");
+
+  private final MongoTemplate mongoTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+
+  RestaurantRepositoryCustomImpl(
+      MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher) {
+    this.mongoTemplate = mongoTemplate;
+    this.eventPublisher = eventPublisher;
+  }
+
+  @Override
+  public <S extends Restaurant> S save(S restaurant) {
+    if (restaurant.getId() == null) {
+      return mongoTemplate.insert(restaurant);
+    }
+    String collection = mongoTemplate.getCollectionName(Restaurant.class);
+    eventPublisher.publishEvent(new BeforeConvertEvent<>(restaurant, collection));
+
+    Document document = new Document();
+    mongoTemplate.getConverter().write(restaurant, document);
+    Object id = document.remove("_id");
+    VOTE_COUNTERS.forEach(document::remove);
+    Update update = new Update();
+    document.forEach(update::set);
+    MongoPersistentEntity<?> entity =
+        mongoTemplate
+            .getConverter()
+            .getMappingContext()
+            .getRequiredPersistentEntity(Restaurant.class);
+    for (MongoPersistentProperty property : entity) {
+      String field = property.getFieldName();
+      if (!property.isIdProperty()
+          && !document.containsKey(field)
+          && !VOTE_COUNTERS.contains(field)) {
+        update.unset(field);
+      }
+    }
+    mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)), update, Restaurant.class);
+
+    document.put("_id", id);
+    eventPublisher.publishEvent(new AfterSaveEvent<>(restaurant, document, collection));
+    return restaurant;
+  }
+
+  @Override
+  public <S extends Restaurant> List<S> saveAll(Iterable<S> restaurants) {
+    List<S> saved = new ArrayList<>();
+    for (S restaurant : restaurants) {
+      saved.add(save(restaurant));
+    }
+    return saved;
+  }
+}
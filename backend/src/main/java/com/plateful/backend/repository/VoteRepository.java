@@ -0,0 +1,35 @@
+package com.plateful.backend.repository;
+
+import com.plateful.backend.model.Vote;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+/**
+ * MongoDB repository for {@link Vote}s. Each query is served by one of the compound indexes
+ * declared on {@link Vote}: the lookups of a user's votes are keyed by user first, and {@link
+ * #deleteByRestaurantId} by the {@code (restaurant_id, direction)} index.
+ */
+public interface VoteRepository extends MongoRepository<Vote, String> {
+
+  /** A user's vote on one restaurant, if any. */
+  Optional<Vote> findByUserIdAndRestaurantId(String userId, String restaurantId);
+
+  /** A user's votes on a set of restaurants, e.g. one page of a listing. */
+  @Query(fields = VOTE_FIELDS)
+  List<Vote> findByUserIdAndRestaurantIdIn(String userId, Collection<String> restaurantIds);
+
+  /** Every vote a user has cast. */
+  @Query(fields = VOTE_FIELDS)
+  List<Vote> findByUserId(String userId);
+
+  /** How many restaurants a user has voted on in one direction; counted on the index alone. */
+  long countByUserIdAndDirection(String userId, Vote.Direction direction);
+
+  /** Drops the votes on a deleted restaurant. */
+  void deleteByRestaurantId(String restaurantId);
+
+  String VOTE_FIELDS = "{ 'restaurant_id' : 1, 'direction' : 1 }";
+}
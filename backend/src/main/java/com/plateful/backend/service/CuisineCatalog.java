@@ -0,0 +1,132 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory dictionary of cuisines and how many restaurants serve each. Loaded once the
+ * application is ready and then kept current by {@link RestaurantWriteListener}, so cuisine
+ * lookups never touch the database.
+ *
+ * <p>Readers get an immutable {@link Snapshot}; writers build a new one only when a restaurant's
+ * cuisine actually changes, so vote and other non-cuisine saves leave the snapshot untouched. Each
+ * new snapshot gets the next version; versions start at the startup time in milliseconds, so those
+ * of a restarted instance do not repeat earlier ones.
+ */
+@Component
+public class CuisineCatalog {
+
+  private static final Logger log = LoggerFactory.getLogger(CuisineCatalog.class);
+
+  /**
+   * Sorted cuisines with their restaurant counts.
+   *
+   * @param counts cuisine -> number of restaurants, in alphabetical order
+   * @param cuisines the keys of {@code counts}
+   * @param version increases with every change to the catalog
+   */
+  public record Snapshot(SortedMap<String, Integer> counts, List<String> cuisines, long version) {
+
+    static Snapshot of(TreeMap<String, Integer> counts, long version) {
+      return new Snapshot(
+          Collections.unmodifiableSortedMap(counts), List.copyOf(counts.keySet()), version);
+    }
+  }
+
+  private final MongoTemplate mongoTemplate;
+
+  /** restaurant ID -> cuisine it is counted under, so updates can move it between cuisines. */
+  private final Map<String, String> cuisineById = new HashMap<>();
+
+  private final TreeMap<String, Integer> counts = new TreeMap<>();
+
+  /** Version of the latest snapshot. Guarded by {@code this}. */
+  private long version = System.currentTimeMillis();
+
+  private volatile Snapshot snapshot = Snapshot.of(new TreeMap<>(), version);
+  private volatile boolean ready;
+
+  public CuisineCatalog(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /** Loads every restaurant's cuisine once the application context is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Query query = new Query();
+    query.fields().include("cuisine");
+    try (Stream<Restaurant> stream = mongoTemplate.stream(query, Restaurant.class)) {
+      synchronized (this) {
+        cuisineById.clear();
+        counts.clear();
+        stream.forEach(r -> put(r.getId(), r.getCuisine()));
+        snapshot = Snapshot.of(new TreeMap<>(counts), ++version);
+      }
+      ready = true;
+      log.info("Cuisine catalog built: {} cuisines", counts.size());
+    } catch (RuntimeException e) {
+      log.error("Could not build cuisine catalog; falling back to database queries", e);
+    }
+  }
+
+  /** @return true once the initial load has completed and the snapshot is authoritative */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** @return the current catalog; never null */
+  public Snapshot snapshot() {
+    return snapshot;
+  }
+
+  /** Records a restaurant's current cuisine, moving it out of its previous one if it changed. */
+  public synchronized void update(Restaurant restaurant) {
+    if (restaurant == null || restaurant.getId() == null) return;
+    String previous = cuisineById.get(restaurant.getId());
+    String current = normalize(restaurant.getCuisine());
+    if (current == null ? previous == null : current.equals(previous)) return;
+
+    if (previous != null) decrement(previous);
+    cuisineById.remove(restaurant.getId());
+    put(restaurant.getId(), current);
+    snapshot = Snapshot.of(new TreeMap<>(counts), ++version);
+  }
+
+  /** Drops a deleted restaurant from its cuisine's count. */
+  public synchronized void remove(String id) {
+    String previous = id != null ? cuisineById.remove(id) : null;
+    if (previous != null) {
+      decrement(previous);
+      snapshot = Snapshot.of(new TreeMap<>(counts), ++version);
+    }
+  }
+
+  /** Null or blank cuisines are not listed. */
+  static String normalize(String cuisine) {
+    return cuisine == null || cuisine.trim().isEmpty() ? null : cuisine;
+  }
+
+  private void put(String id, String cuisine) {
+    String c = normalize(cuisine);
+    if (id == null || c == null) return;
+    cuisineById.put(id, c);
+    counts.merge(c, 1, Integer::sum);
+  }
+
+  private void decrement(String cuisine) {
+    counts.computeIfPresent(cuisine, (c, n) -> n > 1 ? n - 1 : null);
+  }
+}
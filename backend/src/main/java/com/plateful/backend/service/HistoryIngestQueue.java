@@ -0,0 +1,185 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.AppUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Takes browse-history writes off the request path. Views are queued in memory and written by a
+ * background thread every {@code app.history.queue.window-ms}: repeated views of the same
+ * restaurant by the same user within a window collapse into the latest one, and each user's views
+ * become a single {@link UserService#prependToHistory} update, all sent as one unordered bulk
+ * request.
+ *
+ * <p>The queue holds at most {@code app.history.queue.capacity} distinct (user, restaurant) views;
+ * new ones are dropped while it is full. History is best effort: views of unknown users, and views
+ * of a batch that fails to write, are counted and dropped rather than retried.
+ *
+ * <p>Metrics: {@code plateful.history.queue.depth}, {@code plateful.history.queue.collapsed},
+ * {@code plateful.history.queue.dropped} (tagged by reason) and the {@code
+ * plateful.history.flush} timer.
+ */
+@Component
+public class HistoryIngestQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(HistoryIngestQueue.class);
+
+  /** Which view a queued entry is about; repeated views with the same key collapse. */
+  record Key(String userId, String restaurantId) {}
+
+  private final MongoTemplate mongoTemplate;
+  private final int capacity;
+
+  private final ConcurrentHashMap<Key, AppUser.HistoryEntry> pending = new ConcurrentHashMap<>();
+
+  private final Counter collapsed;
+  private final Counter droppedFull;
+  private final Counter droppedFailed;
+  private final Timer flushTimer;
+  private final ScheduledExecutorService flusher;
+
+  public HistoryIngestQueue(
+      MongoTemplate mongoTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${app.history.queue.window-ms:2000}") long windowMs,
+      @Value("${app.history.queue.capacity:10000}") int capacity) {
+    this.mongoTemplate = mongoTemplate;
+    this.capacity = capacity;
+    Gauge.builder("plateful.history.queue.depth", pending, Map::size)
+        .description("Browse-history views waiting to be written")
+        .register(meterRegistry);
+    collapsed =
+        Counter.builder("plateful.history.queue.collapsed")
+            .description("Views merged into a queued view of the same restaurant")
+            .register(meterRegistry);
+    droppedFull = dropped(meterRegistry, "queue_full");
+    droppedFailed = dropped(meterRegistry, "write_failed");
+    flushTimer =
+        Timer.builder("plateful.history.flush")
+            .description("Time to write one batch of browse history")
+            .register(meterRegistry);
+
+    flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "history-ingest");
+              t.setDaemon(true);
+              return t;
+            });
+    flusher.scheduleWithFixedDelay(this::flush, windowMs, windowMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues a view for the user's browse history.
+   *
+   * @param viewType how the restaurant was viewed; {@code "Details viewed"} when null
+   * @return false if the queue was full and the view was dropped
+   */
+  public boolean enqueue(
+      String userId, String restaurantId, String restaurantName, String viewType) {
+    Key key = new Key(userId, restaurantId);
+    AppUser.HistoryEntry entry =
+        new AppUser.HistoryEntry(
+            restaurantId,
+            restaurantName,
+            LocalDateTime.now(),
+            viewType != null ? viewType : "Details viewed");
+    // The bound is approximate under concurrent enqueues; it only has to keep memory in check
+    if (!pending.containsKey(key) && pending.size() >= capacity) {
+      droppedFull.increment();
+      return false;
+    }
+    if (pending.put(key, entry) != null) {
+      collapsed.increment();
+    }
+    return true;
+  }
+
+  /**
+   * Drops the user's queued views, e.g. before their history is cleared. Waits for a flush in
+   * progress, so none of the user's views it took can land after this returns.
+   *
+   * @return how many views were dropped
+   */
+  public synchronized int discard(String userId) {
+    int views = 0;
+    for (Key key : pending.keySet()) {
+      if (key.userId().equals(userId) && pending.remove(key) != null) {
+        views++;
+      }
+    }
+    return views;
+  }
+
+  /** Writes every queued view. Runs on the ingest thread, and once more on shutdown. */
+  public synchronized void flush() {
+    Map<String, List<AppUser.HistoryEntry>> byUser = new HashMap<>();
+    int views = 0;
+    for (Map.Entry<Key, AppUser.HistoryEntry> queued : pending.entrySet()) {
+      // A view replaced meanwhile stays queued for the next flush
+      if (pending.remove(queued.getKey(), queued.getValue())) {
+        byUser
+            .computeIfAbsent(queued.getKey().userId(), id -> new ArrayList<>())
+            .add(queued.getValue());
+        views++;
+      }
+    }
+    if (byUser.isEmpty()) return;
+
+    long start = System.nanoTime();
+    try {
+      BulkOperations users = mongoTemplate.bulkOps(BulkMode.UNORDERED, AppUser.class);
+      for (Map.Entry<String, List<AppUser.HistoryEntry>> user : byUser.entrySet()) {
+        List<AppUser.HistoryEntry> newestFirst = user.getValue();
+        newestFirst.sort(Comparator.comparing(AppUser.HistoryEntry::getViewedAt).reversed());
+        if (newestFirst.size() > UserService.MAX_HISTORY) {
+          newestFirst = newestFirst.subList(0, UserService.MAX_HISTORY);
+        }
+        users.updateOne(
+            Query.query(Criteria.where("id").is(user.getKey())),
+            UserService.prependToHistory(mongoTemplate.getConverter(), newestFirst));
+      }
+      users.execute();
+    } catch (RuntimeException e) {
+      log.error("Could not write {} browse-history views; dropping them", views, e);
+      droppedFailed.increment(views);
+    } finally {
+      flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    flusher.shutdown();
+    flush();
+  }
+
+  private static Counter dropped(MeterRegistry meterRegistry, String reason) {
+    return Counter.builder("plateful.history.queue.dropped")
+        .description("Browse-history views that were not written")
+        .tag("reason", reason)
+        .register(meterRegistry);
+  }
+}
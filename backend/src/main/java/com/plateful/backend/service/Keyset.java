@@ -0,0 +1,74 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.model.Restaurant;
+import java.util.List;
+import java.util.NavigableSet;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Keyset pagination over restaurants ordered by {@code _id}. Each page seeks past the previous
+ * page's last ID using the primary-key index instead of skipping rows, so the cost of a page does
+ * not grow with its depth.
+ */
+final class Keyset {
+
+  /** Page size used when the client does not ask for one. */
+  static final int DEFAULT_LIMIT = 100;
+
+  /** Upper bound on any requested page size. */
+  static final int MAX_LIMIT = 500;
+
+  private Keyset() {}
+
+  /**
+   * Resolves the page size of a request: {@link #DEFAULT_LIMIT} when none is asked for, otherwise
+   * the requested size clamped into [1, {@link #MAX_LIMIT}]. Every page is bounded; clients that
+   * want every match follow the cursor.
+   */
+  static int pageSize(Integer limit) {
+    if (limit == null) return DEFAULT_LIMIT;
+    return Math.max(1, Math.min(MAX_LIMIT, limit));
+  }
+
+  /**
+   * Runs {@code query} for the page after {@code cursor}.
+   *
+   * @param query filter criteria; must not already constrain or sort on {@code _id} at top level
+   * @param cursor token from a previous page, or null for the first page
+   * @param limit page size, already clamped
+   */
+  static CursorPage<Restaurant> page(
+      MongoTemplate mongoTemplate, Query query, String cursor, int limit) {
+    String after = CursorPage.decodeCursor(cursor);
+    if (after != null) {
+      query.addCriteria(Criteria.where("id").gt(after));
+    }
+    query.with(Sort.by(Sort.Direction.ASC, "id")).limit(limit + 1);
+    return toPage(mongoTemplate.find(query, Restaurant.class), limit);
+  }
+
+  /**
+   * Seeks into a sorted ID set resolved in memory: the IDs after {@code cursor}, at most {@code
+   * limit + 1} of them, ready for an {@code _id $in} query passed to {@link #page} without a
+   * cursor.
+   */
+  static List<String> seek(NavigableSet<String> ids, String cursor, int limit) {
+    String after = CursorPage.decodeCursor(cursor);
+    NavigableSet<String> rest = after != null ? ids.tailSet(after, false) : ids;
+    return rest.stream().limit(limit + 1L).toList();
+  }
+
+  /** Trims a result fetched with {@code limit + 1} rows into a page and its next cursor. */
+  static CursorPage<Restaurant> toPage(List<Restaurant> rows, int limit) {
+    if (rows.size() <= limit) {
+      return new CursorPage<>(rows, null);
+    }
+    List<Restaurant> items = rows.subList(0, limit);
+    return new CursorPage<>(
+        List.copyOf(items), CursorPage.encodeCursor(items.get(limit - 1).getId()));
+  }
+}
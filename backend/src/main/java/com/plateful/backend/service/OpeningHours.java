@@ -0,0 +1,167 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant.OpenInterval;
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A restaurant's weekly {@code hours} map compiled into a minute-of-week bitmap (10080 bits, Monday
+ * 00:00 = minute 0). Compiling happens once; {@link #isOpenAt(int)} is then a single array read
+ * with no parsing or allocation.
+ *
+ * <p>Each day's value is one or more comma-separated {@code HH:mm-HH:mm} spans. The start is
+ * inclusive and the end exclusive; {@code 24:00} is accepted as an end time, an end before the
+ * start runs past midnight into the next day (Sunday wraps to Monday), and equal start and end
+ * means open for 24 hours. Blank values and {@code "closed"} mean closed. Anything else is recorded
+ * in {@link #problems()} and that span is treated as closed.
+ */
+public final class OpeningHours {
+
+  public static final int MINUTES_PER_DAY = 24 * 60;
+  public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+  /** An always-closed schedule, used for restaurants without hours. */
+  public static final OpeningHours CLOSED = new OpeningHours(new long[words()], List.of());
+
+  private final long[] bits;
+  private final List<String> problems;
+
+  private OpeningHours(long[] bits, List<String> problems) {
+    this.bits = bits;
+    this.problems = problems;
+  }
+
+  /**
+   * Compiles an {@code hours} map keyed by lowercase day name ({@code "monday"} .. {@code
+   * "sunday"}).
+   *
+   * @param hours the raw map as stored on the restaurant; may be null
+   * @return the compiled schedule, never null
+   */
+  public static OpeningHours compile(Map<String, String> hours) {
+    if (hours == null || hours.isEmpty()) return CLOSED;
+
+    long[] bits = new long[words()];
+    List<String> problems = new ArrayList<>();
+    for (Map.Entry<String, String> e : hours.entrySet()) {
+      DayOfWeek day = parseDay(e.getKey());
+      if (day == null) {
+        problems.add("unknown day '" + e.getKey() + "'");
+        continue;
+      }
+      String value = e.getValue();
+      if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("closed")) continue;
+
+      int dayStart = (day.getValue() - 1) * MINUTES_PER_DAY;
+      for (String span : value.split(",")) {
+        int[] range = parseSpan(span);
+        if (range == null) {
+          problems.add(e.getKey() + " '" + span.trim() + "'");
+          continue;
+        }
+        int start = range[0];
+        int end = range[1];
+        if (end <= start) end += MINUTES_PER_DAY; // overnight, or all day when equal
+        setRange(bits, dayStart + start, dayStart + end);
+      }
+    }
+    return new OpeningHours(
+        bits, problems.isEmpty() ? List.of() : Collections.unmodifiableList(problems));
+  }
+
+  /** @return true if the schedule is open during the given minute of the week */
+  public boolean isOpenAt(int minuteOfWeek) {
+    return (bits[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+  }
+
+  /** @return true if the schedule is open at the given instant's local day and time */
+  public boolean isOpenAt(ZonedDateTime when) {
+    return isOpenAt(minuteOfWeek(when));
+  }
+
+  /**
+   * Run-length encodes the bitmap into sorted, non-overlapping [start, end) minute-of-week
+   * intervals, the form persisted on {@code Restaurant.openIntervals} for querying in MongoDB.
+   */
+  public List<OpenInterval> intervals() {
+    List<OpenInterval> intervals = new ArrayList<>();
+    int start = -1;
+    for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+      boolean open = isOpenAt(minute);
+      if (open && start < 0) {
+        start = minute;
+      } else if (!open && start >= 0) {
+        intervals.add(new OpenInterval(start, minute));
+        start = -1;
+      }
+    }
+    if (start >= 0) intervals.add(new OpenInterval(start, MINUTES_PER_WEEK));
+    return intervals;
+  }
+
+  /** @return human-readable descriptions of entries that could not be parsed; empty if none */
+  public List<String> problems() {
+    return problems;
+  }
+
+  /** Converts a date-time to its minute of the week, Monday 00:00 being 0. */
+  public static int minuteOfWeek(ZonedDateTime when) {
+    return (when.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY
+        + when.getHour() * 60
+        + when.getMinute();
+  }
+
+  // -------------------- Parsing helpers --------------------
+
+  private static int words() {
+    return (MINUTES_PER_WEEK + 63) >>> 6;
+  }
+
+  private static DayOfWeek parseDay(String key) {
+    if (key == null) return null;
+    try {
+      return DayOfWeek.valueOf(key.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /** Parses {@code HH:mm-HH:mm} into minutes of the day, or null if malformed. */
+  private static int[] parseSpan(String span) {
+    String[] parts = span.split("-");
+    if (parts.length != 2) return null;
+    int start = parseTime(parts[0], false);
+    int end = parseTime(parts[1], true);
+    if (start < 0 || end < 0) return null;
+    return new int[] {start, end % MINUTES_PER_DAY};
+  }
+
+  private static int parseTime(String text, boolean allowMidnightEnd) {
+    String t = text.trim();
+    int colon = t.indexOf(':');
+    if (colon < 1 || colon != t.length() - 3) return -1;
+    try {
+      int h = Integer.parseInt(t.substring(0, colon));
+      int m = Integer.parseInt(t.substring(colon + 1));
+      if (m < 0 || m > 59) return -1;
+      if (h == 24 && m == 0 && allowMidnightEnd) return MINUTES_PER_DAY;
+      if (h < 0 || h > 23) return -1;
+      return h * 60 + m;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Sets minutes [from, to) of the week, wrapping past Sunday midnight back to Monday. */
+  private static void setRange(long[] bits, int from, int to) {
+    for (int i = from; i < to; i++) {
+      int minute = i % MINUTES_PER_WEEK;
+      bits[minute >>> 6] |= 1L << minute;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.plateful.backend.service;
+
+/** Thrown when a caller has used up their request allowance for an endpoint. */
+public class RateLimitExceededException extends RuntimeException {
+
+  private final long retryAfterSeconds;
+
+  public RateLimitExceededException(String endpoint, long retryAfterSeconds) {
+    super("Too many " + endpoint + " requests; retry in " + retryAfterSeconds + "s");
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /** @return whole seconds until the caller may try again, at least 1 */
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -0,0 +1,300 @@
+package com.plateful.backend.service;
+
+import com.mongodb.MongoCommandException;
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import com.plateful.backend.model.VoteActivity;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Startup backfill for derived restaurant fields. Documents written before a derived field existed
+ * (or inserted directly into MongoDB) are brought up to date once the application is ready; from
+ * then on {@link RestaurantWriteListener} maintains the fields on every save. Also ensures indexes
+ * that queries cannot run without.
+ */
+@Component
+public class RestaurantMaintenance {
+
+  private static final Logger log = LoggerFactory.getLogger(RestaurantMaintenance.class);
+
+  /** Votes written per bulk request while migrating the legacy voter arrays. */
+  private static final int VOTE_MIGRATION_BATCH = 1000;
+
+  /** Voter ID arrays that restaurants carried before votes had their own collection. */
+  private static final String LEGACY_UPVOTERS = "upvote_user_ids";
+
+  private static final String LEGACY_DOWNVOTERS = "downvote_user_ids";
+
+  /** Index type of the fields of a text index. */
+  private static final String TEXT_INDEX = "text";
+
+  /** Server error when an index with the same keys exists under another name or options. */
+  private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+  private final MongoTemplate mongoTemplate;
+
+  /** A restaurant being migrated and the vote counters it had when it was read. */
+  private record Migrating(Object id, Object storedUp, Object storedDown) {}
+
+  public RestaurantMaintenance(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /**
+   * Initializes {@code upvote_count}/{@code downvote_count} on documents that predate the counters,
+   * from the legacy voter arrays if they still have them ({@link #migrateVotes} later recounts
+   * those exactly). Runs as a single server-side pipeline update; no documents are read.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillVoteCounts() {
+    AggregationUpdate update =
+        AggregationUpdate.update()
+            .set("upvote_count")
+            .toValue(sizeOf(LEGACY_UPVOTERS))
+            .set("downvote_count")
+            .toValue(sizeOf(LEGACY_DOWNVOTERS));
+    try {
+      long updated =
+          mongoTemplate
+              .updateMulti(
+                  new Query(Criteria.where("upvote_count").exists(false)), update, Restaurant.class)
+              .getModifiedCount();
+      if (updated > 0) {
+        log.info("Backfilled vote counters on {} restaurants", updated);
+      }
+    } catch (RuntimeException e) {
+      log.error("Vote counter backfill failed", e);
+    }
+  }
+
+  /**
+   * Creates the indexes declared on {@link Restaurant}: the 2dsphere index on {@code location}
+   * that {@code $geoNear} requires, the multikey index on {@code open_intervals} that serves
+   * openNow/openAt and the tags index. Index auto-creation is disabled for this application, so
+   * they are ensured explicitly; creating an index that exists is a no-op. Each index is created on
+   * its own, so one that conflicts with an existing index under another name does not keep the
+   * others from being built. The declared text index is skipped: no query uses {@code $text}, text
+   * search is served by {@link RestaurantTextIndex}.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void ensureRestaurantIndexes() {
+    IndexOperations indexOps = mongoTemplate.indexOps(Restaurant.class);
+    for (IndexDefinition index :
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+            .resolveIndexFor(Restaurant.class)) {
+      if (index.getIndexKeys().containsValue(TEXT_INDEX)) continue;
+      try {
+        indexOps.createIndex(index);
+      } catch (RuntimeException e) {
+        if (NestedExceptionUtils.getMostSpecificCause(e) instanceof MongoCommandException c
+            && c.getErrorCode() == INDEX_OPTIONS_CONFLICT) {
+          // e.g. location_2dsphere, created before the indexes were resolved from the entity
+          log.info("Index {} already exists under another name", index.getIndexKeys());
+        } else {
+          log.error("Could not create restaurants index {}", index.getIndexKeys(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the indexes of the hourly {@link VoteActivity} buckets: the unique key the vote path
+   * upserts on, and the TTL index on {@code hour} that trims expired buckets and serves the
+   * trending window scan.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void ensureVoteActivityIndexes() {
+    try {
+      IndexOperations indexOps = mongoTemplate.indexOps(VoteActivity.class);
+      IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+          .resolveIndexFor(VoteActivity.class)
+          .forEach(indexOps::createIndex);
+    } catch (RuntimeException e) {
+      log.error("Could not create vote_activity indexes; trending will scan the collection", e);
+    }
+  }
+
+  /**
+   * Moves voters out of the legacy {@code upvote_user_ids}/{@code downvote_user_ids} arrays into
+   * the votes collection. Restaurants are streamed with only those arrays projected, and their
+   * voters are upserted in unordered bulk writes of about {@value #VOTE_MIGRATION_BATCH} votes.
+   * After each batch the restaurants' counters are recomputed from the votes collection and their
+   * arrays are unset, so the job is safe to interrupt and re-run; votes cast since the switch to
+   * the votes collection are never overwritten. The app is already taking votes, so the counters
+   * are set with a compare-and-set on the values read with the arrays, as {@link
+   * VoteCountReconciler} does: a restaurant counted meanwhile keeps its arrays and is migrated on
+   * the next run.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void migrateVotes() {
+    try {
+      ensureVoteIndexes();
+    } catch (RuntimeException e) {
+      log.error("Could not create votes indexes; vote migration skipped", e);
+      return;
+    }
+
+    Query legacy =
+        new Query(
+            new Criteria()
+                .orOperator(
+                    Criteria.where(LEGACY_UPVOTERS).exists(true),
+                    Criteria.where(LEGACY_DOWNVOTERS).exists(true)));
+    legacy.fields().include(LEGACY_UPVOTERS, LEGACY_DOWNVOTERS, "upvote_count", "downvote_count");
+
+    Instant migratedAt = Instant.now();
+    List<Migrating> batch = new ArrayList<>();
+    BulkOperations votes = mongoTemplate.bulkOps(BulkMode.UNORDERED, Vote.class);
+    int pending = 0;
+    int migrated = 0;
+    String collection = mongoTemplate.getCollectionName(Restaurant.class);
+    try (Stream<Document> stream = mongoTemplate.stream(legacy, Document.class, collection)) {
+      for (Document restaurant : (Iterable<Document>) stream::iterator) {
+        Object id = restaurant.get("_id");
+        pending += addVotes(votes, restaurant, LEGACY_UPVOTERS, Vote.Direction.UP, migratedAt);
+        pending += addVotes(votes, restaurant, LEGACY_DOWNVOTERS, Vote.Direction.DOWN, migratedAt);
+        batch.add(
+            new Migrating(id, restaurant.get("upvote_count"), restaurant.get("downvote_count")));
+        if (pending >= VOTE_MIGRATION_BATCH) {
+          migrated += flushVotes(votes, pending, batch);
+          votes = mongoTemplate.bulkOps(BulkMode.UNORDERED, Vote.class);
+          pending = 0;
+        }
+      }
+      migrated += flushVotes(votes, pending, batch);
+    } catch (RuntimeException e) {
+      log.error("Vote migration stopped after {} restaurants", migrated, e);
+      return;
+    }
+    if (migrated > 0) {
+      log.info("Migrated the voters of {} restaurants to the votes collection", migrated);
+    }
+  }
+
+  /**
+   * Creates the indexes declared on {@link Vote}. Index auto-creation is disabled, and the unique
+   * {@code (user_id, restaurant_id)} index must exist before any vote is written.
+   */
+  private void ensureVoteIndexes() {
+    IndexOperations indexOps = mongoTemplate.indexOps(Vote.class);
+    IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+        .resolveIndexFor(Vote.class)
+        .forEach(indexOps::createIndex);
+  }
+
+  /**
+   * Queues an upsert per voter in {@code arrayField}. Only fields of a newly inserted vote are set,
+   * so an existing vote in the collection wins over the legacy array.
+   *
+   * @return the number of votes queued
+   */
+  private static int addVotes(
+      BulkOperations votes,
+      Document restaurant,
+      String arrayField,
+      Vote.Direction direction,
+      Instant migratedAt) {
+    List<String> userIds = restaurant.getList(arrayField, String.class);
+    if (userIds == null) return 0;
+    String restaurantId = restaurant.get("_id").toString();
+    for (String userId : userIds) {
+      votes.upsert(
+          Query.query(Criteria.where("userId").is(userId).and("restaurantId").is(restaurantId)),
+          new Update().setOnInsert("direction", direction).setOnInsert("votedAt", migratedAt));
+    }
+    return userIds.size();
+  }
+
+  /**
+   * Writes the queued votes, then sets each restaurant in {@code batch} to its counts in the votes
+   * collection and drops its legacy arrays, unless its counters changed since it was read.
+   *
+   * @return the number of restaurants migrated; {@code batch} is cleared
+   */
+  private int flushVotes(BulkOperations votes, int pending, List<Migrating> batch) {
+    if (batch.isEmpty()) return 0;
+    if (pending > 0) votes.execute();
+
+    List<String> restaurantIds = batch.stream().map(r -> r.id().toString()).toList();
+    Map<String, int[]> counts =
+        VoteCountReconciler.countVotes(
+            mongoTemplate, Criteria.where("restaurantId").in(restaurantIds));
+
+    BulkOperations restaurants = mongoTemplate.bulkOps(BulkMode.UNORDERED, Restaurant.class);
+    for (Migrating r : batch) {
+      int[] upDown = counts.getOrDefault(r.id().toString(), new int[2]);
+      restaurants.updateOne(
+          Query.query(
+              Criteria.where("_id")
+                  .is(r.id())
+                  .and("upvoteCount")
+                  .is(r.storedUp())
+                  .and("downvoteCount")
+                  .is(r.storedDown())),
+          Update.update("upvoteCount", upDown[0])
+              .set("downvoteCount", upDown[1])
+              .unset(LEGACY_UPVOTERS)
+              .unset(LEGACY_DOWNVOTERS));
+    }
+    int migrated = restaurants.execute().getMatchedCount();
+    if (migrated < batch.size()) {
+      log.info(
+          "{} restaurants were voted on while migrating; left for the next run",
+          batch.size() - migrated);
+    }
+    batch.clear();
+    return migrated;
+  }
+
+  private static ArrayOperators.Size sizeOf(String arrayField) {
+    return ArrayOperators.Size.lengthOfArray(
+        ConditionalOperators.ifNull(arrayField).then(List.of()));
+  }
+
+  /** Computes {@code open_intervals} for every restaurant that does not have it yet. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillOpenIntervals() {
+    Query missing = new Query(Criteria.where("open_intervals").exists(false));
+    missing.fields().include("hours");
+
+    int updated = 0;
+    try (Stream<Restaurant> stream = mongoTemplate.stream(missing, Restaurant.class)) {
+      for (Restaurant r : (Iterable<Restaurant>) stream::iterator) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("id").is(r.getId())),
+            Update.update("open_intervals", RestaurantWriteListener.openIntervalsOf(r)),
+            Restaurant.class);
+        updated++;
+      }
+    } catch (RuntimeException e) {
+      log.error("Open-interval backfill stopped after {} restaurants", updated, e);
+      return;
+    }
+    if (updated > 0) {
+      log.info("Backfilled open_intervals on {} restaurants", updated);
+    }
+  }
+}
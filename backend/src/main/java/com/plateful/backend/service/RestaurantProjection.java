@@ -0,0 +1,72 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.RestaurantFields;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Field projections for restaurant reads. Counts come from the stored {@code
+ * upvote_count}/{@code downvote_count} fields; the caller's own vote lives in the votes collection
+ * and is looked up separately by {@link VotingQueryService#votesOf}.
+ *
+ * <p>When the caller asked for a sparse fieldset, only the document fields backing the selected
+ * view properties are projected.
+ */
+final class RestaurantProjection {
+
+  /** Fields backing {@code RestaurantSummary}. */
+  private static final String[] SUMMARY_FIELDS = {
+    "name",
+    "description",
+    "cuisine",
+    "priceLevel",
+    "address",
+    "location",
+    "images",
+    "tags",
+    "reservationRequired",
+    "upvoteCount",
+    "downvoteCount"
+  };
+
+  /** Extra fields backing {@code RestaurantDetail}. */
+  private static final String[] DETAIL_FIELDS = {"phone", "website", "hours"};
+
+  private RestaurantProjection() {}
+
+  /**
+   * Restricts {@code query} to the selected summary fields; with {@link RestaurantFields#ALL}, to
+   * every summary field.
+   */
+  static Query summary(Query query, RestaurantFields selection) {
+    if (selection.isAll()) {
+      query.fields().include(SUMMARY_FIELDS);
+      return query;
+    }
+    return selected(query, selection);
+  }
+
+  /** Restricts {@code query} to the selected detail fields. */
+  static Query detail(Query query, RestaurantFields selection) {
+    if (selection.isAll()) {
+      query.fields().include(SUMMARY_FIELDS).include(DETAIL_FIELDS);
+      return query;
+    }
+    return selected(query, selection);
+  }
+
+  /** Projects only the document fields behind the selected view properties. */
+  private static Query selected(Query query, RestaurantFields selection) {
+    // Always name at least one field, otherwise an empty projection would return everything
+    Field fields = query.fields().include("id");
+    for (String name : selection.names()) {
+      switch (name) {
+        case "id", "hasUpvoted", "hasDownvoted" -> {}
+        case "distanceKm" -> fields.include("location");
+        case "voteCount" -> fields.include("upvoteCount", "downvoteCount");
+        default -> fields.include(name);
+      }
+    }
+    return query;
+  }
+}
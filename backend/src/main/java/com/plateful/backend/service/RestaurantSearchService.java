@@ -1,143 +1,632 @@
 package com.plateful.backend.service;
 
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.dto.RestaurantFacets;
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantFilter;
+import com.plateful.backend.dto.RestaurantSummary;
 import com.plateful.backend.model.Restaurant;
-import java.time.LocalTime;
+import com.plateful.backend.model.Vote;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 /**
  * Service responsible for advanced restaurant filtering operations. Uses MongoTemplate for complex
- * queries and post-processing for time-based filtering. Supports filtering by cuisine, price range,
- * reservation requirements, current operating status, and location.
+ * queries. Supports filtering by cuisine, price range, reservation requirements, operating status
+ * at a point in time, city, and distance from a point.
  */
 @Service
 public class RestaurantSearchService {
 
-  private final MongoTemplate mongoTemplate;
+  private static final ZoneId NZ = ZoneId.of("Pacific/Auckland");
+
+  /** Documents per cursor round trip when streaming the catalog. */
+  private static final int STREAM_BATCH_SIZE = 200;
+
+  /** Mean Earth radius, for distances computed outside MongoDB. */
+  private static final double EARTH_RADIUS_KM = 6371.0088;
+
+  /** Output field of {@code $geoNear}, in kilometres. */
+  private static final String DISTANCE_FIELD = "distance";
+
+  /** How far before a distance cursor the {@code $geoNear} seek starts (one millimetre). */
+  private static final double SEEK_SLACK_KM = 1e-6;
 
-  public RestaurantSearchService(MongoTemplate mongoTemplate) {
+  /**
+   * Most text-index matches sent to MongoDB in one {@code _id $in}; broader matches are sent in
+   * chunks of this size.
+   */
+  static final int MAX_TEXT_IDS = 1000;
+
+  private final MongoTemplate mongoTemplate;
+  private final RestaurantTextIndex textIndex;
+  private final RestaurantTagIndex tagIndex;
+  private final VotingQueryService votingQueryService;
+
+  public RestaurantSearchService(
+      MongoTemplate mongoTemplate,
+      RestaurantTextIndex textIndex,
+      RestaurantTagIndex tagIndex,
+      VotingQueryService votingQueryService) {
     this.mongoTemplate = mongoTemplate;
+    this.textIndex = textIndex;
+    this.tagIndex = tagIndex;
+    this.votingQueryService = votingQueryService;
   }
 
   /**
-   * Performs complex filtering of restaurants using both MongoDB queries and in-memory processing.
-   * Builds a dynamic MongoDB query for static criteria (cuisine, price, reservation, city) and
-   * applies post-processing for time-based filtering (openNow).
+   * Performs complex filtering of restaurants with a single dynamic MongoDB query covering text,
+   * cuisine, price, reservation, city and opening-hours criteria, returned one keyset page at a
+   * time in ID order.
    *
    * <p>Price range is automatically normalized if min > max. City matching is case-insensitive and
-   * exact (no partial matches). Time-based filtering uses New Zealand timezone for all calculations.
+   * exact (no partial matches). Opening hours are matched against the indexed {@code
+   * open_intervals} field in New Zealand local time. When the filter has a {@code near} point, each
+   * result carries its distance from it. A text query matching more than {@value #MAX_TEXT_IDS}
+   * restaurants is applied in chunks of its sorted matches, see {@link #pageWithin}.
    *
-   * @param cuisine Case-insensitive partial match for cuisine type
-   * @param priceMin Lower bound for price level (inclusive)
-   * @param priceMax Upper bound for price level (inclusive)
-   * @param reservation Filter for reservation requirement
-   * @param openNow Filter for currently operating restaurants
-   * @param cities List of cities to match (case-insensitive, exact match)
-   * @return Filtered list of restaurants matching all criteria
+   * @param filter The criteria to apply; null components are ignored
+   * @param cursor Token from the previous page, or null for the first page
+   * @param limit Requested page size, see {@link Keyset#pageSize}
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return One page of restaurants matching all criteria
    */
-  public List<Restaurant> filter(
-      String cuisine,
-      Integer priceMin,
-      Integer priceMax,
-      Boolean reservation,
-      Boolean openNow,
-      List<String> cities) {
+  public CursorPage<RestaurantSummary> filter(
+      RestaurantFilter filter,
+      String cursor,
+      Integer limit,
+      String userId,
+      RestaurantFields fields) {
+    NavigableSet<String> textIds = textMatches(filter);
+    Criteria criteria = buildFilterCriteria(filter, textIds);
+    int pageSize = Keyset.pageSize(limit);
+    CursorPage<Restaurant> page =
+        isBroad(textIds)
+            ? pageWithin(textIds, criteria, cursor, pageSize, fields)
+            : Keyset.page(
+                mongoTemplate,
+                RestaurantProjection.summary(new Query(criteria), fields),
+                cursor,
+                pageSize);
+    Map<String, Vote.Direction> votes = votesOf(page.items(), userId, fields);
+    return page.map(r -> summarize(r, votes.get(r.getId()), filter.near()));
+  }
 
-    Query query = buildFilterQuery(cuisine, priceMin, priceMax, reservation, cities);
-    List<Restaurant> results = mongoTemplate.find(query, Restaurant.class);
+  /**
+   * Like {@link #filter}, but ordered nearest first from {@code filter.near()}. Uses a {@code
+   * $geoNear} stage on the 2dsphere {@code location} index with the remaining criteria as its
+   * query, so only matching restaurants within {@code radiusKm} are considered. Paged by
+   * (distance, ID): the cursor seeks with {@code minDistance} rather than skipping, and ties at
+   * equal distance are broken by ID so no restaurant is repeated or skipped across pages. A text
+   * query matching more than {@value #MAX_TEXT_IDS} restaurants is not sent to {@code $geoNear};
+   * the other criteria are ranked in batches instead and the text matches kept from each.
+   *
+   * @param filter The criteria to apply; {@code near} is required
+   * @param cursor Token from the previous page, or null for the first page
+   * @param limit Requested page size, see {@link Keyset#pageSize}
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return One page of restaurants matching all criteria, nearest first
+   * @throws IllegalArgumentException if the filter has no {@code near} point
+   */
+  public CursorPage<RestaurantSummary> filterByDistance(
+      RestaurantFilter filter,
+      String cursor,
+      Integer limit,
+      String userId,
+      RestaurantFields fields) {
+    if (filter.near() == null) {
+      throw new IllegalArgumentException("sort=distance requires near");
+    }
+    int pageSize = Keyset.pageSize(limit);
+    NavigableSet<String> textIds = textMatches(filter);
+    Criteria criteria = and(attributeCriteria(filter, textIds));
+
+    Double afterDistance = null;
+    String afterId = null;
+    String after = CursorPage.decodeCursor(cursor);
+    if (after != null) {
+      int split = after.lastIndexOf('|');
+      try {
+        afterDistance = Double.parseDouble(after.substring(0, Math.max(split, 0)));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+      afterId = after.substring(split + 1);
+    }
+
+    // Rank IDs by distance first, then load just this page with the usual summary projection
+    Map<String, Double> distances;
+    if (!isBroad(textIds)) {
+      distances = rankByDistance(filter, criteria, afterDistance, afterId, pageSize + 1);
+    } else {
+      distances = new LinkedHashMap<>();
+      while (distances.size() <= pageSize) {
+        Map<String, Double> batch =
+            rankByDistance(filter, criteria, afterDistance, afterId, MAX_TEXT_IDS);
+        for (Map.Entry<String, Double> ranked : batch.entrySet()) {
+          if (distances.size() <= pageSize && textIds.contains(ranked.getKey())) {
+            distances.put(ranked.getKey(), ranked.getValue());
+          }
+          afterId = ranked.getKey();
+          afterDistance = ranked.getValue();
+        }
+        if (batch.size() < MAX_TEXT_IDS) break;
+      }
+    }
+    if (distances.isEmpty()) {
+      return new CursorPage<>(List.of(), null);
+    }
+    Query byIds = new Query(Criteria.where("id").in(distances.keySet()));
+    Map<String, Restaurant> byId = new HashMap<>();
+    for (Restaurant r :
+        mongoTemplate.find(RestaurantProjection.summary(byIds, fields), Restaurant.class)) {
+      byId.put(r.getId(), r);
+    }
+    Map<String, Vote.Direction> votes = votesOf(byId.values(), userId, fields);
+
+    List<RestaurantSummary> items = new ArrayList<>();
+    String lastId = null;
+    for (Map.Entry<String, Double> ranked : distances.entrySet()) {
+      if (items.size() == pageSize) {
+        return new CursorPage<>(
+            items, CursorPage.encodeCursor(distances.get(lastId) + "|" + lastId));
+      }
+      Restaurant r = byId.get(ranked.getKey());
+      if (r != null) {
+        items.add(
+            RestaurantSummary.from(r, votes.get(r.getId())).withDistanceKm(ranked.getValue()));
+      }
+      lastId = ranked.getKey();
+    }
+    return new CursorPage<>(items, null);
+  }
 
-    if (Boolean.TRUE.equals(openNow)) {
-      results = filterByOpenStatus(results);
+  /**
+   * Ranks the restaurants matching {@code criteria} by distance from {@code filter.near()} with a
+   * {@code $geoNear} stage on the 2dsphere {@code location} index, within {@code radiusKm} if
+   * given.
+   *
+   * @param afterDistance with {@code afterId}, the (distance, ID) to resume strictly after; null
+   *     to start from the nearest
+   * @return up to {@code limit} restaurant IDs and their distances in km, nearest first
+   */
+  private Map<String, Double> rankByDistance(
+      RestaurantFilter filter,
+      Criteria criteria,
+      Double afterDistance,
+      String afterId,
+      int limit) {
+    NearQuery near =
+        NearQuery.near(new GeoJsonPoint(filter.near()), Metrics.KILOMETERS)
+            .spherical(true)
+            .query(new Query(criteria));
+    if (filter.radiusKm() != null) {
+      near.maxDistance(filter.radiusKm());
+    }
+    List<AggregationOperation> stages = new ArrayList<>();
+    stages.add(Aggregation.geoNear(near, DISTANCE_FIELD));
+    if (afterDistance != null) {
+      // Seek on the index just short of the cursor (km -> m conversion is not exact), then
+      // resume strictly after (distance, ID)
+      near.minDistance(Math.max(0, afterDistance - SEEK_SLACK_KM));
+      stages.add(
+          Aggregation.match(
+              new Criteria()
+                  .orOperator(
+                      Criteria.where(DISTANCE_FIELD).gt(afterDistance),
+                      Criteria.where(DISTANCE_FIELD).is(afterDistance).and("id").gt(afterId))));
+    }
+    stages.add(Aggregation.project(DISTANCE_FIELD));
+    stages.add(Aggregation.sort(Sort.by(DISTANCE_FIELD, "_id")));
+    stages.add(Aggregation.limit(limit));
+
+    Map<String, Double> distances = new LinkedHashMap<>();
+    for (Document row :
+        mongoTemplate
+            .aggregate(Aggregation.newAggregation(stages), Restaurant.class, Document.class)
+            .getMappedResults()) {
+      distances.put(row.get("_id").toString(), ((Number) row.get(DISTANCE_FIELD)).doubleValue());
     }
+    return distances;
+  }
 
-    return results;
+  /**
+   * Opens a MongoDB cursor over every restaurant matching {@code filter}, in ID order. Documents are
+   * fetched in batches as the stream is consumed, so memory stays flat however large the result.
+   * A text query matching more than {@value #MAX_TEXT_IDS} restaurants opens one cursor per chunk
+   * of its sorted matches, each as the previous one is used up. The caller must close the stream
+   * to release the cursor.
+   *
+   * @param filter The criteria to apply; null components are ignored
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return A lazily populated stream of matching restaurants
+   */
+  public Stream<RestaurantSummary> stream(
+      RestaurantFilter filter, String userId, RestaurantFields fields) {
+    NavigableSet<String> textIds = textMatches(filter);
+    Criteria criteria = buildFilterCriteria(filter, textIds);
+    // All of the caller's votes up front: one query instead of one per batch
+    Map<String, Vote.Direction> votes = votingQueryService.votesOf(userId, fields);
+    Stream<Restaurant> restaurants;
+    if (isBroad(textIds)) {
+      Iterator<String> rest = textIds.iterator();
+      restaurants =
+          Stream.generate(() -> nextChunk(rest))
+              .takeWhile(chunk -> !chunk.isEmpty())
+              .flatMap(chunk -> streamOf(within(criteria, chunk, fields)));
+    } else {
+      restaurants = streamOf(RestaurantProjection.summary(new Query(criteria), fields));
+    }
+    return restaurants.map(r -> summarize(r, votes.get(r.getId()), filter.near()));
   }
 
-  // -------------------- Tag filters (in-memory over an existing list) --------------------
+  /**
+   * Fetches restaurants by tags, one keyset page at a time in ID order. Both lists apply together:
+   * a restaurant must carry at least one {@code any} tag and every {@code all} tag. Resolved on the
+   * {@link RestaurantTagIndex} bitsets, case-insensitively; until the index has loaded, matched
+   * exactly in the database.
+   *
+   * @param any Tags of which at least one must be present
+   * @param all Tags which must all be present
+   * @param cursor Token from the previous page, or null for the first page
+   * @param limit Requested page size, see {@link Keyset#pageSize}
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   */
+  public CursorPage<RestaurantSummary> findByTags(
+      List<String> any,
+      List<String> all,
+      String cursor,
+      Integer limit,
+      String userId,
+      RestaurantFields fields) {
+    boolean hasAny = any != null && !any.isEmpty();
+    boolean hasAll = all != null && !all.isEmpty();
+    int pageSize = Keyset.pageSize(limit);
+    CursorPage<Restaurant> page;
+    if ((hasAny || hasAll) && tagIndex.isReady()) {
+      List<String> pageIds = tagIndex.seek(any, all, cursor, pageSize);
+      Query byIds =
+          RestaurantProjection.summary(new Query(Criteria.where("id").in(pageIds)), fields);
+      page =
+          pageIds.isEmpty()
+              ? new CursorPage<>(List.of(), null)
+              : Keyset.page(mongoTemplate, byIds, null, pageSize);
+    } else {
+      List<Criteria> ands = new ArrayList<>();
+      if (hasAny) ands.add(Criteria.where("tags").in(any));
+      if (hasAll) ands.add(Criteria.where("tags").all(all));
+      Query query = RestaurantProjection.summary(new Query(and(ands)), fields);
+      page = Keyset.page(mongoTemplate, query, cursor, pageSize);
+    }
+    Map<String, Vote.Direction> votes = votesOf(page.items(), userId, fields);
+    return page.map(r -> RestaurantSummary.from(r, votes.get(r.getId())));
+  }
 
   /**
-   * Keep restaurants that have ANY of the provided tags (case-insensitive).
-   * Operates in-memory on the given base list to allow composition with other filters.
+   * Counts the restaurants matching {@code filter} per cuisine, price level, city, tag and
+   * reservation requirement. All facets are computed server-side in one {@code $facet} aggregation
+   * over the same criteria as {@link #filter}, so the UI can render its filter chips from a single
+   * round trip. A text query matching more than {@value #MAX_TEXT_IDS} restaurants is counted
+   * per chunk of its sorted matches and the counts summed.
+   *
+   * @param filter The criteria to apply; null components are ignored
+   * @return The total match count and the per-value counts of each facet
    */
-  public List<Restaurant> filterByTagsAny(List<Restaurant> base, List<String> tagsAny) {
-    if (base == null || base.isEmpty() || tagsAny == null || tagsAny.isEmpty()) return base;
+  public RestaurantFacets facets(RestaurantFilter filter) {
+    NavigableSet<String> textIds = textMatches(filter);
+    Criteria criteria = buildFilterCriteria(filter, textIds);
+    List<Document> results = new ArrayList<>();
+    if (!isBroad(textIds)) {
+      results.add(facetResult(criteria));
+    } else {
+      Iterator<String> rest = textIds.iterator();
+      while (rest.hasNext()) {
+        results.add(
+            facetResult(
+                new Criteria().andOperator(criteria, Criteria.where("id").in(nextChunk(rest)))));
+      }
+    }
 
-    final Set<String> needles =
-        tagsAny.stream()
-            .filter(s -> s != null && !s.isBlank())
-            .map(s -> s.toLowerCase(Locale.ROOT))
-            .collect(java.util.stream.Collectors.toSet());
+    long total = 0;
+    for (Document result : results) {
+      List<Document> count = result.getList("total", Document.class, List.of());
+      if (!count.isEmpty()) total += ((Number) count.get(0).get("count")).longValue();
+    }
+    return new RestaurantFacets(
+        total,
+        facetCounts(results, "cuisine"),
+        facetCounts(results, "priceLevel"),
+        facetCounts(results, "city"),
+        facetCounts(results, "tags"),
+        facetCounts(results, "reservation"));
+  }
 
-    return base.stream()
-        .filter(r -> {
-          var tags = r.getTags();
-          if (tags == null || tags.isEmpty()) return false;
-          for (String t : tags) {
-            if (t != null && needles.contains(t.toLowerCase(Locale.ROOT))) return true;
-          }
-          return false;
-        })
-        .toList();
+  /** Runs the {@code $facet} aggregation of {@link #facets} over the matches of criteria. */
+  private Document facetResult(Criteria criteria) {
+    Aggregation aggregation =
+        Aggregation.newAggregation(
+            Aggregation.match(criteria),
+            Aggregation.facet(Aggregation.count().as("count"))
+                .as("total")
+                .and(countBy("cuisine"))
+                .as("cuisine")
+                .and(countBy("priceLevel"))
+                .as("priceLevel")
+                .and(countBy("address.city"))
+                .as("city")
+                .and(countBy("tags", tagKeys()))
+                .as("tags")
+                .and(countBy("reservationRequired"))
+                .as("reservation"));
+    Document result =
+        mongoTemplate
+            .aggregate(aggregation, Restaurant.class, Document.class)
+            .getUniqueMappedResult();
+    return result != null ? result : new Document();
   }
 
   /**
-   * Keep restaurants that have ALL of the provided tags (case-insensitive).
-   * Operates in-memory on the given base list to allow composition with other filters.
+   * Parses a {@code near} parameter of the form {@code lat,lng} in decimal degrees.
+   *
+   * @return the point as (longitude, latitude), or null if {@code value} is blank
+   * @throws IllegalArgumentException if the value is malformed or out of range
    */
-  public List<Restaurant> filterByTagsAll(List<Restaurant> base, List<String> tagsAll) {
-    if (base == null || base.isEmpty() || tagsAll == null || tagsAll.isEmpty()) return base;
+  public static Point parseNear(String value) {
+    if (value == null || value.isBlank()) return null;
+    String[] parts = value.split(",");
+    try {
+      if (parts.length == 2) {
+        double lat = Double.parseDouble(parts[0].trim());
+        double lng = Double.parseDouble(parts[1].trim());
+        if (Math.abs(lat) <= 90 && Math.abs(lng) <= 180) {
+          return new Point(lng, lat);
+        }
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("near must be 'lat,lng' in decimal degrees, got: " + value);
+  }
 
-    final Set<String> needles =
-        tagsAll.stream()
-            .filter(s -> s != null && !s.isBlank())
-            .map(s -> s.toLowerCase(Locale.ROOT))
-            .collect(java.util.stream.Collectors.toSet());
+  /** Great-circle distance in kilometres, or null if either point is unknown. */
+  static Double distanceKm(Point from, Point to) {
+    if (from == null || to == null) return null;
+    double lat1 = Math.toRadians(from.getY());
+    double lat2 = Math.toRadians(to.getY());
+    double dLat = lat2 - lat1;
+    double dLng = Math.toRadians(to.getX() - from.getX());
+    double h =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+  }
+
+  /** @return the current time in New Zealand, the timezone all opening hours are expressed in */
+  public static ZonedDateTime now() {
+    return ZonedDateTime.now(NZ);
+  }
 
-    return base.stream()
-        .filter(r -> {
-          var tags = r.getTags();
-          if (tags == null || tags.isEmpty()) return false;
-          // Build a lowercase set of the restaurant's tags
-          var tagSet = tags.stream()
-              .filter(t -> t != null && !t.isBlank())
-              .map(t -> t.toLowerCase(Locale.ROOT))
-              .collect(java.util.stream.Collectors.toSet());
-          return tagSet.containsAll(needles);
-        })
-        .toList();
+  /**
+   * Interprets an ISO-8601 date-time as an instant in New Zealand time. A value with an offset
+   * (e.g. {@code 2025-06-06T19:00+12:00}) is converted; a local value is taken as NZ local time.
+   *
+   * @throws IllegalArgumentException if the value is not an ISO date-time
+   */
+  public static ZonedDateTime parseOpenAt(String value) {
+    try {
+      return OffsetDateTime.parse(value).atZoneSameInstant(NZ);
+    } catch (DateTimeParseException withoutOffset) {
+      try {
+        return LocalDateTime.parse(value).atZone(NZ);
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("openAt must be an ISO date-time, got: " + value);
+      }
+    }
   }
 
   // -------------------- Query building helpers --------------------
 
-  /** Builds MongoDB query based on filter criteria. */
-  private Query buildFilterQuery(
-      String cuisine,
-      Integer priceMin,
-      Integer priceMax,
-      Boolean reservation,
-      List<String> cities) {
+  /**
+   * The {@link RestaurantTextIndex} matches of the filter's text query, sorted by ID.
+   *
+   * @return the matches, or null if the filter has no text query or the index has not loaded yet
+   */
+  NavigableSet<String> textMatches(RestaurantFilter filter) {
+    String text = filter.query();
+    if (text == null || text.isBlank() || !textIndex.isReady()) return null;
+    return textIndex.search(text);
+  }
+
+  /**
+   * Combines every specified filter component into one criteria; empty when none are given.
+   *
+   * @param textIds the filter's {@link #textMatches}; when more than {@value #MAX_TEXT_IDS}, they
+   *     are left out and must be applied by the caller
+   */
+  Criteria buildFilterCriteria(RestaurantFilter filter, NavigableSet<String> textIds) {
+    List<Criteria> ands = attributeCriteria(filter, textIds);
+    addRadiusCriteria(ands, filter.near(), filter.radiusKm());
+    return and(ands);
+  }
+
+  /** Criteria for every filter component except distance from {@code near}. */
+  private List<Criteria> attributeCriteria(RestaurantFilter filter, NavigableSet<String> textIds) {
     List<Criteria> ands = new ArrayList<>();
 
-    addCuisineCriteria(ands, cuisine);
-    addPriceCriteria(ands, priceMin, priceMax);
-    addReservationCriteria(ands, reservation);
-    addCityCriteria(ands, cities);
+    addTextCriteria(ands, filter.query(), textIds);
+    addCuisineCriteria(ands, filter.cuisine());
+    addPriceCriteria(ands, filter.priceMin(), filter.priceMax());
+    addReservationCriteria(ands, filter.reservation());
+    addOpenAtCriteria(ands, filter.openAt());
+    addCityCriteria(ands, filter.cities());
+    return ands;
+  }
+
+  private static Criteria and(List<Criteria> ands) {
+    return ands.isEmpty()
+        ? new Criteria()
+        : new Criteria().andOperator(ands.toArray(Criteria[]::new));
+  }
+
+  /** Whether text matches are too many for one {@code $in}, so are applied in chunks. */
+  private static boolean isBroad(NavigableSet<String> textIds) {
+    return textIds != null && textIds.size() > MAX_TEXT_IDS;
+  }
+
+  /**
+   * Keyset page of the restaurants in {@code ids} that also match {@code criteria}, for text
+   * matches too many for one {@code $in}. Walks the sorted IDs from the cursor and sends them in
+   * chunks of {@value #MAX_TEXT_IDS}, each as an {@code _id $in} next to the other criteria, until
+   * the page is full; the text match is the same as for a narrower query.
+   */
+  private CursorPage<Restaurant> pageWithin(
+      NavigableSet<String> ids,
+      Criteria criteria,
+      String cursor,
+      int pageSize,
+      RestaurantFields fields) {
+    String after = CursorPage.decodeCursor(cursor);
+    Iterator<String> rest = (after != null ? ids.tailSet(after, false) : ids).iterator();
+    List<Restaurant> rows = new ArrayList<>();
+    while (rows.size() <= pageSize && rest.hasNext()) {
+      Query chunk = within(criteria, nextChunk(rest), fields);
+      chunk.with(Sort.by(Sort.Direction.ASC, "id")).limit(pageSize + 1 - rows.size());
+      rows.addAll(mongoTemplate.find(chunk, Restaurant.class));
+    }
+    return Keyset.toPage(rows, pageSize);
+  }
+
+  /** {@code criteria} restricted to the restaurants in {@code ids}, with the summary projection. */
+  private static Query within(Criteria criteria, List<String> ids, RestaurantFields fields) {
+    Query query = new Query(criteria).addCriteria(Criteria.where("id").in(ids));
+    return RestaurantProjection.summary(query, fields);
+  }
 
-    Query query = new Query();
-    if (!ands.isEmpty()) {
-      query.addCriteria(new Criteria().andOperator(ands.toArray(Criteria[]::new)));
+  /** The next {@value #MAX_TEXT_IDS} IDs of {@code ids}, or fewer at its end. */
+  private static List<String> nextChunk(Iterator<String> ids) {
+    List<String> chunk = new ArrayList<>(MAX_TEXT_IDS);
+    while (chunk.size() < MAX_TEXT_IDS && ids.hasNext()) {
+      chunk.add(ids.next());
     }
+    return chunk;
+  }
+
+  /** Opens a cursor over {@code query} in ID order for {@link #stream}. */
+  private Stream<Restaurant> streamOf(Query query) {
+    query.with(Sort.by(Sort.Direction.ASC, "id")).cursorBatchSize(STREAM_BATCH_SIZE);
+    return mongoTemplate.stream(query, Restaurant.class);
+  }
+
+  /** The caller's votes on a page of restaurants. */
+  private Map<String, Vote.Direction> votesOf(
+      Collection<Restaurant> page, String userId, RestaurantFields fields) {
+    return votingQueryService.votesOf(
+        userId, page.stream().map(Restaurant::getId).toList(), fields);
+  }
 
-    return query;
+  /** Builds a summary, with its distance from {@code near} when one was given. */
+  private static RestaurantSummary summarize(Restaurant r, Vote.Direction vote, Point near) {
+    RestaurantSummary summary = RestaurantSummary.from(r, vote);
+    return near == null ? summary : summary.withDistanceKm(distanceKm(near, r.getLocation()));
+  }
+
+  /**
+   * Stages putting each tag of a restaurant on its own document, keyed as {@link
+   * RestaurantTagIndex#normalize} keys it: trimmed, lowercase, blanks dropped. Tag counts then
+   * match what {@link #findByTags} returns for the same tag, whatever its case.
+   */
+  private static AggregationOperation[] tagKeys() {
+    return new AggregationOperation[] {
+      Aggregation.unwind("tags"),
+      Aggregation.match(Criteria.where("tags").regex("\\S")),
+      context ->
+          new Document(
+              "$set",
+              new Document(
+                  "tags",
+                  new Document("$toLower", new Document("$trim", new Document("input", "$tags")))))
+    };
+  }
+
+  /**
+   * Facet sub-pipeline counting documents per value of {@code field}, most common first.
+   *
+   * @param before stages to run first, e.g. an {@code $unwind} for array fields
+   */
+  private static AggregationOperation[] countBy(String field, AggregationOperation... before) {
+    List<AggregationOperation> stages = new ArrayList<>(List.of(before));
+    stages.add(Aggregation.match(Criteria.where(field).ne(null)));
+    stages.add(Aggregation.group(field).count().as("count"));
+    stages.add(Aggregation.sort(Sort.by(Sort.Order.desc("count"), Sort.Order.asc("_id"))));
+    return stages.toArray(AggregationOperation[]::new);
+  }
+
+  /**
+   * Sums a facet's {@code {_id, count}} rows over {@code results} into a value -> count map, most
+   * common first and then by value.
+   */
+  private static Map<String, Integer> facetCounts(List<Document> results, String facet) {
+    Map<String, Integer> summed = new HashMap<>();
+    for (Document result : results) {
+      for (Document row : result.getList(facet, Document.class, List.of())) {
+        summed.merge(
+            String.valueOf(row.get("_id")), ((Number) row.get("count")).intValue(), Integer::sum);
+      }
+    }
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    summed.entrySet().stream()
+        .sorted(
+            Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()))
+        .forEach(e -> counts.put(e.getKey(), e.getValue()));
+    return counts;
+  }
+
+  /**
+   * Adds free-text criteria if specified. Once {@link RestaurantTextIndex} has loaded, the query's
+   * {@code textIds} are sent as an {@code _id $in}, unless there are more than {@value
+   * #MAX_TEXT_IDS}: those are left to the caller to apply in chunks. Until then, matched as a
+   * substring in the database.
+   */
+  private static void addTextCriteria(
+      List<Criteria> ands, String text, NavigableSet<String> textIds) {
+    if (text == null || text.isBlank()) return;
+    if (textIds == null) {
+      ands.add(RestaurantTextIndex.substringCriteria(text));
+    } else if (!isBroad(textIds)) {
+      ands.add(Criteria.where("id").in(textIds));
+    }
   }
 
   /** Adds cuisine filtering criteria if specified. */
@@ -164,6 +653,32 @@ public class RestaurantSearchService {
     }
   }
 
+  /**
+   * Adds an opening-hours criterion if specified: some stored interval must contain the instant's
+   * minute of the week. Served by the compound multikey index on {@code open_intervals}, which
+   * {@link RestaurantMaintenance#ensureRestaurantIndexes} creates.
+   */
+  private void addOpenAtCriteria(List<Criteria> ands, ZonedDateTime openAt) {
+    if (openAt != null) {
+      int minute = OpeningHours.minuteOfWeek(openAt.withZoneSameInstant(NZ));
+      ands.add(
+          Criteria.where("open_intervals")
+              .elemMatch(Criteria.where("start").lte(minute).and("end").gt(minute)));
+    }
+  }
+
+  /**
+   * Adds a radius criterion if both a point and a radius are specified. {@code $geoWithin} does not
+   * sort, so it composes with the ID-ordered keyset paging of {@link #filter}.
+   */
+  private void addRadiusCriteria(List<Criteria> ands, Point near, Double radiusKm) {
+    if (near != null && radiusKm != null) {
+      ands.add(
+          Criteria.where("location")
+              .withinSphere(new Circle(near, new Distance(radiusKm, Metrics.KILOMETERS))));
+    }
+  }
+
   /** Adds city filtering criteria if specified. */
   private void addCityCriteria(List<Criteria> ands, List<String> cities) {
     if (cities != null && !cities.isEmpty()) {
@@ -180,74 +695,4 @@ public class RestaurantSearchService {
       }
     }
   }
-
-  // -------------------- Open-now logic --------------------
-
-  /** Filters restaurants by current open status using New Zealand timezone. */
-  private List<Restaurant> filterByOpenStatus(List<Restaurant> restaurants) {
-    ZoneId nz = ZoneId.of("Pacific/Auckland");
-    LocalTime now = LocalTime.now(nz);
-    String dayKey = dayKeyNZ(nz);
-
-    return restaurants.stream().filter(r -> isOpenNow(r, dayKey, now)).toList();
-  }
-
-  /** Converts current NZ day to the db hours key. */
-  private static String dayKeyNZ(ZoneId nz) {
-    String[] keys = {"monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"};
-    int idx = java.time.ZonedDateTime.now(nz).getDayOfWeek().getValue();
-    return keys[idx - 1];
-  }
-
-  /**
-   * Determines if a restaurant is currently open based on its operating hours. Handles both regular
-   * time windows (e.g., 09:00-17:00) and overnight windows (e.g., 22:00-02:00). Time comparisons use NZ timezone.
-   */
-  private static boolean isOpenNow(Restaurant r, String dayKey, LocalTime now) {
-    Map<String, String> hours = r.getHours();
-    if (hours == null) return false;
-    String span = hours.get(dayKey);
-    if (span == null || span.isBlank()) return false;
-
-    String[] parts = span.split("-");
-    if (parts.length != 2) return false;
-
-    DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-    try {
-      LocalTime start = LocalTime.parse(parts[0].trim(), fmt);
-      LocalTime end = LocalTime.parse(parts[1].trim(), fmt);
-
-      if (!end.isBefore(start)) {
-        // same-day interval
-        return !now.isBefore(start) && !now.isAfter(end);
-      } else {
-        // overnight interval (e.g., 22:00-02:00)
-        return !now.isBefore(start) || !now.isAfter(end);
-      }
-    } catch (Exception e) {
-      return false;
-    }
-  }
-
-  // -------------------- Text query --------------------
-
-  /**
-   * Filters restaurants by text query across name, description, and cuisine.
-   */
-  public List<Restaurant> filterByTextQuery(List<Restaurant> restaurants, String query) {
-    if (query == null || query.isBlank()) {
-      return restaurants;
-    }
-    String q = query.trim().toLowerCase(Locale.ROOT);
-    return restaurants.stream()
-        .filter(r ->
-            containsIgnoreCase(r.getName(), q) ||
-            containsIgnoreCase(r.getDescription(), q) ||
-            containsIgnoreCase(r.getCuisine(), q))
-        .toList();
-  }
-
-  private static boolean containsIgnoreCase(String s, String needleLower) {
-    return s != null && s.toLowerCase(Locale.ROOT).contains(needleLower);
-  }
 }
@@ -1,9 +1,26 @@
 package com.plateful.backend.service;
 
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.dto.RestaurantDetail;
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantSummary;
 import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
 import com.plateful.backend.repository.RestaurantRepository;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 /**
@@ -14,52 +31,112 @@ import org.springframework.stereotype.Service;
 public class RestaurantService {
 
   private final RestaurantRepository repository;
+  private final MongoTemplate mongoTemplate;
+  private final RestaurantTextIndex textIndex;
+  private final CuisineCatalog cuisineCatalog;
+  private final VotingQueryService votingQueryService;
+  private final TrendingService trendingService;
 
-  public RestaurantService(RestaurantRepository repository) {
+  public RestaurantService(
+      RestaurantRepository repository,
+      MongoTemplate mongoTemplate,
+      RestaurantTextIndex textIndex,
+      CuisineCatalog cuisineCatalog,
+      VotingQueryService votingQueryService,
+      TrendingService trendingService) {
     this.repository = repository;
+    this.mongoTemplate = mongoTemplate;
+    this.textIndex = textIndex;
+    this.cuisineCatalog = cuisineCatalog;
+    this.votingQueryService = votingQueryService;
+    this.trendingService = trendingService;
   }
 
   /**
-   * Retrieves all restaurants from the database.
+   * Retrieves one page of all restaurants, ordered by ID.
    *
-   * @return List of all restaurants
+   * @param cursor Token from the previous page, or null for the first page
+   * @param limit Requested page size, see {@link Keyset#pageSize}
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return The page and the cursor for the next one
    */
-  public List<Restaurant> getAllRestaurants() {
-    return repository.findAll();
+  public CursorPage<RestaurantSummary> getRestaurants(
+      String cursor, Integer limit, String userId, RestaurantFields fields) {
+    Query query = RestaurantProjection.summary(new Query(), fields);
+    CursorPage<Restaurant> page =
+        Keyset.page(mongoTemplate, query, cursor, Keyset.pageSize(limit));
+    return summaries(page, userId, fields);
   }
 
   /**
-   * Retrieves a restaurant by its ID.
+   * Retrieves a restaurant's detail view by its ID.
    *
    * @param id The restaurant ID
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The detail properties to read
    * @return Optional containing the restaurant if found
    */
-  public Optional<Restaurant> getRestaurantById(String id) {
-    return repository.findById(id);
+  public Optional<RestaurantDetail> getRestaurantById(
+      String id, String userId, RestaurantFields fields) {
+    Query query = RestaurantProjection.detail(new Query(Criteria.where("id").is(id)), fields);
+    Restaurant r = mongoTemplate.findOne(query, Restaurant.class);
+    if (r == null) return Optional.empty();
+    Vote.Direction vote = votingQueryService.votesOf(userId, List.of(id), fields).get(id);
+    return Optional.of(RestaurantDetail.from(r, vote));
   }
 
   /**
-   * Performs a basic search across restaurant name, description, and cuisine.
+   * Performs a basic search across restaurant name, description, cuisine and tags. Resolved through
+   * the in-memory {@link RestaurantTextIndex} (every word must prefix-match a token); until the
+   * index has loaded, falls back to a case-insensitive substring query against the database.
    *
    * @param query The search term to match against multiple fields
-   * @return List of restaurants matching the search criteria
+   * @param cursor Token from the previous page, or null for the first page
+   * @param limit Requested page size, see {@link Keyset#pageSize}
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return One page of matching restaurants, ordered by ID
    */
-  public List<Restaurant> searchRestaurants(String query) {
+  public CursorPage<RestaurantSummary> searchRestaurants(
+      String query, String cursor, Integer limit, String userId, RestaurantFields fields) {
     if (query == null || query.trim().isEmpty()) {
-      return repository.findAll();
+      return getRestaurants(cursor, limit, userId, fields);
     }
-    return repository
-        .findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseOrCuisineContainingIgnoreCase(
-            query, query, query);
+    int pageSize = Keyset.pageSize(limit);
+    CursorPage<Restaurant> page;
+    if (textIndex.isReady()) {
+      // Seek and trim on the sorted posting list so Mongo only fetches this page's documents
+      List<String> pageIds = Keyset.seek(textIndex.search(query), cursor, pageSize);
+      Query byIds =
+          RestaurantProjection.summary(new Query(Criteria.where("id").in(pageIds)), fields);
+      page =
+          pageIds.isEmpty()
+              ? new CursorPage<>(List.of(), null)
+              : Keyset.page(mongoTemplate, byIds, null, pageSize);
+    } else {
+      Query bySubstring = new Query(RestaurantTextIndex.substringCriteria(query));
+      page =
+          Keyset.page(
+              mongoTemplate,
+              RestaurantProjection.summary(bySubstring, fields),
+              cursor,
+              pageSize);
+    }
+    return summaries(page, userId, fields);
   }
 
   /**
    * Retrieves a unique, sorted list of all available cuisine types in the system. Filters out null
-   * or empty cuisine values for data consistency.
+   * or empty cuisine values for data consistency. Served from the in-memory {@link CuisineCatalog};
+   * until it has loaded, falls back to scanning the cuisine of every restaurant.
    *
    * @return Alphabetically sorted list of unique cuisine types
    */
   public List<String> getAllCuisines() {
+    if (cuisineCatalog.isReady()) {
+      return cuisineCatalog.snapshot().cuisines();
+    }
     return repository.findAllCuisines().stream()
         .map(Restaurant::getCuisine)
         .filter(cuisine -> cuisine != null && !cuisine.trim().isEmpty())
@@ -67,4 +144,88 @@ public class RestaurantService {
         .sorted()
         .toList();
   }
+
+  /**
+   * Counts restaurants per cuisine. Served from the in-memory {@link CuisineCatalog}; until it has
+   * loaded, computed with a {@code $group} aggregation.
+   *
+   * @return Cuisine -> number of restaurants, in alphabetical order of cuisine
+   */
+  public SortedMap<String, Integer> getCuisineCounts() {
+    if (cuisineCatalog.isReady()) {
+      return cuisineCatalog.snapshot().counts();
+    }
+    Aggregation aggregation =
+        Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("cuisine").exists(true)),
+            Aggregation.group("cuisine").count().as("count"));
+    SortedMap<String, Integer> counts = new TreeMap<>();
+    for (Document row :
+        mongoTemplate.aggregate(aggregation, Restaurant.class, Document.class).getMappedResults()) {
+      Object cuisine = row.get("_id");
+      if (cuisine instanceof String c && CuisineCatalog.normalize(c) != null) {
+        counts.put(c, row.getInteger("count"));
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Version of the {@link CuisineCatalog} that {@link #getAllCuisines} and {@link
+   * #getCuisineCounts} are served from. Read it before the data, which is then at least that new.
+   *
+   * @return the catalog version, or empty until the catalog has loaded
+   */
+  public OptionalLong getCuisineCatalogVersion() {
+    return cuisineCatalog.isReady()
+        ? OptionalLong.of(cuisineCatalog.snapshot().version())
+        : OptionalLong.empty();
+  }
+
+  /**
+   * Retrieves the restaurants trending over a recent window, most trending first.
+   *
+   * @param window How far back votes count, e.g. 24 hours; see {@link TrendingService}
+   * @param limit Requested number of restaurants; clamped to a server-side maximum
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return The ranked restaurants; deleted ones are left out
+   */
+  public List<RestaurantSummary> getTrending(
+      Duration window, Integer limit, String userId, RestaurantFields fields) {
+    return getSummaries(trendingService.trending(window, limit), userId, fields);
+  }
+
+  /**
+   * Retrieves summaries of the given restaurants with one query, plus one for the caller's votes.
+   *
+   * @param ids The restaurants to read, in the order they are returned
+   * @param userId The caller, used for their vote flags; null when anonymous
+   * @param fields The summary properties to read
+   * @return The summaries in the order of {@code ids}; deleted restaurants are left out
+   */
+  public List<RestaurantSummary> getSummaries(
+      List<String> ids, String userId, RestaurantFields fields) {
+    if (ids.isEmpty()) return List.of();
+    Query query = RestaurantProjection.summary(new Query(Criteria.where("id").in(ids)), fields);
+    Map<String, Restaurant> byId = new HashMap<>();
+    for (Restaurant r : mongoTemplate.find(query, Restaurant.class)) {
+      byId.put(r.getId(), r);
+    }
+    Map<String, Vote.Direction> votes = votingQueryService.votesOf(userId, byId.keySet(), fields);
+    return ids.stream()
+        .map(byId::get)
+        .filter(Objects::nonNull)
+        .map(r -> RestaurantSummary.from(r, votes.get(r.getId())))
+        .toList();
+  }
+
+  /** Builds summaries for a page of restaurants, with the caller's votes fetched in one query. */
+  private CursorPage<RestaurantSummary> summaries(
+      CursorPage<Restaurant> page, String userId, RestaurantFields fields) {
+    Map<String, Vote.Direction> votes =
+        votingQueryService.votesOf(
+            userId, page.items().stream().map(Restaurant::getId).toList(), fields);
+    return page.map(r -> RestaurantSummary.from(r, votes.get(r.getId())));
+  }
 }
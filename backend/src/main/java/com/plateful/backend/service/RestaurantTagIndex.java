@@ -0,0 +1,226 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.model.Restaurant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dictionary-encoded tag index. Every distinct tag (case-insensitive) is interned once and given a
+ * dense integer ID, and every restaurant a dense ordinal. Each tag keeps a bitset of the ordinals
+ * carrying it, and each restaurant a bitset of its tag IDs, so ANY is an OR and ALL an AND of a
+ * few catalog-wide bitsets; no tag strings are touched per request.
+ *
+ * <p>Loaded once the application is ready and then kept current by {@link
+ * RestaurantWriteListener}. Ordinals of deleted restaurants are not reused, which keeps updates
+ * cheap at the cost of a few cleared bits.
+ */
+@Component
+public class RestaurantTagIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(RestaurantTagIndex.class);
+
+  /** Below one match in this many restaurants, matches are sorted rather than walked. */
+  static final int SPARSE_RATIO = 16;
+
+  private final MongoTemplate mongoTemplate;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** lowercase tag -> tag ID. */
+  private final Map<String, Integer> tagIds = new HashMap<>();
+
+  /** tag ID -> ordinals of the restaurants carrying the tag. */
+  private final List<BitSet> restaurantsByTag = new ArrayList<>();
+
+  /** restaurant ID -> ordinal, in ID order so pages can be walked from a cursor. */
+  private final NavigableMap<String, Integer> ordinals = new TreeMap<>();
+
+  /** ordinal -> restaurant ID; null once the restaurant is deleted. */
+  private final List<String> idsByOrdinal = new ArrayList<>();
+
+  /** ordinal -> tag IDs of the restaurant, so updates can retract stale bits. */
+  private final List<BitSet> tagsByOrdinal = new ArrayList<>();
+
+  private volatile boolean ready;
+
+  public RestaurantTagIndex(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /** Loads every restaurant's tags once the application context is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Query query = new Query();
+    query.fields().include("tags");
+    try (Stream<Restaurant> stream = mongoTemplate.stream(query, Restaurant.class)) {
+      stream.forEach(this::index);
+      ready = true;
+      log.info(
+          "Restaurant tag index built: {} restaurants, {} tags", ordinals.size(), tagIds.size());
+    } catch (RuntimeException e) {
+      log.error("Could not build restaurant tag index; falling back to database queries", e);
+    }
+  }
+
+  /** @return true once the initial load has completed and matches are authoritative */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** Adds or replaces the tags of a restaurant. */
+  public void index(Restaurant restaurant) {
+    if (restaurant == null || restaurant.getId() == null) return;
+    lock.writeLock().lock();
+    try {
+      int ordinal =
+          ordinals.computeIfAbsent(
+              restaurant.getId(),
+              id -> {
+                idsByOrdinal.add(id);
+                tagsByOrdinal.add(new BitSet());
+                return idsByOrdinal.size() - 1;
+              });
+
+      BitSet current = new BitSet();
+      if (restaurant.getTags() != null) {
+        for (String tag : restaurant.getTags()) {
+          String key = normalize(tag);
+          if (key == null) continue;
+          int tagId =
+              tagIds.computeIfAbsent(
+                  key,
+                  k -> {
+                    restaurantsByTag.add(new BitSet());
+                    return restaurantsByTag.size() - 1;
+                  });
+          current.set(tagId);
+        }
+      }
+
+      BitSet previous = tagsByOrdinal.get(ordinal);
+      previous.stream().forEach(tagId -> restaurantsByTag.get(tagId).clear(ordinal));
+      current.stream().forEach(tagId -> restaurantsByTag.get(tagId).set(ordinal));
+      tagsByOrdinal.set(ordinal, current);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Drops a restaurant from every tag it carried. */
+  public void remove(String id) {
+    if (id == null) return;
+    lock.writeLock().lock();
+    try {
+      Integer ordinal = ordinals.remove(id);
+      if (ordinal == null) return;
+      tagsByOrdinal
+          .get(ordinal)
+          .stream()
+          .forEach(tagId -> restaurantsByTag.get(tagId).clear(ordinal));
+      tagsByOrdinal.set(ordinal, new BitSet());
+      idsByOrdinal.set(ordinal, null);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Resolves a tag filter to one page of matching restaurant IDs: those carrying at least one of
+   * {@code any} and every one of {@code all}, in ID order after {@code cursor}. Matching is
+   * case-insensitive; blank tags are ignored, and an empty or null list places no constraint.
+   *
+   * <p>The restaurants after the cursor are walked in ID order and the walk stops after {@code
+   * limit + 1} hits, so no list of every match is built. Only when matches are sparse (under one in
+   * {@value #SPARSE_RATIO}) are they collected and sorted instead, which is then the cheaper way.
+   *
+   * @param cursor token from a previous page, or null for the first page
+   * @param limit page size, already clamped
+   * @return at most {@code limit + 1} sorted IDs, ready for {@link Keyset#page}
+   */
+  public List<String> seek(List<String> any, List<String> all, String cursor, int limit) {
+    String after = CursorPage.decodeCursor(cursor);
+    lock.readLock().lock();
+    try {
+      BitSet matches = matches(any, all);
+      if (matches != null && matches.isEmpty()) return List.of();
+
+      if (matches != null && (long) matches.cardinality() * SPARSE_RATIO < ordinals.size()) {
+        NavigableSet<String> ids = new TreeSet<>();
+        matches.stream().forEach(ordinal -> ids.add(idsByOrdinal.get(ordinal)));
+        NavigableSet<String> page = after != null ? ids.tailSet(after, false) : ids;
+        return page.stream().limit(limit + 1L).toList();
+      }
+
+      NavigableMap<String, Integer> rest =
+          after != null ? ordinals.tailMap(after, false) : ordinals;
+      List<String> page = new ArrayList<>();
+      for (Map.Entry<String, Integer> entry : rest.entrySet()) {
+        if (matches != null && !matches.get(entry.getValue())) continue;
+        page.add(entry.getKey());
+        if (page.size() > limit) break;
+      }
+      return page;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The ordinals carrying at least one of {@code any} and every one of {@code all}. Must hold the
+   * read lock.
+   *
+   * @return the matching ordinals, or null if neither list has a tag
+   */
+  private BitSet matches(List<String> any, List<String> all) {
+    BitSet result = null;
+
+    List<String> anyKeys = normalize(any);
+    if (!anyKeys.isEmpty()) {
+      result = new BitSet();
+      for (String key : anyKeys) {
+        Integer tagId = tagIds.get(key);
+        if (tagId != null) result.or(restaurantsByTag.get(tagId));
+      }
+    }
+
+    for (String key : normalize(all)) {
+      Integer tagId = tagIds.get(key);
+      if (tagId == null) return new BitSet();
+      if (result == null) {
+        result = (BitSet) restaurantsByTag.get(tagId).clone();
+      } else {
+        result.and(restaurantsByTag.get(tagId));
+      }
+      if (result.isEmpty()) break;
+    }
+    return result;
+  }
+
+  /** @return the lowercase dictionary key for a tag, or null if it is blank */
+  static String normalize(String tag) {
+    return tag == null || tag.isBlank() ? null : tag.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static List<String> normalize(List<String> tags) {
+    if (tags == null) return List.of();
+    return tags.stream().map(RestaurantTagIndex::normalize).filter(t -> t != null).toList();
+  }
+}
@@ -0,0 +1,245 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index over restaurant name, description, cuisine and tags. Each field is
+ * split into lowercase alphanumeric tokens and every token maps to a sorted posting list of
+ * restaurant IDs.
+ *
+ * <p>A query is tokenized the same way; each query token is treated as a prefix and expanded over
+ * the sorted term dictionary, and the resulting posting lists are intersected smallest-first. The
+ * index is loaded once the application is ready and is then kept current by {@link
+ * RestaurantWriteListener} as restaurants are saved or deleted.
+ *
+ * <p>A load builds fresh postings off to the side while writes keep going to the live ones. Writes
+ * made during the load are also remembered and replayed onto the fresh postings, under the writer
+ * lock, just before they replace the live ones, so no write made while loading is lost.
+ */
+@Component
+public class RestaurantTextIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(RestaurantTextIndex.class);
+  private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final MongoTemplate mongoTemplate;
+
+  /** term -> sorted IDs of restaurants containing the term. */
+  private volatile NavigableMap<String, NavigableSet<String>> postings =
+      new ConcurrentSkipListMap<>();
+
+  /** restaurant ID -> terms it was indexed under, so updates can retract stale postings. */
+  private Map<String, Set<String>> docTerms = new ConcurrentHashMap<>();
+
+  /**
+   * restaurant ID -> latest write while a load is running (null value: removed); null otherwise.
+   * Guarded by {@code this}, like {@link #docTerms}.
+   */
+  private Map<String, Restaurant> replay;
+
+  private volatile boolean ready;
+
+  public RestaurantTextIndex(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /** Loads every restaurant's searchable fields once the application context is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    synchronized (this) {
+      replay = new HashMap<>();
+    }
+    NavigableMap<String, NavigableSet<String>> freshPostings = new ConcurrentSkipListMap<>();
+    Map<String, Set<String>> freshDocTerms = new ConcurrentHashMap<>();
+    Query query = new Query();
+    query.fields().include("name", "description", "cuisine", "tags");
+    try (Stream<Restaurant> stream = mongoTemplate.stream(query, Restaurant.class)) {
+      stream.forEach(r -> index(r, freshPostings, freshDocTerms));
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        replay = null;
+      }
+      log.error("Could not build restaurant text index; falling back to database search", e);
+      return;
+    }
+    synchronized (this) {
+      replay.forEach(
+          (id, r) -> {
+            if (r == null) {
+              remove(id, freshPostings, freshDocTerms);
+            } else {
+              index(r, freshPostings, freshDocTerms);
+            }
+          });
+      replay = null;
+      postings = freshPostings;
+      docTerms = freshDocTerms;
+      ready = true;
+    }
+    log.info(
+        "Restaurant text index built: {} restaurants, {} terms",
+        freshDocTerms.size(),
+        freshPostings.size());
+  }
+
+  /** @return true once the initial load has completed and search results are authoritative */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** Adds or replaces the postings for a restaurant. Writers are serialized; readers never block. */
+  public synchronized void index(Restaurant restaurant) {
+    if (restaurant == null || restaurant.getId() == null) return;
+    index(restaurant, postings, docTerms);
+    if (replay != null) replay.put(restaurant.getId(), restaurant);
+  }
+
+  /** Drops a restaurant from every posting list it appears in. */
+  public synchronized void remove(String id) {
+    if (id == null) return;
+    remove(id, postings, docTerms);
+    if (replay != null) replay.put(id, null);
+  }
+
+  private static void index(
+      Restaurant restaurant,
+      NavigableMap<String, NavigableSet<String>> postings,
+      Map<String, Set<String>> docTerms) {
+    String id = restaurant.getId();
+    if (id == null) return;
+
+    Set<String> terms = new HashSet<>();
+    addTokens(terms, restaurant.getName());
+    addTokens(terms, restaurant.getDescription());
+    addTokens(terms, restaurant.getCuisine());
+    if (restaurant.getTags() != null) {
+      restaurant.getTags().forEach(tag -> addTokens(terms, tag));
+    }
+
+    Set<String> previous = docTerms.put(id, terms);
+    if (previous != null) {
+      for (String term : previous) {
+        if (!terms.contains(term)) removePosting(postings, term, id);
+      }
+    }
+    for (String term : terms) {
+      postings.computeIfAbsent(term, t -> new ConcurrentSkipListSet<>()).add(id);
+    }
+  }
+
+  private static void remove(
+      String id,
+      NavigableMap<String, NavigableSet<String>> postings,
+      Map<String, Set<String>> docTerms) {
+    Set<String> previous = docTerms.remove(id);
+    if (previous != null) {
+      previous.forEach(term -> removePosting(postings, term, id));
+    }
+  }
+
+  /**
+   * Resolves a free-text query to the sorted set of matching restaurant IDs. Every query token
+   * must match (AND); each token matches any indexed term it is a prefix of.
+   *
+   * @param query free text as typed by the user
+   * @return sorted matching IDs; empty if the query has no tokens or nothing matches
+   */
+  public NavigableSet<String> search(String query) {
+    List<String> tokens = tokenize(query);
+    if (tokens.isEmpty()) return new TreeSet<>();
+
+    List<Collection<String>> lists = new ArrayList<>(tokens.size());
+    for (String token : tokens) {
+      Collection<String> matches = prefixPostings(token);
+      if (matches.isEmpty()) return new TreeSet<>();
+      lists.add(matches);
+    }
+    lists.sort(Comparator.comparingInt(Collection::size));
+
+    NavigableSet<String> result = new TreeSet<>(lists.get(0));
+    for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+      result.retainAll(lists.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Case-insensitive substring match of the whole query on name, description or cuisine, for use
+   * against the database while the index is not yet loaded.
+   */
+  static Criteria substringCriteria(String query) {
+    String pattern = Pattern.quote(query.trim());
+    return new Criteria()
+        .orOperator(
+            Criteria.where("name").regex(pattern, "i"),
+            Criteria.where("description").regex(pattern, "i"),
+            Criteria.where("cuisine").regex(pattern, "i"));
+  }
+
+  /** Splits text into lowercase alphanumeric tokens, preserving order and dropping duplicates. */
+  static List<String> tokenize(String text) {
+    if (text == null || text.isBlank()) return List.of();
+    List<String> tokens = new ArrayList<>();
+    for (String raw : TOKEN_SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+      if (!raw.isEmpty() && !tokens.contains(raw)) tokens.add(raw);
+    }
+    return tokens;
+  }
+
+  private static void addTokens(Set<String> into, String text) {
+    into.addAll(tokenize(text));
+  }
+
+  /** Union of the posting lists of every term starting with {@code prefix}. */
+  private Collection<String> prefixPostings(String prefix) {
+    NavigableMap<String, NavigableSet<String>> range =
+        postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    Collection<String> single = null;
+    Set<String> union = null;
+    for (NavigableSet<String> ids : range.values()) {
+      if (single == null) {
+        single = ids;
+      } else {
+        if (union == null) union = new HashSet<>(single);
+        union.addAll(ids);
+      }
+    }
+    if (union != null) return union;
+    return single != null ? single : Set.of();
+  }
+
+  private static void removePosting(
+      NavigableMap<String, NavigableSet<String>> postings, String term, String id) {
+    postings.computeIfPresent(
+        term,
+        (t, ids) -> {
+          ids.remove(id);
+          return ids.isEmpty() ? null : ids;
+        });
+  }
+}
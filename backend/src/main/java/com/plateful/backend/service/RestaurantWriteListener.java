@@ -0,0 +1,78 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.repository.VoteRepository;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps derived restaurant fields, the in-memory restaurant indexes and the votes on a restaurant
+ * in step with repository writes. Fires for every {@code save}/{@code delete} that goes through
+ * {@code RestaurantRepository} or {@code MongoTemplate}.
+ */
+@Component
+public class RestaurantWriteListener extends AbstractMongoEventListener<Restaurant> {
+
+  private static final Logger log = LoggerFactory.getLogger(RestaurantWriteListener.class);
+
+  private final RestaurantTextIndex textIndex;
+  private final RestaurantTagIndex tagIndex;
+  private final CuisineCatalog cuisineCatalog;
+  private final VoteRepository voteRepository;
+
+  public RestaurantWriteListener(
+      RestaurantTextIndex textIndex,
+      RestaurantTagIndex tagIndex,
+      CuisineCatalog cuisineCatalog,
+      VoteRepository voteRepository) {
+    this.textIndex = textIndex;
+    this.tagIndex = tagIndex;
+    this.cuisineCatalog = cuisineCatalog;
+    this.voteRepository = voteRepository;
+  }
+
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<Restaurant> event) {
+    Restaurant restaurant = event.getSource();
+    restaurant.setOpenIntervals(openIntervalsOf(restaurant));
+  }
+
+  @Override
+  public void onAfterSave(AfterSaveEvent<Restaurant> event) {
+    textIndex.index(event.getSource());
+    tagIndex.index(event.getSource());
+    cuisineCatalog.update(event.getSource());
+  }
+
+  @Override
+  public void onAfterDelete(AfterDeleteEvent<Restaurant> event) {
+    Object id = event.getSource().get("_id");
+    if (id != null) {
+      textIndex.remove(id.toString());
+      tagIndex.remove(id.toString());
+      cuisineCatalog.remove(id.toString());
+      voteRepository.deleteByRestaurantId(id.toString());
+    }
+  }
+
+  /**
+   * Compiles a restaurant's {@code hours} into the persisted open-interval form. Unparseable hours
+   * are logged here, at write time, rather than on every query.
+   */
+  static List<Restaurant.OpenInterval> openIntervalsOf(Restaurant restaurant) {
+    OpeningHours hours = OpeningHours.compile(restaurant.getHours());
+    if (!hours.problems().isEmpty()) {
+      log.warn(
+          "Ignoring unparseable opening hours for restaurant {}: {}",
+          restaurant.getId(),
+          hours.problems());
+    }
+    return hours.intervals();
+  }
+}
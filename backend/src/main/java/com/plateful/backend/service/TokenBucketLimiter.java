@@ -0,0 +1,91 @@
+package com.plateful.backend.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key token bucket, implemented as the generic cell rate algorithm: each key holds a single
+ * {@link AtomicLong}, the time at which its bucket will next be full, advanced by one refill
+ * interval per accepted request with compare-and-set. Acquiring never locks, and a key whose
+ * bucket is full again carries no state worth keeping, so idle keys are swept out.
+ *
+ * <p>At most {@code maxKeys} keys are tracked. If that many keys are all active, new keys are let
+ * through unlimited until space frees up, rather than evicting a busy key's state.
+ */
+final class TokenBucketLimiter {
+
+  /** How often idle keys are swept out. */
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final long refillNanos;
+  private final long burstNanos;
+  private final int maxKeys;
+  private final LongSupplier nanoClock;
+
+  /** key -> time at which the key's bucket is full again (theoretical arrival time). */
+  private final ConcurrentHashMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextSweep;
+
+  /**
+   * @param capacity requests allowed in a burst
+   * @param refillNanos time to earn back one request
+   * @param maxKeys most keys tracked at once
+   * @param nanoClock monotonic time source, normally {@link System#nanoTime}
+   */
+  TokenBucketLimiter(int capacity, long refillNanos, int maxKeys, LongSupplier nanoClock) {
+    if (capacity < 1 || refillNanos < 1 || maxKeys < 1) {
+      throw new IllegalArgumentException("Rate limit capacity, refill and key bound must be > 0");
+    }
+    this.refillNanos = refillNanos;
+    this.burstNanos = (capacity - 1) * refillNanos;
+    this.maxKeys = maxKeys;
+    this.nanoClock = nanoClock;
+    this.nextSweep = new AtomicLong(nanoClock.getAsLong() + SWEEP_INTERVAL_NANOS);
+  }
+
+  /**
+   * Takes one token from {@code key}'s bucket if it has one.
+   *
+   * @return 0 if the request is allowed, otherwise the nanoseconds until it would be
+   */
+  long tryAcquire(String key) {
+    long now = nanoClock.getAsLong();
+    long sweepAt = nextSweep.get();
+    if (now - sweepAt >= 0 && nextSweep.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+      sweep(now);
+    }
+
+    AtomicLong bucket = fullAt.get(key);
+    if (bucket == null) {
+      if (fullAt.mappingCount() >= maxKeys) {
+        sweep(now);
+        if (fullAt.mappingCount() >= maxKeys) return 0;
+      }
+      bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    while (true) {
+      long current = bucket.get();
+      long start = current - now > 0 ? current : now;
+      long wait = start - now - burstNanos;
+      if (wait > 0) return wait;
+      if (bucket.compareAndSet(current, start + refillNanos)) return 0;
+    }
+  }
+
+  /** @return the number of keys currently tracked */
+  long trackedKeys() {
+    return fullAt.mappingCount();
+  }
+
+  /** Drops every key whose bucket has refilled completely. */
+  private void sweep(long now) {
+    fullAt.forEach(
+        (key, bucket) -> {
+          if (bucket.get() - now <= 0) fullAt.remove(key, bucket);
+        });
+  }
+}
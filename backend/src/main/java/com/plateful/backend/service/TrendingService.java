@@ -0,0 +1,225 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Vote;
+import com.plateful.backend.model.VoteActivity;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * Time-decayed "trending" ranking of restaurants. Every change to a restaurant's vote counters is
+ * also added to its hourly bucket in {@link VoteActivity}; the ranking for a window sums each
+ * restaurant's net votes over the window's buckets, weighting a bucket by half every {@code
+ * app.trending.half-life} of age, so recent votes count for more and old ones fade out.
+ *
+ * <p>Only the buckets inside the window are read (restaurants without recent votes are never
+ * touched), and the top restaurants are kept in a bounded min-heap rather than sorting every
+ * score. Each window's ranking is cached for {@code app.trending.refresh}. An expired ranking is
+ * recomputed by one caller at a time and outside any map lock; meanwhile other callers get the
+ * expired ranking, or wait for the first one of a window.
+ */
+@Service
+public class TrendingService {
+
+  private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+  /** Restaurants returned when the client does not ask for a number. */
+  static final int DEFAULT_LIMIT = 20;
+
+  /** Most restaurants one ranking holds. */
+  static final int MAX_LIMIT = 100;
+
+  static final Duration DEFAULT_WINDOW = Duration.ofHours(24);
+
+  /** Longest window; the TTL on {@link VoteActivity} keeps a little more than this. */
+  static final Duration MAX_WINDOW = Duration.ofDays(7);
+
+  /** A computed ranking: restaurant IDs, highest score first. */
+  private record Ranking(Instant computedAt, List<String> ids) {}
+
+  private record Scored(String restaurantId, double score) {}
+
+  private final MongoTemplate mongoTemplate;
+  private final double halfLifeHours;
+  private final Duration refresh;
+  private final Clock clock;
+
+  /** window in hours -> latest ranking. */
+  private final ConcurrentHashMap<Long, Ranking> rankings = new ConcurrentHashMap<>();
+
+  /** window in hours -> ranking being computed, so each window is computed by one caller. */
+  private final ConcurrentHashMap<Long, CompletableFuture<Ranking>> computing =
+      new ConcurrentHashMap<>();
+
+  @Autowired
+  public TrendingService(
+      MongoTemplate mongoTemplate,
+      @Value("${app.trending.half-life:6h}") Duration halfLife,
+      @Value("${app.trending.refresh:1m}") Duration refresh) {
+    this(mongoTemplate, halfLife, refresh, Clock.systemUTC());
+  }
+
+  TrendingService(MongoTemplate mongoTemplate, Duration halfLife, Duration refresh, Clock clock) {
+    this.mongoTemplate = mongoTemplate;
+    this.halfLifeHours = Math.max(1, halfLife.toMinutes()) / 60.0;
+    this.refresh = refresh;
+    this.clock = clock;
+  }
+
+  /** Adds one restaurant's counter change to the current hour's bucket. */
+  public void record(String restaurantId, int up, int down) {
+    if (up == 0 && down == 0) return;
+    int[] delta = new int[2];
+    delta[Vote.Direction.UP.ordinal()] = up;
+    delta[Vote.Direction.DOWN.ordinal()] = down;
+    recordAll(Map.of(restaurantId, delta));
+  }
+
+  /**
+   * Adds counter changes to the current hour's buckets in one unordered bulk upsert. The ranking
+   * is a soft signal, so a failed write is logged and the votes themselves stand.
+   *
+   * @param deltas restaurant ID -> {upvote, downvote} change, indexed by direction ordinal
+   */
+  public void recordAll(Map<String, int[]> deltas) {
+    Instant hour = VoteActivity.hourOf(clock.instant());
+    BulkOperations buckets = mongoTemplate.bulkOps(BulkMode.UNORDERED, VoteActivity.class);
+    int writes = 0;
+    for (Map.Entry<String, int[]> entry : deltas.entrySet()) {
+      int up = entry.getValue()[Vote.Direction.UP.ordinal()];
+      int down = entry.getValue()[Vote.Direction.DOWN.ordinal()];
+      if (up == 0 && down == 0) continue;
+      buckets.upsert(
+          Query.query(Criteria.where("restaurantId").is(entry.getKey()).and("hour").is(hour)),
+          new Update().inc("up", up).inc("down", down));
+      writes++;
+    }
+    if (writes == 0) return;
+    try {
+      buckets.execute();
+    } catch (RuntimeException e) {
+      log.warn("Could not record vote activity for {} restaurants", writes, e);
+    }
+  }
+
+  /**
+   * The trending restaurants over {@code window}, highest score first. Only restaurants whose
+   * decayed net votes in the window are positive are ranked.
+   *
+   * @param limit requested number of restaurants; clamped to [1, {@value #MAX_LIMIT}]
+   * @return restaurant IDs, at most {@code limit}
+   */
+  public List<String> trending(Duration window, Integer limit) {
+    long hours = window.toHours();
+    int n = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, limit));
+    List<String> ids = ranking(hours).ids();
+    return ids.size() <= n ? ids : ids.subList(0, n);
+  }
+
+  /** The cached ranking of a window, recomputed by this caller if it expired and nobody else is. */
+  private Ranking ranking(long hours) {
+    Instant now = clock.instant();
+    Ranking cached = rankings.get(hours);
+    if (cached != null && cached.computedAt().plus(refresh).isAfter(now)) return cached;
+
+    CompletableFuture<Ranking> mine = new CompletableFuture<>();
+    CompletableFuture<Ranking> running = computing.putIfAbsent(hours, mine);
+    if (running != null) {
+      if (cached != null) return cached;
+      try {
+        return running.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+    try {
+      Ranking ranking = new Ranking(now, rank(hours, now));
+      rankings.put(hours, ranking);
+      mine.complete(ranking);
+      return ranking;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      computing.remove(hours, mine);
+    }
+  }
+
+  /**
+   * Parses a window such as {@code 24h} or {@code 7d}; whole hours or days only.
+   *
+   * @param window the window, or null/blank for {@code 24h}
+   * @throws IllegalArgumentException if it is malformed or outside [1h, 7d]
+   */
+  public static Duration parseWindow(String window) {
+    if (window == null || window.isBlank()) return DEFAULT_WINDOW;
+    String w = window.trim().toLowerCase(Locale.ROOT);
+    Duration parsed = null;
+    if (w.matches("\\d{1,4}[hd]")) {
+      long amount = Long.parseLong(w.substring(0, w.length() - 1));
+      parsed = w.endsWith("h") ? Duration.ofHours(amount) : Duration.ofDays(amount);
+    }
+    if (parsed == null || parsed.isZero() || parsed.compareTo(MAX_WINDOW) > 0) {
+      throw new IllegalArgumentException(
+          "window must be between 1h and 7d, e.g. 24h or 7d, got: " + window);
+    }
+    return parsed;
+  }
+
+  /** Scores every restaurant with activity in the last {@code hours} and keeps the top ones. */
+  private List<String> rank(long hours, Instant now) {
+    Instant currentHour = VoteActivity.hourOf(now);
+    // The current, partial hour counts as one of the window's hours
+    Instant from = currentHour.minus(hours - 1, ChronoUnit.HOURS);
+    Query query = Query.query(Criteria.where("hour").gte(from));
+    query.fields().include("restaurantId", "hour", "up", "down");
+
+    Map<String, Double> scores = new HashMap<>();
+    try (Stream<VoteActivity> buckets = mongoTemplate.stream(query, VoteActivity.class)) {
+      buckets.forEach(
+          b -> {
+            long age = Math.max(0, ChronoUnit.HOURS.between(b.getHour(), currentHour));
+            double weight = Math.pow(0.5, age / halfLifeHours);
+            scores.merge(b.getRestaurantId(), (b.getUp() - b.getDown()) * weight, Double::sum);
+          });
+    }
+
+    Comparator<Scored> byScore =
+        Comparator.comparingDouble(Scored::score)
+            .thenComparing(Scored::restaurantId, Comparator.reverseOrder());
+    PriorityQueue<Scored> top = new PriorityQueue<>(MAX_LIMIT + 1, byScore);
+    scores.forEach(
+        (id, score) -> {
+          if (score <= 0) return;
+          top.add(new Scored(id, score));
+          if (top.size() > MAX_LIMIT) top.poll();
+        });
+
+    List<Scored> ranked = new ArrayList<>(top);
+    ranked.sort(byScore.reversed());
+    return ranked.stream().map(Scored::restaurantId).toList();
+  }
+}
@@ -1,99 +1,203 @@
 package com.plateful.backend.service;
 
+import com.mongodb.client.result.UpdateResult;
 import com.plateful.backend.model.AppUser;
-import com.plateful.backend.repository.UserRepository;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class UserService {
-    private final UserRepository userRepository;
+    private static final String FAVORITES = "favoriteRestaurantIds";
 
-    public UserService(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    private static final String HISTORY = "browseHistory";
+
+    /** Most recent views kept in a user's browse history. */
+    static final int MAX_HISTORY = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final HistoryIngestQueue historyQueue;
+
+    public UserService(MongoTemplate mongoTemplate, HistoryIngestQueue historyQueue) {
+        this.mongoTemplate = mongoTemplate;
+        this.historyQueue = historyQueue;
     }
 
     /**
-     * Add a restaurant to user's favorites
+     * Add a restaurant to user's favorites with a single atomic {@code $addToSet}; the user
+     * document is never read.
+     *
+     * @return true if it was added, false if it already was a favorite
      */
-    public AppUser addFavorite(String userId, String restaurantId) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (!user.getFavoriteRestaurantIds().contains(restaurantId)) {
-            user.getFavoriteRestaurantIds().add(restaurantId);
-            return userRepository.save(user);
-        }
-        return user;
+    public boolean addFavorite(String userId, String restaurantId) {
+        return updateFavorites(userId, new Update().addToSet(FAVORITES, restaurantId));
     }
 
     /**
-     * Remove a restaurant from user's favorites
+     * Remove a restaurant from user's favorites with a single atomic {@code $pull}.
+     *
+     * @return true if it was removed, false if it was not a favorite
      */
-    public AppUser removeFavorite(String userId, String restaurantId) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        user.getFavoriteRestaurantIds().remove(restaurantId);
-        return userRepository.save(user);
+    public boolean removeFavorite(String userId, String restaurantId) {
+        return updateFavorites(userId, new Update().pull(FAVORITES, restaurantId));
     }
 
     /**
-     * Get user's favorite restaurant IDs
+     * Get user's favorite restaurant IDs, in the order they were added. Only the favorites are
+     * read, not the rest of the user document.
      */
-    public List<String> getFavorites(String userId) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public Set<String> getFavorites(String userId) {
+        Query query = Query.query(Criteria.where("id").is(userId));
+        query.fields().include(FAVORITES);
+        AppUser user = mongoTemplate.findOne(query, AppUser.class);
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
         return user.getFavoriteRestaurantIds();
     }
 
     /**
-     * Add an entry to user's browse history
+     * The pipeline update that puts {@code newestFirst} at the front of a user's browse history:
+     * earlier entries for the same restaurants are filtered out and the list is cut to
+     * {@value #MAX_HISTORY} entries.
+     *
+     * <p>MongoDB rejects a {@code $pull} and a {@code $push} on the same field in one update, so
+     * this combines {@code $filter}, {@code $concatArrays} and {@code $slice} instead.
+     *
+     * @param newestFirst entries for distinct restaurants, most recent first
      */
-    public AppUser addToHistory(String userId, String restaurantId, String restaurantName, String viewType) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Remove any existing entry for this restaurant to avoid duplicates
-        user.getBrowseHistory().removeIf(entry -> entry.getRestaurantId().equals(restaurantId));
-
-        // Create new history entry with current timestamp
-        AppUser.HistoryEntry entry = new AppUser.HistoryEntry(
-                restaurantId,
-                restaurantName,
-                LocalDateTime.now(),
-                viewType != null ? viewType : "Details viewed"
-        );
-
-        // Add to beginning of list (most recent first)
-        user.getBrowseHistory().add(0, entry);
-
-        // Keep only last 100 entries to prevent unlimited growth
-        if (user.getBrowseHistory().size() > 100) {
-            user.setBrowseHistory(user.getBrowseHistory().subList(0, 100));
+    static AggregationUpdate prependToHistory(
+            MongoConverter converter, List<AppUser.HistoryEntry> newestFirst) {
+        List<Document> entries = new ArrayList<>();
+        List<String> restaurantIds = new ArrayList<>();
+        for (AppUser.HistoryEntry entry : newestFirst) {
+            // Convert as the repository would when saving, so the entry reads back the same way
+            Document stored = new Document();
+            converter.write(entry, stored);
+            stored.remove("_class");
+            entries.add(new Document("$literal", stored));
+            restaurantIds.add(entry.getRestaurantId());
         }
 
-        return userRepository.save(user);
+        Document others = new Document("$filter", new Document("input",
+                new Document("$ifNull", List.of("$" + HISTORY, List.of())))
+                .append("as", "entry")
+                .append("cond", new Document("$not", List.of(new Document("$in", List.of(
+                        "$$entry.restaurantId", new Document("$literal", restaurantIds)))))));
+        Document history = new Document("$slice", List.of(
+                new Document("$concatArrays", List.of(entries, others)), MAX_HISTORY));
+        AggregationOperation set = context -> new Document("$set", new Document(HISTORY, history));
+        return AggregationUpdate.from(List.of(set));
     }
 
     /**
-     * Get user's browse history
+     * Get a window of user's browse history, most recent first. The window is cut out in the
+     * database with {@code $filter} and {@code $slice}, and only the history is projected, so
+     * neither the other entries nor the rest of the user document (favorites, password hash) are
+     * read.
+     *
+     * <p>To read the next page pass the viewedAt and restaurantId of the previous page's oldest
+     * entry as {@code before} and {@code beforeRestaurantId}. Entries viewed in the same
+     * millisecond are then told apart by their place in the history (one entry per restaurant),
+     * so none of them is skipped.
+     *
+     * @param limit most entries to return, at most {@value #MAX_HISTORY}; all when null
+     * @param before only entries viewed before this time, or at it and after
+     *               {@code beforeRestaurantId}'s entry
+     * @param beforeRestaurantId the restaurant of the entry {@code before} was taken from; when
+     *                           null, only entries viewed strictly before it
+     * @param since only entries viewed at or after this time
      */
-    public List<AppUser.HistoryEntry> getHistory(String userId) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public List<AppUser.HistoryEntry> getHistory(String userId, Integer limit,
+            LocalDateTime before, String beforeRestaurantId, LocalDateTime since) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        MongoConverter converter = mongoTemplate.getConverter();
+        List<Document> conditions = new ArrayList<>();
+        if (before != null) {
+            Object time = converter.convertToMongoType(before);
+            Document older = new Document("$lt", List.of("$$entry.viewedAt", time));
+            if (beforeRestaurantId == null) {
+                conditions.add(older);
+            } else {
+                Object restaurantIds = "$" + HISTORY + ".restaurantId";
+                Document tiedAndLater = new Document("$and", List.of(
+                        new Document("$eq", List.of("$$entry.viewedAt", time)),
+                        new Document("$gt", List.of(
+                                new Document("$indexOfArray",
+                                        List.of(restaurantIds, "$$entry.restaurantId")),
+                                new Document("$indexOfArray",
+                                        List.of(restaurantIds, beforeRestaurantId))))));
+                conditions.add(new Document("$or", List.of(older, tiedAndLater)));
+            }
+        }
+        if (since != null) {
+            conditions.add(new Document("$gte",
+                    List.of("$$entry.viewedAt", converter.convertToMongoType(since))));
+        }
+
+        Object history = new Document("$ifNull", List.of("$" + HISTORY, List.of()));
+        if (!conditions.isEmpty()) {
+            history = new Document("$filter", new Document("input", history)
+                    .append("as", "entry")
+                    .append("cond", new Document("$and", conditions)));
+        }
+        if (limit != null) {
+            history = new Document("$slice", List.of(history, Math.min(limit, MAX_HISTORY)));
+        }
+        Document window = new Document(HISTORY, history);
+        AggregationOperation project = context -> new Document("$project", window);
+
+        Aggregation read = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("id").is(userId)), project);
+        AppUser user = mongoTemplate.aggregate(read, AppUser.class, AppUser.class)
+                .getUniqueMappedResult();
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
         return user.getBrowseHistory();
     }
 
     /**
-     * Clear user's browse history
+     * Applies an update to the user's favorites. A no-op update ($addToSet of a member, $pull of
+     * a non-member) matches the user but modifies nothing, so nothing is written.
+     *
+     * @return true if the favorites changed
+     */
+    private boolean updateFavorites(String userId, Update update) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(userId)), update, AppUser.class);
+        if (result.getMatchedCount() == 0) {
+            throw new RuntimeException("User not found");
+        }
+        return result.getModifiedCount() > 0;
+    }
+
+    /**
+     * Clear user's browse history with a single {@code $set}, so a concurrent change to the rest
+     * of the user (e.g. a new favorite) is not overwritten. The user's views still queued in the
+     * {@link HistoryIngestQueue} are dropped first, so they cannot reappear after the clear.
      */
-    public AppUser clearHistory(String userId) {
-        AppUser user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        user.getBrowseHistory().clear();
-        return userRepository.save(user);
+    public void clearHistory(String userId) {
+        historyQueue.discard(userId);
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(userId)),
+                new Update().set(HISTORY, List.of()), AppUser.class);
+        if (result.getMatchedCount() == 0) {
+            throw new RuntimeException("User not found");
+        }
     }
 }
@@ -0,0 +1,222 @@
+package com.plateful.backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes vote-count changes to Server-Sent Events subscribers. Each subscriber names the
+ * restaurants it shows; changes to a restaurant are coalesced so that at most one event per
+ * restaurant goes out per {@code app.votes.stream.window} (the latest counts win).
+ *
+ * <p>Connections are asynchronous {@link SseEmitter}s, so no request thread is held open; a single
+ * broadcaster thread drains the coalesced changes each window and writes them to every interested
+ * subscriber. Subscribers that fail a write are dropped, and idle connections get a comment line
+ * every {@value #HEARTBEAT_SECONDS} seconds so dead ones are noticed.
+ *
+ * <p>Changes come from one source at a time: from {@link VoteChangeStream} while it is active,
+ * since it also reports this instance's writes, and otherwise from the {@link VoteChangedEvent}s
+ * of local writes.
+ */
+@Component
+public class VoteBroadcaster {
+
+  private static final Logger log = LoggerFactory.getLogger(VoteBroadcaster.class);
+
+  /** SSE event name of a vote-count change. */
+  public static final String EVENT_NAME = "vote";
+
+  private static final long HEARTBEAT_SECONDS = 25;
+
+  /** How long a subscription lasts before the client has to reconnect. */
+  private static final long SUBSCRIPTION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+  /** One open event stream and the restaurants it asked for. */
+  static final class Subscriber {
+    private final SseEmitter emitter;
+    private final Set<String> restaurantIds;
+
+    Subscriber(SseEmitter emitter, Set<String> restaurantIds) {
+      this.emitter = emitter;
+      this.restaurantIds = restaurantIds;
+    }
+
+    /** Writes are serialized per emitter; the initial snapshot may race the broadcaster. */
+    synchronized void send(SseEmitter.SseEventBuilder event) throws IOException {
+      emitter.send(event);
+    }
+  }
+
+  /** restaurant ID -> subscribers showing it. */
+  private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  private final Set<Subscriber> all = ConcurrentHashMap.newKeySet();
+
+  /** restaurant ID -> latest change not yet pushed. */
+  private final ConcurrentHashMap<String, VoteChangedEvent> pending = new ConcurrentHashMap<>();
+
+  private final VoteChangeStream changeStream;
+  private final ScheduledExecutorService broadcaster;
+  private final long heartbeatEvery;
+  private long sinceHeartbeat;
+
+  public VoteBroadcaster(
+      @Value("${app.votes.stream.window:1s}") Duration window,
+      MeterRegistry meterRegistry,
+      VoteChangeStream changeStream) {
+    this.changeStream = changeStream;
+    broadcaster =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "vote-broadcast");
+              t.setDaemon(true);
+              return t;
+            });
+    long windowMs = Math.max(1, window.toMillis());
+    heartbeatEvery = Math.max(1, TimeUnit.SECONDS.toMillis(HEARTBEAT_SECONDS) / windowMs);
+    broadcaster.scheduleWithFixedDelay(this::broadcast, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    Gauge.builder("plateful.votes.stream.subscribers", all, Set::size)
+        .description("Open vote-count event streams")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Opens an event stream for the given restaurants.
+   *
+   * @param restaurantIds the restaurants to watch
+   * @param snapshot current counts, sent immediately so the client needs no initial poll
+   */
+  public SseEmitter subscribe(
+      Collection<String> restaurantIds, Collection<VoteChangedEvent> snapshot) {
+    return subscribe(restaurantIds, snapshot, new SseEmitter(SUBSCRIPTION_TIMEOUT_MS));
+  }
+
+  SseEmitter subscribe(
+      Collection<String> restaurantIds,
+      Collection<VoteChangedEvent> snapshot,
+      SseEmitter emitter) {
+    Subscriber subscriber = new Subscriber(emitter, Set.copyOf(restaurantIds));
+    emitter.onCompletion(() -> unsubscribe(subscriber));
+    emitter.onTimeout(() -> unsubscribe(subscriber));
+    emitter.onError(e -> unsubscribe(subscriber));
+
+    all.add(subscriber);
+    for (String id : subscriber.restaurantIds) {
+      subscribers.compute(
+          id,
+          (k, set) -> {
+            Set<Subscriber> watching = set != null ? set : ConcurrentHashMap.newKeySet();
+            watching.add(subscriber);
+            return watching;
+          });
+    }
+    for (VoteChangedEvent event : snapshot) {
+      if (!deliver(subscriber, event)) break;
+    }
+    return emitter;
+  }
+
+  /**
+   * Queues a change made by this instance, unless the change stream is active and reports it too.
+   */
+  @EventListener
+  public void onVoteChanged(VoteChangedEvent event) {
+    if (!changeStream.isActive()) queue(event);
+  }
+
+  /** Queues a change seen on the change stream. */
+  @EventListener
+  public void onObserved(VoteChangeStream.Observed observed) {
+    queue(observed.change());
+  }
+
+  /** @return the number of open event streams */
+  public int subscriberCount() {
+    return all.size();
+  }
+
+  /** Pushes every pending change, then a heartbeat if one is due. Runs once per window. */
+  void broadcast() {
+    try {
+      for (String restaurantId : pending.keySet()) {
+        VoteChangedEvent event = pending.remove(restaurantId);
+        Set<Subscriber> watching = subscribers.get(restaurantId);
+        if (event == null || watching == null) continue;
+        for (Subscriber subscriber : List.copyOf(watching)) {
+          deliver(subscriber, event);
+        }
+      }
+      if (++sinceHeartbeat >= heartbeatEvery) {
+        sinceHeartbeat = 0;
+        for (Subscriber subscriber : List.copyOf(all)) {
+          try {
+            subscriber.send(SseEmitter.event().comment("keep-alive"));
+          } catch (IOException | IllegalStateException e) {
+            drop(subscriber, e);
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      log.error("Vote broadcast failed; continuing with the next window", e);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    broadcaster.shutdownNow();
+    for (Subscriber subscriber : List.copyOf(all)) {
+      subscriber.emitter.complete();
+    }
+  }
+
+  /** Queues a change for the next window, replacing any change to the same restaurant. */
+  private void queue(VoteChangedEvent event) {
+    if (subscribers.containsKey(event.restaurantId())) {
+      pending.put(event.restaurantId(), event);
+    }
+  }
+
+  /** @return false if the subscriber was dropped */
+  private boolean deliver(Subscriber subscriber, VoteChangedEvent event) {
+    try {
+      subscriber.send(SseEmitter.event().name(EVENT_NAME).data(event));
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      drop(subscriber, e);
+      return false;
+    }
+  }
+
+  private void drop(Subscriber subscriber, Exception cause) {
+    log.debug("Dropping vote stream subscriber: {}", cause.getMessage());
+    unsubscribe(subscriber);
+    subscriber.emitter.completeWithError(cause);
+  }
+
+  private void unsubscribe(Subscriber subscriber) {
+    if (!all.remove(subscriber)) return;
+    for (String id : subscriber.restaurantIds) {
+      subscribers.computeIfPresent(
+          id,
+          (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+          });
+    }
+  }
+}
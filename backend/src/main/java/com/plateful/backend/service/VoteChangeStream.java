@@ -0,0 +1,171 @@
+package com.plateful.backend.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.plateful.backend.model.Restaurant;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds {@link VoteChangedEvent}s from a MongoDB change stream on the restaurants collection, so
+ * vote counts written by other application instances (or directly in the database) reach this
+ * instance's {@link VoteBroadcaster} too. Only updates touching {@code upvote_count} or {@code
+ * downvote_count} are watched, and only those two fields are returned.
+ *
+ * <p>Changes are published as {@link Observed} events. While the stream is {@linkplain #isActive
+ * active} it reports this instance's own writes as well, so {@link VoteBroadcaster} then takes
+ * every change from the stream alone instead of hearing local writes twice.
+ *
+ * <p>Change streams need a replica set or sharded cluster. On a standalone server the stream is
+ * not available, which is logged once; events then come from this instance's own writes only.
+ */
+@Component
+public class VoteChangeStream {
+
+  private static final Logger log = LoggerFactory.getLogger(VoteChangeStream.class);
+
+  /** A vote-count change seen on the change stream. */
+  public record Observed(VoteChangedEvent change) {}
+
+  /** Server error code for "$changeStream is only supported on replica sets". */
+  private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+
+  private static final long RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+
+  private final MongoTemplate mongoTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final boolean enabled;
+
+  private volatile boolean running;
+  private volatile boolean active;
+  private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+  private Thread worker;
+
+  public VoteChangeStream(
+      MongoTemplate mongoTemplate,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${app.votes.stream.change-stream.enabled:true}") boolean enabled) {
+    this.mongoTemplate = mongoTemplate;
+    this.eventPublisher = eventPublisher;
+    this.enabled = enabled;
+  }
+
+  /** Starts watching on a background thread once the application is ready. */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (!enabled || running) return;
+    running = true;
+    worker = new Thread(this::watch, "vote-change-stream");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /** @return true while the stream is open and reporting every vote-count change */
+  public boolean isActive() {
+    return active;
+  }
+
+  @PreDestroy
+  synchronized void stop() {
+    running = false;
+    active = false;
+    MongoChangeStreamCursor<?> open = cursor;
+    if (open != null) open.close();
+    if (worker != null) worker.interrupt();
+  }
+
+  /** Follows the stream, resuming after the last seen event when the connection drops. */
+  private void watch() {
+    List<Bson> pipeline =
+        List.of(
+            Aggregates.match(
+                Filters.and(
+                    Filters.eq("operationType", "update"),
+                    Filters.or(
+                        Filters.exists("updateDescription.updatedFields.upvote_count"),
+                        Filters.exists("updateDescription.updatedFields.downvote_count")))),
+            Aggregates.project(
+                Projections.include(
+                    "operationType",
+                    "documentKey",
+                    "fullDocument.upvote_count",
+                    "fullDocument.downvote_count")));
+    BsonDocument resumeToken = null;
+    while (running) {
+      try {
+        var stream =
+            mongoTemplate
+                .getCollection(mongoTemplate.getCollectionName(Restaurant.class))
+                .watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) stream = stream.resumeAfter(resumeToken);
+        cursor = stream.cursor();
+        active = true;
+        log.info("Watching restaurant vote counts on the MongoDB change stream");
+        while (running) {
+          ChangeStreamDocument<Document> change = cursor.next();
+          resumeToken = change.getResumeToken();
+          publish(change);
+        }
+      } catch (MongoCommandException e) {
+        if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+          log.info("MongoDB change streams unavailable; vote events come from this instance only");
+          running = false;
+          return;
+        }
+        pause(e);
+      } catch (RuntimeException e) {
+        pause(e);
+      } finally {
+        active = false;
+        MongoChangeStreamCursor<?> open = cursor;
+        cursor = null;
+        if (open != null) open.close();
+      }
+    }
+  }
+
+  private void publish(ChangeStreamDocument<Document> change) {
+    Document restaurant = change.getFullDocument();
+    BsonValue key = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+    if (restaurant == null || key == null) return;
+    String id =
+        key.isObjectId() ? key.asObjectId().getValue().toHexString() : key.asString().getValue();
+    int up = count(restaurant, "upvote_count");
+    int down = count(restaurant, "downvote_count");
+    eventPublisher.publishEvent(new Observed(VoteChangedEvent.of(id, up, down)));
+  }
+
+  private static int count(Document restaurant, String field) {
+    return restaurant.get(field) instanceof Number n ? n.intValue() : 0;
+  }
+
+  private void pause(RuntimeException cause) {
+    if (!running) return;
+    log.warn("Vote change stream interrupted; retrying in {} ms", RETRY_DELAY_MS, cause);
+    try {
+      Thread.sleep(RETRY_DELAY_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+}
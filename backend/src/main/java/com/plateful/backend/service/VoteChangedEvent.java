@@ -0,0 +1,23 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+
+/**
+ * A restaurant's vote counts changed. Published by {@link VotingService} for its own writes and
+ * carried by {@link VoteChangeStream.Observed} for writes seen on the MongoDB change stream, and
+ * pushed to subscribers by {@link VoteBroadcaster}; the record is also the JSON payload of the
+ * pushed event.
+ */
+public record VoteChangedEvent(
+    String restaurantId, int upvoteCount, int downvoteCount, int voteCount) {
+
+  /** The event for a restaurant read with at least its vote counters. */
+  public static VoteChangedEvent of(Restaurant restaurant) {
+    return of(restaurant.getId(), restaurant.getUpvoteCount(), restaurant.getDownvoteCount());
+  }
+
+  public static VoteChangedEvent of(String restaurantId, int upvoteCount, int downvoteCount) {
+    return new VoteChangedEvent(
+        restaurantId, upvoteCount, downvoteCount, upvoteCount - downvoteCount);
+  }
+}
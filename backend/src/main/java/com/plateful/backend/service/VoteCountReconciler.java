@@ -0,0 +1,164 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repairs restaurant vote counters that drifted from the votes collection. A vote is recorded and
+ * counted in two writes (see {@link VotingService}), which are not one transaction: if the process
+ * dies or the counter update fails between them, the counters stay off by that vote. Every {@code
+ * app.votes.reconcile.interval} the votes are recounted per restaurant and compared with the
+ * stored counters.
+ *
+ * <p>A counter update may simply still be in flight when a pass looks, so a mismatch is only
+ * repaired once two consecutive passes saw exactly the same one. The repair is a compare-and-set
+ * on the counters that were read, so a vote counted meanwhile is never overwritten.
+ */
+@Component
+public class VoteCountReconciler {
+
+  private static final Logger log = LoggerFactory.getLogger(VoteCountReconciler.class);
+
+  /** Stored counters and recounted votes of a restaurant whose counters disagree. */
+  record Drift(int storedUp, int storedDown, int up, int down) {}
+
+  private final MongoTemplate mongoTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Counter repaired;
+  private final ScheduledExecutorService scheduler;
+
+  /** Mismatches seen by the previous pass; only touched by {@link #reconcile}. */
+  private Map<String, Drift> suspects = Map.of();
+
+  public VoteCountReconciler(
+      MongoTemplate mongoTemplate,
+      ApplicationEventPublisher eventPublisher,
+      MeterRegistry meterRegistry,
+      @Value("${app.votes.reconcile.interval:10m}") Duration interval) {
+    this.mongoTemplate = mongoTemplate;
+    this.eventPublisher = eventPublisher;
+    this.repaired =
+        Counter.builder("plateful.votes.reconciled")
+            .description("Restaurants whose vote counters were repaired from the votes collection")
+            .register(meterRegistry);
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "vote-reconcile");
+              t.setDaemon(true);
+              return t;
+            });
+    long millis = interval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::reconcileQuietly, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Runs one pass: recounts every restaurant's votes and repairs the counters that disagreed the
+   * same way on the previous pass.
+   *
+   * @return the number of restaurants repaired
+   */
+  public synchronized int reconcile() {
+    Map<String, int[]> counted = countVotes(mongoTemplate, new Criteria());
+    Map<String, Drift> drifted = new HashMap<>();
+    Query all = new Query();
+    all.fields().include("upvoteCount", "downvoteCount");
+    try (Stream<Restaurant> stream = mongoTemplate.stream(all, Restaurant.class)) {
+      stream.forEach(
+          r -> {
+            int[] votes = counted.getOrDefault(r.getId(), new int[2]);
+            if (r.getUpvoteCount() != votes[0] || r.getDownvoteCount() != votes[1]) {
+              drifted.put(
+                  r.getId(),
+                  new Drift(r.getUpvoteCount(), r.getDownvoteCount(), votes[0], votes[1]));
+            }
+          });
+    }
+
+    Map<String, Drift> confirmed = new HashMap<>();
+    drifted.forEach(
+        (id, drift) -> {
+          if (drift.equals(suspects.get(id))) confirmed.put(id, drift);
+        });
+    if (!confirmed.isEmpty()) {
+      BulkOperations restaurants = mongoTemplate.bulkOps(BulkMode.UNORDERED, Restaurant.class);
+      confirmed.forEach(
+          (id, drift) ->
+              restaurants.updateOne(
+                  Query.query(
+                      Criteria.where("id")
+                          .is(id)
+                          .and("upvoteCount")
+                          .is(drift.storedUp())
+                          .and("downvoteCount")
+                          .is(drift.storedDown())),
+                  Update.update("upvoteCount", drift.up()).set("downvoteCount", drift.down())));
+      restaurants.execute();
+      repaired.increment(confirmed.size());
+      log.warn("Repaired the vote counters of {} restaurants", confirmed.size());
+      confirmed.forEach(
+          (id, drift) ->
+              eventPublisher.publishEvent(VoteChangedEvent.of(id, drift.up(), drift.down())));
+    }
+    drifted.keySet().removeAll(confirmed.keySet());
+    suspects = drifted;
+    return confirmed.size();
+  }
+
+  /**
+   * Counts the votes matching {@code votes} per restaurant.
+   *
+   * @return restaurant ID -> {up, down}, indexed by {@link Vote.Direction} ordinal
+   */
+  static Map<String, int[]> countVotes(MongoTemplate mongoTemplate, Criteria votes) {
+    Map<String, int[]> counts = new HashMap<>();
+    Aggregation countVotes =
+        Aggregation.newAggregation(
+            Aggregation.match(votes),
+            Aggregation.group("restaurantId", "direction").count().as("count"));
+    for (Document row :
+        mongoTemplate.aggregate(countVotes, Vote.class, Document.class).getMappedResults()) {
+      Document key = row.get("_id", Document.class);
+      int[] upDown = counts.computeIfAbsent(key.getString("restaurantId"), id -> new int[2]);
+      upDown[Vote.Direction.valueOf(key.getString("direction")).ordinal()] =
+          row.getInteger("count");
+    }
+    return counts;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private void reconcileQuietly() {
+    try {
+      reconcile();
+    } catch (RuntimeException e) {
+      log.error("Vote counter reconciliation failed; retrying on the next pass", e);
+    }
+  }
+}
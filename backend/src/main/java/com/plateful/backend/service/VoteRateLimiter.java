@@ -0,0 +1,91 @@
+package com.plateful.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-user rate limits on the voting endpoints, keyed by the JWT subject. Each endpoint has its own
+ * {@link TokenBucketLimiter}, configured with
+ *
+ * <pre>
+ * app.rate-limit.votes.&lt;endpoint&gt;.capacity   requests allowed in a burst
+ * app.rate-limit.votes.&lt;endpoint&gt;.refill     time to earn back one request, e.g. 2s
+ * app.rate-limit.votes.max-users               users tracked per endpoint
+ * </pre>
+ *
+ * <p>Rejections are counted in the {@code plateful.rate_limit.rejections} metric, tagged by
+ * endpoint; {@code plateful.rate_limit.tracked_users} gauges the bucket maps.
+ */
+@Component
+public class VoteRateLimiter {
+
+  public static final String UPVOTE = "upvote";
+  public static final String DOWNVOTE = "downvote";
+  public static final String REMOVE_VOTE = "remove-vote";
+
+  private static final String PREFIX = "app.rate-limit.votes.";
+
+  private final Map<String, TokenBucketLimiter> limiters;
+  private final Map<String, Counter> rejections;
+
+  public VoteRateLimiter(Environment env, MeterRegistry meterRegistry) {
+    int maxUsers = env.getProperty(PREFIX + "max-users", Integer.class, 100_000);
+    List<String> endpoints = List.of(UPVOTE, DOWNVOTE, REMOVE_VOTE);
+    limiters =
+        endpoints.stream()
+            .collect(
+                Collectors.toUnmodifiableMap(
+                    Function.identity(),
+                    endpoint ->
+                        new TokenBucketLimiter(
+                            env.getProperty(PREFIX + endpoint + ".capacity", Integer.class, 10),
+                            env.getProperty(
+                                    PREFIX + endpoint + ".refill",
+                                    Duration.class,
+                                    Duration.ofSeconds(2))
+                                .toNanos(),
+                            maxUsers,
+                            System::nanoTime)));
+    rejections =
+        endpoints.stream()
+            .collect(
+                Collectors.toUnmodifiableMap(
+                    Function.identity(),
+                    endpoint ->
+                        Counter.builder("plateful.rate_limit.rejections")
+                            .description("Vote requests rejected with 429")
+                            .tag("endpoint", endpoint)
+                            .register(meterRegistry)));
+    limiters.forEach(
+        (endpoint, limiter) ->
+            Gauge.builder("plateful.rate_limit.tracked_users", limiter, l -> l.trackedKeys())
+                .description("Users with a rate-limit bucket in memory")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry));
+  }
+
+  /**
+   * Takes one request from the caller's allowance for {@code endpoint}.
+   *
+   * @param endpoint one of {@link #UPVOTE}, {@link #DOWNVOTE}, {@link #REMOVE_VOTE}
+   * @param userId the JWT subject
+   * @throws RateLimitExceededException if the allowance is used up
+   */
+  public void check(String endpoint, String userId) {
+    long waitNanos = limiters.get(endpoint).tryAcquire(userId);
+    if (waitNanos > 0) {
+      rejections.get(endpoint).increment();
+      long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+      throw new RateLimitExceededException(endpoint, seconds);
+    }
+  }
+}
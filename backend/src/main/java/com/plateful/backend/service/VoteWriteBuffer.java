@@ -0,0 +1,522 @@
+package com.plateful.backend.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional write-behind mode for {@link VotingService}, enabled with {@code
+ * app.votes.write-behind.enabled=true}. Vote clicks are recorded as intents in memory and written
+ * to MongoDB in bulk requests every {@code flush-interval-ms}, or as soon as {@code max-pending}
+ * intents are waiting.
+ *
+ * <p>Intents are kept per user, next to the user's stored votes (read with one query on their
+ * first click). Repeated toggles by the same user collapse into their latest vote; a toggle back to
+ * the stored vote is not written at all. Each intent keeps the vote it replaces (its baseline), so
+ * the flush can move the restaurant counters by the exact transition. Each restaurant's counters
+ * are likewise read once and kept with the change not yet written, so a click normally costs no
+ * database round trip. Users and restaurants with nothing left to write are forgotten after {@code
+ * idle-ms} without clicks.
+ *
+ * <p>Restaurant counters are lock-free: each direction is a CAS counter, so a burst of clicks by
+ * many users on one hot restaurant never queues on a lock. A user's intents are recorded under
+ * that user's monitor instead, because loading their stored votes, replacing a pending intent and
+ * picking its baseline must be one step; only requests of that same user ever contend on it. The
+ * flush is serialized only with itself (the flush thread and shutdown) and holds each user's
+ * monitor just long enough to take their pending intents.
+ *
+ * <p>Vote writes are idempotent, so a failed vote bulk is retried whole. Counter increments are
+ * not: they are sent unordered and only those the bulk reports as failed are retried. An increment
+ * is taken out of its restaurant's unwritten change before it is sent and put back if it fails, so
+ * a read never counts a vote both in the stored counters and as unwritten. An increment whose
+ * outcome is unknown (e.g. a timeout) is not retried, and {@link VoteCountReconciler} repairs it if
+ * it was lost. While {@code max-backlog} intents are waiting to be written, new clicks are rejected
+ * with a {@link RateLimitExceededException}.
+ *
+ * <p>Metrics: {@code plateful.votes.write_behind.backlog} and {@code
+ * plateful.votes.write_behind.rejected}.
+ *
+ * <p>Assumes this instance is the only writer of votes while the mode is on.
+ */
+@Component
+public class VoteWriteBuffer {
+
+  private static final Logger log = LoggerFactory.getLogger(VoteWriteBuffer.class);
+
+  /**
+   * A vote waiting to be written.
+   *
+   * @param baseline the user's vote as last written, or null if none
+   * @param target the vote to write, or null to remove it
+   */
+  record Intent(Vote.Direction baseline, Vote.Direction target) {}
+
+  /** An intent taken by a flush, written by it or, if that fails, by a later one. */
+  private record Taken(String userId, UserVotes user, String restaurantId, Intent intent) {}
+
+  /** One user's votes as this buffer sees them. Guarded by its own monitor. */
+  private static final class UserVotes {
+    /** restaurant ID -> the user's vote as stored; loaded on first use. */
+    Map<String, Vote.Direction> stored;
+
+    /** restaurant ID -> intent not yet taken by a flush. */
+    final Map<String, Intent> pending = new HashMap<>();
+
+    /** restaurant ID -> latest intent taken by a flush but not yet written. */
+    final Map<String, Intent> unwritten = new HashMap<>();
+
+    long touchedAt;
+    boolean evicted;
+
+    boolean idle() {
+      return pending.isEmpty() && unwritten.isEmpty();
+    }
+  }
+
+  /** A restaurant's counters with the change not yet written. Lock-free. */
+  private static final class Counts {
+    /** {upvote, downvote} including every change not yet written, indexed by direction ordinal. */
+    final AtomicIntegerArray current;
+
+    /** {upvote, downvote} change not yet sent to the stored counters. */
+    final AtomicIntegerArray unwritten = new AtomicIntegerArray(2);
+
+    /** Intents on this restaurant that are not yet written; while any are, it is not evicted. */
+    final AtomicInteger intents = new AtomicInteger();
+
+    volatile long touchedAt;
+    volatile boolean evicted;
+
+    Counts(int up, int down) {
+      current = new AtomicIntegerArray(new int[] {up, down});
+    }
+
+    boolean idle() {
+      return intents.get() == 0 && unwritten.get(0) == 0 && unwritten.get(1) == 0;
+    }
+  }
+
+  private final MongoTemplate mongoTemplate;
+  private final TrendingService trendingService;
+  private final boolean enabled;
+  private final int maxPending;
+  private final int maxBacklog;
+  private final long idleMs;
+
+  private final ConcurrentHashMap<String, UserVotes> users = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Counts> restaurants = new ConcurrentHashMap<>();
+
+  /** Intents not yet taken by a flush. */
+  private final AtomicInteger pendingIntents = new AtomicInteger();
+
+  /** Intents recorded but not yet written, including those waiting for a retry. */
+  private final AtomicInteger backlog = new AtomicInteger();
+
+  /** Intents of a failed flush, written first by the next one. Guarded by {@code this}. */
+  private List<Taken> retry = new ArrayList<>();
+
+  /** restaurant ID -> counter increments that failed, sent again by the next flush. */
+  private Map<String, int[]> retryCounts = new HashMap<>();
+
+  private final Counter rejected;
+  private final AtomicBoolean flushQueued = new AtomicBoolean();
+  private final ScheduledExecutorService flusher;
+
+  public VoteWriteBuffer(
+      MongoTemplate mongoTemplate,
+      TrendingService trendingService,
+      MeterRegistry meterRegistry,
+      @Value("${app.votes.write-behind.enabled:false}") boolean enabled,
+      @Value("${app.votes.write-behind.flush-interval-ms:250}") long flushIntervalMs,
+      @Value("${app.votes.write-behind.max-pending:1000}") int maxPending,
+      @Value("${app.votes.write-behind.max-backlog:10000}") int maxBacklog,
+      @Value("${app.votes.write-behind.idle-ms:30000}") long idleMs) {
+    this.mongoTemplate = mongoTemplate;
+    this.trendingService = trendingService;
+    this.enabled = enabled;
+    this.maxPending = maxPending;
+    this.maxBacklog = maxBacklog;
+    this.idleMs = idleMs;
+    Gauge.builder("plateful.votes.write_behind.backlog", backlog, AtomicInteger::get)
+        .description("Buffered votes not yet written, including failed writes awaiting a retry")
+        .register(meterRegistry);
+    rejected =
+        Counter.builder("plateful.votes.write_behind.rejected")
+            .description("Votes rejected because too many buffered votes were waiting")
+            .register(meterRegistry);
+    if (enabled) {
+      flusher =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> {
+                Thread t = new Thread(r, "vote-write-behind");
+                t.setDaemon(true);
+                return t;
+              });
+      flusher.scheduleWithFixedDelay(
+          this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      flusher = null;
+    }
+  }
+
+  /** @return true if votes should be recorded here rather than written directly */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records that the user's vote on a restaurant should become {@code target}, replacing any intent
+   * still pending for the same pair.
+   *
+   * @param target the new vote, or null to remove the user's vote
+   * @return the restaurant's counters including every change not yet written
+   * @throws RateLimitExceededException if {@code max-backlog} votes are waiting to be written
+   */
+  public Restaurant record(String restaurantId, String userId, Vote.Direction target) {
+    if (backlog.get() >= maxBacklog) {
+      rejected.increment();
+      throw new RateLimitExceededException("vote", 1);
+    }
+    counts(restaurantId); // fails for unknown restaurants before anything is recorded
+    Restaurant counts;
+    while (true) {
+      UserVotes user = users.computeIfAbsent(userId, id -> new UserVotes());
+      synchronized (user) {
+        if (user.evicted) continue;
+        user.touchedAt = System.currentTimeMillis();
+        Intent current = user.pending.get(restaurantId);
+        if (current != null) {
+          user.pending.put(restaurantId, new Intent(current.baseline(), target));
+          counts = move(restaurantId, current.target(), target, false);
+        } else {
+          Intent flying = user.unwritten.get(restaurantId);
+          Vote.Direction baseline =
+              flying != null ? flying.target() : stored(userId, user).get(restaurantId);
+          user.pending.put(restaurantId, new Intent(baseline, target));
+          pendingIntents.incrementAndGet();
+          backlog.incrementAndGet();
+          counts = move(restaurantId, baseline, target, true);
+        }
+        break;
+      }
+    }
+    if (pendingIntents.get() >= maxPending && flushQueued.compareAndSet(false, true)) {
+      flusher.execute(this::flush);
+    }
+    return counts;
+  }
+
+  /**
+   * Adds the not-yet-written vote changes to a restaurant's stored counters. {@code restaurant} is
+   * updated in place.
+   */
+  public Restaurant withPendingCounts(Restaurant restaurant) {
+    Counts counts = restaurants.get(restaurant.getId());
+    if (counts != null) {
+      restaurant.setUpvoteCount(
+          restaurant.getUpvoteCount() + counts.unwritten.get(Vote.Direction.UP.ordinal()));
+      restaurant.setDownvoteCount(
+          restaurant.getDownvoteCount() + counts.unwritten.get(Vote.Direction.DOWN.ordinal()));
+    }
+    return restaurant;
+  }
+
+  /**
+   * Applies the user's not-yet-written votes to {@code votes}, a map of restaurant ID to their
+   * stored vote, so they see their own clicks immediately.
+   */
+  public void overlay(String userId, Map<String, Vote.Direction> votes) {
+    if (!enabled || userId == null) return;
+    UserVotes user = users.get(userId);
+    if (user == null) return;
+    synchronized (user) {
+      overlay(user.unwritten, votes);
+      overlay(user.pending, votes);
+    }
+  }
+
+  /** Writes every pending intent. Runs on the flush thread, and once more on shutdown. */
+  public synchronized void flush() {
+    flushQueued.set(false);
+    List<Taken> batch = retry;
+    retry = new ArrayList<>();
+    users.forEach(
+        (userId, user) -> {
+          synchronized (user) {
+            user.pending.forEach(
+                (restaurantId, intent) -> {
+                  user.unwritten.put(restaurantId, intent);
+                  batch.add(new Taken(userId, user, restaurantId, intent));
+                });
+            pendingIntents.addAndGet(-user.pending.size());
+            user.pending.clear();
+          }
+        });
+
+    Map<String, int[]> increments = new HashMap<>();
+    if (!batch.isEmpty()) {
+      try {
+        writeVotes(batch, increments);
+      } catch (RuntimeException e) {
+        log.error("Could not flush {} buffered votes; retrying on the next flush", batch.size(), e);
+        retry = batch;
+        return;
+      }
+      for (Taken taken : batch) written(taken);
+    }
+
+    retryCounts.forEach((id, delta) -> add(increments, id, delta));
+    increments.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+    // Counted as stored while in flight, so no read sees them stored and unwritten at once
+    increments.forEach((id, delta) -> settle(id, delta, -1));
+    retryCounts = writeCounts(increments);
+    retryCounts.forEach((id, delta) -> settle(id, delta, 1));
+    increments.keySet().removeAll(retryCounts.keySet());
+    if (!increments.isEmpty()) {
+      trendingService.recordAll(increments);
+    }
+    evictIdle();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (flusher == null) return;
+    flusher.shutdown();
+    flush();
+  }
+
+  /**
+   * Writes the vote documents of a batch as one ordered bulk request, so later intents for the same
+   * vote win, and adds each intent's counter change to {@code increments}.
+   */
+  private void writeVotes(List<Taken> batch, Map<String, int[]> increments) {
+    BulkOperations votes = null;
+    Map<String, int[]> deltas = new HashMap<>();
+    Instant now = Instant.now();
+    for (Taken taken : batch) {
+      Intent intent = taken.intent();
+      if (intent.baseline() == intent.target()) continue;
+      if (votes == null) votes = mongoTemplate.bulkOps(BulkMode.ORDERED, Vote.class);
+
+      Query vote =
+          Query.query(
+              Criteria.where("userId")
+                  .is(taken.userId())
+                  .and("restaurantId")
+                  .is(taken.restaurantId()));
+      if (intent.target() == null) {
+        votes.remove(vote);
+      } else {
+        votes.upsert(vote, Update.update("direction", intent.target()).set("votedAt", now));
+      }
+      int[] delta = deltas.computeIfAbsent(taken.restaurantId(), id -> new int[2]);
+      if (intent.baseline() != null) delta[intent.baseline().ordinal()]--;
+      if (intent.target() != null) delta[intent.target().ordinal()]++;
+    }
+    if (votes == null) return;
+    votes.execute();
+    deltas.forEach((id, delta) -> add(increments, id, delta));
+  }
+
+  /**
+   * Sends one {@code $inc} per restaurant as an unordered bulk request.
+   *
+   * @return the increments known not to have been applied, to be sent again
+   */
+  private Map<String, int[]> writeCounts(Map<String, int[]> increments) {
+    if (increments.isEmpty()) return new HashMap<>();
+
+    BulkOperations restaurants = mongoTemplate.bulkOps(BulkMode.UNORDERED, Restaurant.class);
+    List<String> ids = new ArrayList<>(increments.keySet());
+    for (String id : ids) {
+      int[] delta = increments.get(id);
+      restaurants.updateOne(
+          Query.query(Criteria.where("id").is(id)),
+          new Update()
+              .inc("upvoteCount", delta[Vote.Direction.UP.ordinal()])
+              .inc("downvoteCount", delta[Vote.Direction.DOWN.ordinal()]));
+    }
+    Map<String, int[]> failed = new HashMap<>();
+    try {
+      restaurants.execute();
+    } catch (BulkOperationException e) {
+      for (BulkWriteError error : e.getErrors()) {
+        String id = ids.get(error.getIndex());
+        failed.put(id, increments.get(id));
+      }
+      log.error("Could not update the vote counters of {} restaurants; retrying", failed.size(), e);
+    } catch (RuntimeException e) {
+      // Some increments may have been applied; sending them again could count them twice
+      log.error(
+          "Vote counter update of {} restaurants had an unknown outcome; left to the reconciler",
+          ids.size(),
+          e);
+    }
+    return failed;
+  }
+
+  /** Marks an intent as written: it becomes the user's stored vote. */
+  private void written(Taken taken) {
+    UserVotes user = taken.user();
+    Intent intent = taken.intent();
+    synchronized (user) {
+      if (user.stored != null) {
+        if (intent.target() == null) {
+          user.stored.remove(taken.restaurantId());
+        } else {
+          user.stored.put(taken.restaurantId(), intent.target());
+        }
+      }
+      user.unwritten.remove(taken.restaurantId(), intent);
+    }
+    restaurants.get(taken.restaurantId()).intents.decrementAndGet();
+    backlog.decrementAndGet();
+  }
+
+  /**
+   * Takes a counter increment out of a restaurant's unwritten change ({@code sign} -1) as it is
+   * sent, or puts it back ({@code sign} 1) if it failed.
+   */
+  private void settle(String restaurantId, int[] delta, int sign) {
+    Counts counts = restaurants.get(restaurantId);
+    for (int i = 0; i < 2; i++) {
+      counts.unwritten.addAndGet(i, sign * delta[i]);
+    }
+  }
+
+  /** Forgets users and restaurants with nothing left to write and no recent clicks. */
+  private void evictIdle() {
+    long cutoff = System.currentTimeMillis() - idleMs;
+    users.forEach(
+        (userId, user) -> {
+          synchronized (user) {
+            if (user.idle() && user.touchedAt <= cutoff) {
+              user.evicted = true;
+              users.remove(userId, user);
+            }
+          }
+        });
+    restaurants.forEach(
+        (restaurantId, counts) -> {
+          if (counts.idle() && counts.touchedAt <= cutoff) {
+            // A click that counted an intent meanwhile either sees the flag and retries, or is
+            // seen here and keeps the counters
+            counts.evicted = true;
+            if (counts.idle()) {
+              restaurants.remove(restaurantId, counts);
+            } else {
+              counts.evicted = false;
+            }
+          }
+        });
+  }
+
+  /** The user's stored votes, read on first use. Must hold the user's lock. */
+  private Map<String, Vote.Direction> stored(String userId, UserVotes user) {
+    if (user.stored == null) {
+      Query votes = Query.query(Criteria.where("userId").is(userId));
+      votes.fields().include("restaurantId", "direction");
+      user.stored = new HashMap<>();
+      for (Vote vote : mongoTemplate.find(votes, Vote.class)) {
+        user.stored.put(vote.getRestaurantId(), vote.getDirection());
+      }
+    }
+    return user.stored;
+  }
+
+  /**
+   * A restaurant's counters, read on first use.
+   *
+   * @throws RuntimeException if there is no such restaurant
+   */
+  private Counts counts(String restaurantId) {
+    Counts counts = restaurants.get(restaurantId);
+    if (counts != null) return counts;
+    Query restaurant = Query.query(Criteria.where("id").is(restaurantId));
+    restaurant.fields().include("upvoteCount", "downvoteCount");
+    Restaurant stored = mongoTemplate.findOne(restaurant, Restaurant.class);
+    if (stored == null) {
+      throw new RuntimeException("Restaurant not found");
+    }
+    Counts loaded = new Counts(stored.getUpvoteCount(), stored.getDownvoteCount());
+    loaded.touchedAt = System.currentTimeMillis();
+    Counts raced = restaurants.putIfAbsent(restaurantId, loaded);
+    return raced != null ? raced : loaded;
+  }
+
+  /**
+   * Moves a restaurant's counters for one user's vote changing from {@code from}.
+   *
+   * @param newIntent whether the change is a new intent rather than a replaced one, whose pending
+   *     intent already keeps the counters from being evicted
+   * @return the restaurant's counters after the change
+   */
+  private Restaurant move(
+      String restaurantId, Vote.Direction from, Vote.Direction to, boolean newIntent) {
+    Counts counts = counts(restaurantId);
+    while (newIntent) {
+      counts.intents.incrementAndGet();
+      if (!counts.evicted) break;
+      counts.intents.decrementAndGet();
+      counts = counts(restaurantId);
+    }
+    counts.touchedAt = System.currentTimeMillis();
+    if (from != null) {
+      counts.unwritten.decrementAndGet(from.ordinal());
+      counts.current.decrementAndGet(from.ordinal());
+    }
+    if (to != null) {
+      counts.unwritten.incrementAndGet(to.ordinal());
+      counts.current.incrementAndGet(to.ordinal());
+    }
+    Restaurant restaurant = new Restaurant();
+    restaurant.setId(restaurantId);
+    restaurant.setUpvoteCount(counts.current.get(Vote.Direction.UP.ordinal()));
+    restaurant.setDownvoteCount(counts.current.get(Vote.Direction.DOWN.ordinal()));
+    return restaurant;
+  }
+
+  private static void add(Map<String, int[]> increments, String restaurantId, int[] delta) {
+    int[] sum = increments.computeIfAbsent(restaurantId, id -> new int[2]);
+    sum[0] += delta[0];
+    sum[1] += delta[1];
+  }
+
+  private static void overlay(Map<String, Intent> intents, Map<String, Vote.Direction> votes) {
+    intents.forEach(
+        (restaurantId, intent) -> {
+          if (intent.target() == null) {
+            votes.remove(restaurantId);
+          } else {
+            votes.put(restaurantId, intent.target());
+          }
+        });
+  }
+}
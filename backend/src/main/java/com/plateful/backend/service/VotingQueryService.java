@@ -1,22 +1,191 @@
 package com.plateful.backend.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantSummary;
+import com.plateful.backend.dto.VoteListing;
 import com.plateful.backend.model.Restaurant;
-import com.plateful.backend.repository.RestaurantRepository;
+import com.plateful.backend.model.Vote;
+import com.plateful.backend.repository.VoteRepository;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Read side of voting, served from the votes collection: the restaurants a user has voted on, and
+ * the caller's own vote on restaurants being listed.
+ */
 @Service
 @RequiredArgsConstructor
 public class VotingQueryService {
-  private final RestaurantRepository restaurants;
+  private final VoteRepository votes;
+  private final MongoTemplate mongoTemplate;
+  private final VoteWriteBuffer voteWriteBuffer;
 
-  public Page<Restaurant> getUpvotedByUser(String userId, Pageable pageable) {
-    return restaurants.findByUpvoteUserIdsContains(userId, pageable);
+  /** Newest vote first; served by the {@code (user_id, direction, voted_at, _id)} index. */
+  private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "votedAt", "id");
+
+  /** Longest a cached vote total is served before it is counted again. */
+  private static final long TOTAL_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+  /** Totals cached at once; the cache is cleared when it fills up. */
+  private static final int MAX_CACHED_TOTALS = 10_000;
+
+  private record TotalKey(String userId, Vote.Direction direction) {}
+
+  private record Total(long count, long countedAt) {}
+
+  private final ConcurrentHashMap<TotalKey, Total> totals = new ConcurrentHashMap<>();
+
+  public VoteListing getUpvotedByUser(
+      String userId, String cursor, int page, int size, boolean includeTotal) {
+    return votedByUser(userId, Vote.Direction.UP, cursor, page, size, includeTotal);
+  }
+
+  public VoteListing getDownvotedByUser(
+      String userId, String cursor, int page, int size, boolean includeTotal) {
+    return votedByUser(userId, Vote.Direction.DOWN, cursor, page, size, includeTotal);
+  }
+
+  /** Drops a user's cached vote totals; called whenever they vote. */
+  public void forgetTotals(String userId) {
+    for (Vote.Direction direction : Vote.Direction.values()) {
+      totals.remove(new TotalKey(userId, direction));
+    }
+  }
+
+  /**
+   * The caller's votes on the given restaurants, in one indexed query. Skipped (empty) when the
+   * caller is anonymous or selected neither vote flag.
+   *
+   * @return restaurant ID -> the caller's vote; restaurants they have not voted on are absent
+   */
+  public Map<String, Vote.Direction> votesOf(
+      String userId, Collection<String> restaurantIds, RestaurantFields fields) {
+    if (!wantsVoteFlags(userId, fields) || restaurantIds.isEmpty()) return Map.of();
+    return withPending(userId, votes.findByUserIdAndRestaurantIdIn(userId, restaurantIds));
+  }
+
+  /**
+   * Every vote the caller has cast, for listings too long to look up page by page. A user has at
+   * most one vote per restaurant, so this is bounded by the catalog size.
+   */
+  public Map<String, Vote.Direction> votesOf(String userId, RestaurantFields fields) {
+    if (!wantsVoteFlags(userId, fields)) return Map.of();
+    return withPending(userId, votes.findByUserId(userId));
+  }
+
+  /**
+   * One slice of the restaurants a user voted on in {@code direction}, most recent vote first. The
+   * slice of votes is read first, one extra vote telling whether more follow, then its restaurants
+   * in a single {@code $in} query. No count is run unless {@code includeTotal} is set, and then it
+   * comes from {@link #total}.
+   *
+   * @param cursor token from the previous slice; seeks past its last vote instead of skipping
+   * @param page zero-based slice number, used only without a cursor
+   */
+  private VoteListing votedByUser(
+      String userId,
+      Vote.Direction direction,
+      String cursor,
+      int page,
+      int size,
+      boolean includeTotal) {
+    Query slice = Query.query(Criteria.where("userId").is(userId).and("direction").is(direction));
+    String after = CursorPage.decodeCursor(cursor);
+    if (after != null) {
+      Vote last = fromCursorKey(after);
+      slice.addCriteria(
+          new Criteria()
+              .orOperator(
+                  Criteria.where("votedAt").lt(last.getVotedAt()),
+                  Criteria.where("votedAt").is(last.getVotedAt()).and("id").lt(last.getId())));
+    } else {
+      slice.skip((long) page * size);
+    }
+    slice.with(NEWEST_FIRST).limit(size + 1);
+    slice.fields().include("restaurantId", "votedAt");
+    List<Vote> found = mongoTemplate.find(slice, Vote.class);
+    boolean hasNext = found.size() > size;
+    List<Vote> shown = hasNext ? found.subList(0, size) : found;
+    List<String> ids = shown.stream().map(Vote::getRestaurantId).toList();
+
+    Map<String, Restaurant> byId = new HashMap<>();
+    if (!ids.isEmpty()) {
+      Query query =
+          RestaurantProjection.summary(
+              new Query(Criteria.where("id").in(ids)), RestaurantFields.ALL);
+      for (Restaurant r : mongoTemplate.find(query, Restaurant.class)) {
+        byId.put(r.getId(), r);
+      }
+    }
+    List<RestaurantSummary> items =
+        ids.stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
+            .map(r -> RestaurantSummary.from(r, direction))
+            .toList();
+    String nextCursor =
+        hasNext ? CursorPage.encodeCursor(cursorKey(shown.get(shown.size() - 1))) : null;
+    return new VoteListing(
+        items, hasNext, nextCursor, includeTotal ? total(userId, direction) : null);
+  }
+
+  /**
+   * The user's number of votes in one direction, cached per user. Entries are dropped when the
+   * user votes and expire after a few minutes, which covers buffered and other instances' writes.
+   */
+  private long total(String userId, Vote.Direction direction) {
+    TotalKey key = new TotalKey(userId, direction);
+    long now = System.nanoTime();
+    Total cached = totals.get(key);
+    if (cached != null && now - cached.countedAt() < TOTAL_TTL_NANOS) return cached.count();
+
+    long count = votes.countByUserIdAndDirection(userId, direction);
+    if (totals.size() >= MAX_CACHED_TOTALS) totals.clear();
+    totals.put(key, new Total(count, now));
+    return count;
+  }
+
+  /** Sort key of a vote as carried in a cursor: {@code <voted-at millis>_<vote id>}. */
+  private static String cursorKey(Vote vote) {
+    return vote.getVotedAt().toEpochMilli() + "_" + vote.getId();
+  }
+
+  private static Vote fromCursorKey(String key) {
+    int separator = key.indexOf('_');
+    try {
+      Vote vote = new Vote();
+      vote.setVotedAt(Instant.ofEpochMilli(Long.parseLong(key.substring(0, separator))));
+      vote.setId(key.substring(separator + 1));
+      return vote;
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+  }
+
+  private static boolean wantsVoteFlags(String userId, RestaurantFields fields) {
+    return userId != null && (fields.includes("hasUpvoted") || fields.includes("hasDownvoted"));
   }
 
-  public Page<Restaurant> getDownvotedByUser(String userId, Pageable pageable) {
-    return restaurants.findByDownvoteUserIdsContains(userId, pageable);
+  /** Stored votes keyed by restaurant, with the user's still-buffered clicks applied. */
+  private Map<String, Vote.Direction> withPending(String userId, List<Vote> found) {
+    Map<String, Vote.Direction> byRestaurant = new HashMap<>();
+    for (Vote vote : found) {
+      byRestaurant.put(vote.getRestaurantId(), vote.getDirection());
+    }
+    voteWriteBuffer.overlay(userId, byRestaurant);
+    return byRestaurant;
   }
 }
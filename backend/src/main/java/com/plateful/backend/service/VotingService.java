@@ -1,47 +1,72 @@
 package com.plateful.backend.service;
 
 import com.plateful.backend.model.Restaurant;
-import com.plateful.backend.repository.RestaurantRepository;
+import com.plateful.backend.model.Vote;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-/** Service for handling restaurant voting operations. */
+/**
+ * Service for handling restaurant voting operations.
+ *
+ * <p>Each user's vote on a restaurant is one document in the votes collection, keyed by the unique
+ * {@code (user_id, restaurant_id)} index. A vote change is a single atomic upsert (or delete) of
+ * that document which returns the vote it replaced; the restaurant's {@code
+ * upvote_count}/{@code downvote_count} are then moved by exactly that transition with one {@code
+ * $inc}. Concurrent changes to the same vote are serialized by the vote document, so each
+ * transition is counted once. The two writes are not one transaction: a counter update lost to a
+ * crash or timeout leaves the counters off until {@link VoteCountReconciler} repairs them.
+ *
+ * <p>With {@link VoteWriteBuffer} enabled, clicks are only recorded in memory and written in
+ * batches; the counts returned here then include the changes still waiting to be written, and a
+ * click is normally answered without a database read.
+ *
+ * <p>Every change to a restaurant's counts is published as a {@link VoteChangedEvent} and added to
+ * its hourly {@link TrendingService} bucket.
+ */
 @Service
 public class VotingService {
 
-  @Autowired private RestaurantRepository restaurantRepository;
+  /** Most restaurants one {@link #getVoteStatuses} call may ask about. */
+  public static final int MAX_VOTE_STATUS_IDS = 300;
+
+  @Autowired private MongoTemplate mongoTemplate;
+
+  @Autowired private VoteWriteBuffer voteWriteBuffer;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private TrendingService trendingService;
+
+  @Autowired private VotingQueryService votingQueryService;
 
   /**
    * Upvote a restaurant. If user has already downvoted, removes downvote first.
    *
    * @param restaurantId the restaurant ID
    * @param userId the user ID
-   * @return the updated restaurant
+   * @return the restaurant with its updated vote counts
    */
   public Restaurant upvote(String restaurantId, String userId) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(restaurantId)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-
-    // Initialize sets if null
-    if (restaurant.getUpvoteUserIds() == null) {
-      restaurant.setUpvoteUserIds(new HashSet<>());
-    }
-    if (restaurant.getDownvoteUserIds() == null) {
-      restaurant.setDownvoteUserIds(new HashSet<>());
-    }
-
-    // Remove from downvotes if exists (vote switching)
-    restaurant.getDownvoteUserIds().remove(userId);
-
-    // Add to upvotes
-    restaurant.getUpvoteUserIds().add(userId);
-
-    return restaurantRepository.save(restaurant);
+    return applyVote(restaurantId, userId, Vote.Direction.UP);
   }
 
   /**
@@ -49,29 +74,10 @@ public class VotingService {
    *
    * @param restaurantId the restaurant ID
    * @param userId the user ID
-   * @return the updated restaurant
+   * @return the restaurant with its updated vote counts
    */
   public Restaurant downvote(String restaurantId, String userId) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(restaurantId)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-
-    // Initialize sets if null
-    if (restaurant.getUpvoteUserIds() == null) {
-      restaurant.setUpvoteUserIds(new HashSet<>());
-    }
-    if (restaurant.getDownvoteUserIds() == null) {
-      restaurant.setDownvoteUserIds(new HashSet<>());
-    }
-
-    // Remove from upvotes if exists (vote switching)
-    restaurant.getUpvoteUserIds().remove(userId);
-
-    // Add to downvotes
-    restaurant.getDownvoteUserIds().add(userId);
-
-    return restaurantRepository.save(restaurant);
+    return applyVote(restaurantId, userId, Vote.Direction.DOWN);
   }
 
   /**
@@ -79,27 +85,10 @@ public class VotingService {
    *
    * @param restaurantId the restaurant ID
    * @param userId the user ID
-   * @return the updated restaurant
+   * @return the restaurant with its updated vote counts
    */
   public Restaurant removeVote(String restaurantId, String userId) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(restaurantId)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-
-    // Initialize sets if null
-    if (restaurant.getUpvoteUserIds() == null) {
-      restaurant.setUpvoteUserIds(new HashSet<>());
-    }
-    if (restaurant.getDownvoteUserIds() == null) {
-      restaurant.setDownvoteUserIds(new HashSet<>());
-    }
-
-    // Remove from both sets
-    restaurant.getUpvoteUserIds().remove(userId);
-    restaurant.getDownvoteUserIds().remove(userId);
-
-    return restaurantRepository.save(restaurant);
+    return applyVote(restaurantId, userId, null);
   }
 
   /**
@@ -111,27 +100,183 @@ public class VotingService {
    * @return a map containing vote status and counts
    */
   public Map<String, Object> getVoteStatus(String restaurantId, String userId) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(restaurantId)
-            .orElseThrow(() -> new RuntimeException("Restaurant not found"));
-
-    // Initialize sets if null
-    if (restaurant.getUpvoteUserIds() == null) {
-      restaurant.setUpvoteUserIds(new HashSet<>());
+    List<Document> rows = voteStatusRows(List.of(restaurantId), userId);
+    if (rows.isEmpty()) {
+      throw new RuntimeException("Restaurant not found");
+    }
+    return voteStatus(rows.get(0), userId);
+  }
+
+  /**
+   * Get the vote status of several restaurants for one user, e.g. every card on a list screen, from
+   * a single query. Each status is built as in {@link #getVoteStatus}.
+   *
+   * @param restaurantIds the restaurant IDs; blanks and duplicates are ignored
+   * @param userId the user ID (can be null for anonymous users)
+   * @return restaurant ID -> vote status, in request order; unknown restaurants are left out
+   * @throws IllegalArgumentException if more than {@value #MAX_VOTE_STATUS_IDS} IDs are given
+   */
+  public Map<String, Map<String, Object>> getVoteStatuses(
+      List<String> restaurantIds, String userId) {
+    Set<String> ids = new LinkedHashSet<>();
+    for (String id : restaurantIds != null ? restaurantIds : List.<String>of()) {
+      if (id != null && !id.isBlank()) ids.add(id.trim());
+    }
+    if (ids.size() > MAX_VOTE_STATUS_IDS) {
+      throw new IllegalArgumentException(
+          "At most " + MAX_VOTE_STATUS_IDS + " restaurant IDs per request");
+    }
+
+    Map<String, Map<String, Object>> byId = new HashMap<>();
+    if (!ids.isEmpty()) {
+      for (Document row : voteStatusRows(ids, userId)) {
+        byId.put(row.get("_id").toString(), voteStatus(row, userId));
+      }
     }
-    if (restaurant.getDownvoteUserIds() == null) {
-      restaurant.setDownvoteUserIds(new HashSet<>());
+    Map<String, Map<String, Object>> statuses = new LinkedHashMap<>();
+    for (String id : ids) {
+      if (byId.containsKey(id)) statuses.put(id, byId.get(id));
     }
+    return statuses;
+  }
+
+  /**
+   * Reads the vote counters of the given restaurants and the caller's vote on each in one
+   * aggregation. Only {@code upvote_count}/{@code downvote_count} are projected from the
+   * restaurants; membership is checked server-side by a {@code $lookup} of the caller's vote on the
+   * unique {@code (user_id, restaurant_id)} index, returning just its direction.
+   *
+   * @param userId the caller, or null to skip the membership check
+   * @return one row per restaurant found, in no particular order
+   */
+  private List<Document> voteStatusRows(Collection<String> restaurantIds, String userId) {
+    List<AggregationOperation> stages = new ArrayList<>();
+    stages.add(Aggregation.match(Criteria.where("id").in(restaurantIds)));
+    stages.add(
+        context ->
+            new Document(
+                "$project", new Document("upvote_count", 1).append("downvote_count", 1)));
+    if (userId != null) {
+      Document callersVote =
+          new Document("user_id", userId)
+              .append("$expr", new Document("$eq", List.of("$restaurant_id", "$$restaurantId")));
+      stages.add(
+          context ->
+              new Document(
+                  "$lookup",
+                  new Document("from", mongoTemplate.getCollectionName(Vote.class))
+                      .append(
+                          "let",
+                          new Document("restaurantId", new Document("$toString", "$_id")))
+                      .append(
+                          "pipeline",
+                          List.of(
+                              new Document("$match", callersVote),
+                              new Document(
+                                  "$project", new Document("_id", 0).append("direction", 1))))
+                      .append("as", "vote")));
+    }
+    return mongoTemplate
+        .aggregate(Aggregation.newAggregation(stages), Restaurant.class, Document.class)
+        .getMappedResults();
+  }
+
+  /** Builds the vote-status response for one row of {@link #voteStatusRows}. */
+  private Map<String, Object> voteStatus(Document row, String userId) {
+    String restaurantId = row.get("_id").toString();
+    Restaurant counts = new Restaurant();
+    counts.setId(restaurantId);
+    counts.setUpvoteCount(row.getInteger("upvote_count"));
+    counts.setDownvoteCount(row.getInteger("downvote_count"));
+    voteWriteBuffer.withPendingCounts(counts);
+
+    Map<String, Vote.Direction> votes = new HashMap<>();
+    if (userId != null) {
+      List<Document> vote = row.getList("vote", Document.class, List.of());
+      if (!vote.isEmpty()) {
+        votes.put(restaurantId, Vote.Direction.valueOf(vote.get(0).getString("direction")));
+      }
+      voteWriteBuffer.overlay(userId, votes);
+    }
+    Vote.Direction vote = votes.get(restaurantId);
 
     Map<String, Object> status = new HashMap<>();
     // If userId is null (anonymous), user hasn't voted
-    status.put("hasUpvoted", userId != null && restaurant.hasUserUpvoted(userId));
-    status.put("hasDownvoted", userId != null && restaurant.hasUserDownvoted(userId));
-    status.put("upvoteCount", restaurant.getUpvoteCount());
-    status.put("downvoteCount", restaurant.getDownvoteCount());
-    status.put("voteCount", restaurant.getVoteCount());
+    status.put("hasUpvoted", vote == Vote.Direction.UP);
+    status.put("hasDownvoted", vote == Vote.Direction.DOWN);
+    status.put("upvoteCount", counts.getUpvoteCount());
+    status.put("downvoteCount", counts.getDownvoteCount());
+    status.put("voteCount", counts.getVoteCount());
 
     return status;
   }
+
+  /**
+   * Records the user's vote and moves the restaurant's counters by the change it made. Only the
+   * counters are returned.
+   *
+   * @param direction the vote to record, or null to remove the user's vote
+   */
+  private Restaurant applyVote(String restaurantId, String userId, Vote.Direction direction) {
+    votingQueryService.forgetTotals(userId);
+    if (voteWriteBuffer.isEnabled()) {
+      Restaurant counts = voteWriteBuffer.record(restaurantId, userId, direction);
+      eventPublisher.publishEvent(VoteChangedEvent.of(counts));
+      return counts;
+    }
+    Query restaurant = Query.query(Criteria.where("id").is(restaurantId));
+    restaurant.fields().include("upvoteCount", "downvoteCount");
+    Vote.Direction previous = recordVote(restaurantId, userId, direction);
+    int up = indicator(direction, Vote.Direction.UP) - indicator(previous, Vote.Direction.UP);
+    int down = indicator(direction, Vote.Direction.DOWN) - indicator(previous, Vote.Direction.DOWN);
+
+    Restaurant updated =
+        up == 0 && down == 0
+            ? mongoTemplate.findOne(restaurant, Restaurant.class)
+            : mongoTemplate.findAndModify(
+                restaurant,
+                new Update().inc("upvoteCount", up).inc("downvoteCount", down),
+                FindAndModifyOptions.options().returnNew(true),
+                Restaurant.class);
+    if (updated == null) {
+      // No such restaurant: put back the vote that was replaced instead of leaving an orphan
+      recordVote(restaurantId, userId, previous);
+      throw new RuntimeException("Restaurant not found");
+    }
+    if (up != 0 || down != 0) {
+      trendingService.record(restaurantId, up, down);
+      eventPublisher.publishEvent(VoteChangedEvent.of(updated));
+    }
+    return updated;
+  }
+
+  /**
+   * Atomically replaces the user's vote on a restaurant.
+   *
+   * @param direction the new vote, or null to delete it
+   * @return the vote it replaced, or null if there was none
+   */
+  private Vote.Direction recordVote(String restaurantId, String userId, Vote.Direction direction) {
+    Query key =
+        Query.query(Criteria.where("userId").is(userId).and("restaurantId").is(restaurantId));
+    if (direction == null) {
+      Vote removed = mongoTemplate.findAndRemove(key, Vote.class);
+      return removed != null ? removed.getDirection() : null;
+    }
+
+    Update update = Update.update("direction", direction).set("votedAt", Instant.now());
+    FindAndModifyOptions upsert = FindAndModifyOptions.options().upsert(true).returnNew(false);
+    Vote previous;
+    try {
+      previous = mongoTemplate.findAndModify(key, update, upsert, Vote.class);
+    } catch (DuplicateKeyException e) {
+      // A concurrent first vote inserted the document between our lookup and insert; update it
+      previous = mongoTemplate.findAndModify(key, update, upsert, Vote.class);
+    }
+    return previous != null ? previous.getDirection() : null;
+  }
+
+  private static int indicator(Vote.Direction vote, Vote.Direction direction) {
+    return vote == direction ? 1 : 0;
+  }
 }
@@ -7,16 +7,26 @@ package com.plateful.backend;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.plateful.backend.controller.RestaurantController;
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.dto.RestaurantDetail;
+import com.plateful.backend.dto.RestaurantFacets;
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantFilter;
+import com.plateful.backend.dto.RestaurantSummary;
 import com.plateful.backend.model.Restaurant;
 import com.plateful.backend.service.RestaurantSearchService;
 import com.plateful.backend.service.RestaurantService;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,8 +49,6 @@ class RestaurantControllerTest {
 
   @MockBean private RestaurantSearchService searchService;
 
-  @MockBean private com.plateful.backend.repository.RestaurantRepository restaurantRepository; // Mocked repository dependency
-
   // Helper method for quickly creating Restaurant objects
   /**
    * Helper method to create a Restaurant instance for testing.
@@ -60,6 +68,11 @@ class RestaurantControllerTest {
     return x;
   }
 
+  /** Wraps restaurants in a single, final page. */
+  private static CursorPage<RestaurantSummary> page(Restaurant... items) {
+    return new CursorPage<>(List.of(items), null).map(x -> RestaurantSummary.from(x, null));
+  }
+
   /**
    * Tests the GET /api/restaurants endpoint. Verifies that the endpoint returns a list of
    * restaurants in JSON format and that the response contains the expected restaurant data.
@@ -72,16 +85,36 @@ class RestaurantControllerTest {
     r.setDescription("Description example for testing");
     r.setCuisine("Italian");
 
-    when(restaurantService.getAllRestaurants()).thenReturn(List.of(r));
+    when(restaurantService.getRestaurants(null, null, null, RestaurantFields.ALL))
+        .thenReturn(page(r));
 
     mockMvc
         .perform(get("/api/restaurants"))
         .andExpect(status().isOk())
         .andExpect(content().contentTypeCompatibleWith("application/json"))
+        .andExpect(header().doesNotExist(RestaurantController.NEXT_CURSOR_HEADER))
         .andExpect(jsonPath("$[0].name").value("Restaurant Name"))
         .andExpect(jsonPath("$[0].cuisine").value("Italian"));
   }
 
+  /**
+   * Tests keyset pagination on GET /api/restaurants. Verifies that cursor and limit are passed to
+   * the service and that the next-page cursor is returned in a response header.
+   */
+  @Test
+  void list_withCursor_returnsNextCursorHeader() throws Exception {
+    when(restaurantService.getRestaurants("abc", 2, null, RestaurantFields.ALL))
+        .thenReturn(
+            new CursorPage<>(List.of(r("a", "A", "d", "X"), r("b", "B", "d", "Y")), "next")
+                .map(x -> RestaurantSummary.from(x, null)));
+
+    mockMvc
+        .perform(get("/api/restaurants").param("cursor", "abc").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(RestaurantController.NEXT_CURSOR_HEADER, "next"))
+        .andExpect(jsonPath("$", hasSize(2)));
+  }
+
   /**
    * Tests the GET /api/restaurants/{id} endpoint. Verifies that the endpoint returns a single
    * restaurant by ID and the response contains the expected restaurant data.
@@ -91,7 +124,8 @@ class RestaurantControllerTest {
     Restaurant r = new Restaurant();
     r.setId("id234");
     r.setName("One Restaurant");
-    when(restaurantService.getRestaurantById("id234")).thenReturn(java.util.Optional.of(r));
+    when(restaurantService.getRestaurantById("id234", null, RestaurantFields.ALL))
+        .thenReturn(java.util.Optional.of(RestaurantDetail.from(r, null)));
 
     mockMvc
         .perform(get("/api/restaurants/id234"))
@@ -117,6 +151,50 @@ class RestaurantControllerTest {
         .andExpect(jsonPath("$.length()").value(2)); // Should be distinct
   }
 
+  /**
+   * Tests that the cuisine list carries an ETag and that revalidating with it yields 304 without a
+   * body.
+   */
+  @Test
+  void getCuisines_withMatchingEtag_returnsNotModified() throws Exception {
+    when(restaurantService.getCuisineCatalogVersion()).thenReturn(OptionalLong.of(42));
+    when(restaurantService.getAllCuisines()).thenReturn(List.of("Chinese", "Italian"));
+
+    String etag =
+        mockMvc
+            .perform(get("/api/restaurants/cuisines"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    mockMvc
+        .perform(get("/api/restaurants/cuisines").header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+  }
+
+  /**
+   * Tests that the ETag is the catalog version, and that none is sent while the catalog has not
+   * loaded.
+   */
+  @Test
+  void getCuisines_etagFollowsCatalogVersion() throws Exception {
+    when(restaurantService.getCuisineCatalogVersion())
+        .thenReturn(OptionalLong.of(255), OptionalLong.empty());
+    when(restaurantService.getAllCuisines()).thenReturn(List.of("Chinese", "Italian"));
+
+    mockMvc
+        .perform(get("/api/restaurants/cuisines"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"ff\""));
+    mockMvc
+        .perform(get("/api/restaurants/cuisines"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("ETag"));
+  }
+
   /**
    * Tests the GET /api/restaurants/filter endpoint with multiple filter parameters. Verifies that
    * cuisine, price range, and reservation parameters are correctly passed to the
@@ -125,10 +203,8 @@ class RestaurantControllerTest {
   @Test
   void filter_withCuisineAndPriceAndReservation_passesParamsToService() throws Exception {
 
-    when(searchService.filter(any(), any(), any(), any(), any(), any()))
-        .thenReturn(List.of(r("x", "X", "d", "Italian")));
-    when(searchService.filterByTextQuery(any(), any()))
-        .thenReturn(List.of(r("x", "X", "d", "Italian")));
+    when(searchService.filter(any(), any(), any(), any(), any()))
+        .thenReturn(page(r("x", "X", "d", "Italian")));
 
     mockMvc
         .perform(
@@ -141,91 +217,262 @@ class RestaurantControllerTest {
         .andExpect(content().contentTypeCompatibleWith("application/json"))
         .andExpect(jsonPath("$[0].cuisine").value("Italian"));
 
-    ArgumentCaptor<String> cuisine = ArgumentCaptor.forClass(String.class);
-    ArgumentCaptor<Integer> priceMin = ArgumentCaptor.forClass(Integer.class);
-    ArgumentCaptor<Integer> priceMax = ArgumentCaptor.forClass(Integer.class);
-    ArgumentCaptor<Boolean> reservation = ArgumentCaptor.forClass(Boolean.class);
-    ArgumentCaptor<Boolean> openNow = ArgumentCaptor.forClass(Boolean.class);
-    @SuppressWarnings("unchecked")
-    ArgumentCaptor<java.util.List<String>> cities =
-        ArgumentCaptor.forClass((Class) java.util.List.class);
-
+    ArgumentCaptor<RestaurantFilter> filter = ArgumentCaptor.forClass(RestaurantFilter.class);
     verify(searchService)
-        .filter(
-            cuisine.capture(),
-            priceMin.capture(),
-            priceMax.capture(),
-            reservation.capture(),
-            openNow.capture(),
-            cities.capture());
+        .filter(filter.capture(), isNull(), isNull(), isNull(), eq(RestaurantFields.ALL));
 
-    org.junit.jupiter.api.Assertions.assertEquals("Italian", cuisine.getValue());
-    org.junit.jupiter.api.Assertions.assertEquals(Integer.valueOf(2), priceMin.getValue());
-    org.junit.jupiter.api.Assertions.assertEquals(Integer.valueOf(4), priceMax.getValue());
-    org.junit.jupiter.api.Assertions.assertEquals(Boolean.TRUE, reservation.getValue());
-    org.junit.jupiter.api.Assertions.assertNull(openNow.getValue()); // not provided
-    org.junit.jupiter.api.Assertions.assertNull(cities.getValue()); // no ?city= -> null list
+    org.junit.jupiter.api.Assertions.assertEquals("Italian", filter.getValue().cuisine());
+    org.junit.jupiter.api.Assertions.assertEquals(Integer.valueOf(2), filter.getValue().priceMin());
+    org.junit.jupiter.api.Assertions.assertEquals(Integer.valueOf(4), filter.getValue().priceMax());
+    org.junit.jupiter.api.Assertions.assertEquals(Boolean.TRUE, filter.getValue().reservation());
+    org.junit.jupiter.api.Assertions.assertNull(filter.getValue().openAt()); // not provided
+    org.junit.jupiter.api.Assertions.assertNull(filter.getValue().cities()); // no ?city= -> null
   }
 
   /**
-   * Tests the GET /api/restaurants/filter endpoint with openNow parameter. Verifies that the
-   * openNow parameter is correctly passed to the service and the response contains the expected
-   * restaurant data.
+   * Tests the GET /api/restaurants/filter endpoint with openNow parameter. Verifies that openNow is
+   * resolved to the current time before reaching the service and the response contains the
+   * expected restaurant data.
    */
   @Test
   void filter_withOpenNow_true_passesToService() throws Exception {
-    when(searchService.filter(any(), any(), any(), any(), any(), any()))
-        .thenReturn(List.of(r("o", "Open", "d", "Cafe")));
-    when(searchService.filterByTextQuery(any(), any()))
-        .thenReturn(List.of(r("o", "Open", "d", "Cafe")));
+    when(searchService.filter(any(), any(), any(), any(), any()))
+        .thenReturn(page(r("o", "Open", "d", "Cafe")));
 
     mockMvc
         .perform(get("/api/restaurants/filter").param("openNow", "true"))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$[0].name").value("Open"));
 
-    verify(searchService).filter(null, null, null, null, true, null);
+    ArgumentCaptor<RestaurantFilter> filter = ArgumentCaptor.forClass(RestaurantFilter.class);
+    verify(searchService)
+        .filter(filter.capture(), isNull(), isNull(), isNull(), eq(RestaurantFields.ALL));
+    org.junit.jupiter.api.Assertions.assertNotNull(filter.getValue().openAt());
+  }
+
+  /**
+   * Tests the GET /api/restaurants/filter endpoint with openAt parameter. Verifies that a local ISO
+   * date-time is interpreted in New Zealand time and that a malformed value is rejected.
+   */
+  @Test
+  void filter_withOpenAt_passesNzTimeToService() throws Exception {
+    when(searchService.filter(any(), any(), any(), any(), any())).thenReturn(page());
+
+    mockMvc
+        .perform(get("/api/restaurants/filter").param("openAt", "2025-06-06T19:00"))
+        .andExpect(status().isOk());
+
+    RestaurantFilter expected =
+        new RestaurantFilter(
+            null,
+            null,
+            null,
+            null,
+            null,
+            java.time.ZonedDateTime.of(
+                2025, 6, 6, 19, 0, 0, 0, java.time.ZoneId.of("Pacific/Auckland")),
+            null,
+            null,
+            null);
+    verify(searchService)
+        .filter(eq(expected), isNull(), isNull(), isNull(), eq(RestaurantFields.ALL));
+
+    mockMvc
+        .perform(get("/api/restaurants/filter").param("openAt", "friday 7pm"))
+        .andExpect(status().isBadRequest());
   }
 
   /**
-   * Tests the GET /api/restaurants/filter endpoint with query parameter. Verifies that the endpoint
-   * correctly filters restaurants by keyword matching against name, description, and cuisine
-   * fields.
+   * Tests the GET /api/restaurants/filter endpoint with query parameter. Verifies that the keyword
+   * is passed to the service as part of the filter, alongside the paging parameters.
    */
   @Test
-  void filter_withQuery_appliesInMemoryKeywordFilter() throws Exception {
-    // Service returns a base list; controller should then apply keyword filtering on
-    // name/desc/cuisine
-    List<Restaurant> svc =
-        List.of(
-            r("1", "Sushi Place", "Fresh nigiri and rolls", "Japanese"),
-            r("2", "Burger Town", "Burgers & fries", "American"));
-    when(searchService.filter(null, null, null, null, null, null)).thenReturn(svc);
-    when(searchService.filterByTextQuery(svc, "sushi"))
-        .thenReturn(List.of(r("1", "Sushi Place", "Fresh nigiri and rolls", "Japanese")));
+  void filter_withQuery_passesKeywordAndPagingToService() throws Exception {
+    when(searchService.filter(any(), eq("cur"), eq(10), isNull(), any()))
+        .thenReturn(page(r("1", "Sushi Place", "Fresh nigiri and rolls", "Japanese")));
 
     mockMvc
-        .perform(get("/api/restaurants/filter").param("query", "sushi"))
+        .perform(
+            get("/api/restaurants/filter")
+                .param("query", "sushi")
+                .param("cursor", "cur")
+                .param("limit", "10"))
         .andExpect(status().isOk())
         .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
         .andExpect(jsonPath("$", hasSize(1)))
         .andExpect(jsonPath("$[0].name").value("Sushi Place"));
+
+    ArgumentCaptor<RestaurantFilter> filter = ArgumentCaptor.forClass(RestaurantFilter.class);
+    verify(searchService).filter(filter.capture(), eq("cur"), eq(10), isNull(), any());
+    org.junit.jupiter.api.Assertions.assertEquals("sushi", filter.getValue().query());
+  }
+
+  /**
+   * Tests the GET /api/restaurants/filter endpoint with near, radiusKm and sort=distance. Verifies
+   * that the point is parsed as lat,lng, that the distance-ordered search is used, and that each
+   * result carries its distance.
+   */
+  @Test
+  void filter_withNearAndSortDistance_usesDistanceSearch() throws Exception {
+    when(searchService.filterByDistance(any(), any(), any(), any(), any()))
+        .thenReturn(
+            new CursorPage<>(
+                List.of(
+                    RestaurantSummary.from(r("n", "Near", "d", "Cafe"), null).withDistanceKm(1.5)),
+                null));
+
+    mockMvc
+        .perform(
+            get("/api/restaurants/filter")
+                .param("near", "-36.85,174.76")
+                .param("radiusKm", "5")
+                .param("sort", "distance"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].distanceKm").value(1.5));
+
+    ArgumentCaptor<RestaurantFilter> filter = ArgumentCaptor.forClass(RestaurantFilter.class);
+    verify(searchService)
+        .filterByDistance(filter.capture(), isNull(), isNull(), isNull(), eq(RestaurantFields.ALL));
+    org.junit.jupiter.api.Assertions.assertEquals(174.76, filter.getValue().near().getX());
+    org.junit.jupiter.api.Assertions.assertEquals(-36.85, filter.getValue().near().getY());
+    org.junit.jupiter.api.Assertions.assertEquals(5.0, filter.getValue().radiusKm());
+  }
+
+  /** Tests that a malformed near point or a non-positive radius is rejected. */
+  @Test
+  void filter_withInvalidNearOrRadius_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(get("/api/restaurants/filter").param("near", "200,10"))
+        .andExpect(status().isBadRequest());
+    mockMvc
+        .perform(
+            get("/api/restaurants/filter").param("near", "-36.85,174.76").param("radiusKm", "0"))
+        .andExpect(status().isBadRequest());
   }
 
   /**
-   * Tests the GET /api/restaurants/filter endpoint with blank query parameter. Verifies that when a
-   * blank query is provided, the endpoint returns the complete unfiltered list of restaurants from
-   * the service.
+   * Tests the GET /api/restaurants/facets endpoint. Verifies that filter parameters reach the
+   * service and that the facet counts are returned as JSON objects.
    */
   @Test
-  void filter_withBlankQuery_returnsUnfilteredServiceList() throws Exception {
-    List<Restaurant> svc = List.of(r("1", "A", "d", "X"), r("2", "B", "d", "Y"));
-    when(searchService.filter(null, null, null, null, null, null)).thenReturn(svc);
-    when(searchService.filterByTextQuery(svc, "   ")).thenReturn(svc);
+  void facets_returnsCountsForFilter() throws Exception {
+    when(searchService.facets(any()))
+        .thenReturn(
+            new RestaurantFacets(
+                3,
+                Map.of("Thai", 3),
+                Map.of("2", 2, "3", 1),
+                Map.of("Auckland", 3),
+                Map.of("vegan", 1),
+                Map.of("false", 3)));
 
     mockMvc
-        .perform(get("/api/restaurants/filter").param("query", "   "))
+        .perform(get("/api/restaurants/facets").param("cuisine", "Thai").param("city", "Auckland"))
         .andExpect(status().isOk())
-        .andExpect(jsonPath("$", hasSize(2)));
+        .andExpect(jsonPath("$.total").value(3))
+        .andExpect(jsonPath("$.cuisine.Thai").value(3))
+        .andExpect(jsonPath("$.priceLevel.2").value(2));
+
+    ArgumentCaptor<RestaurantFilter> filter = ArgumentCaptor.forClass(RestaurantFilter.class);
+    verify(searchService).facets(filter.capture());
+    org.junit.jupiter.api.Assertions.assertEquals("Thai", filter.getValue().cuisine());
+    org.junit.jupiter.api.Assertions.assertEquals(List.of("Auckland"), filter.getValue().cities());
+  }
+
+  /**
+   * Tests the GET /api/restaurants/stream endpoint. Verifies that filter parameters reach the
+   * service and that each restaurant is written as its own line of NDJSON.
+   */
+  @Test
+  void stream_writesOneJsonObjectPerLine() throws Exception {
+    when(searchService.stream(any(), any(), any()))
+        .thenReturn(
+            java.util.stream.Stream.of(r("1", "A", "d", "Thai"), r("2", "B", "d", "Thai"))
+                .map(x -> RestaurantSummary.from(x, null)));
+
+    org.springframework.test.web.servlet.MvcResult started =
+        mockMvc
+            .perform(get("/api/restaurants/stream").param("cuisine", "Thai"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    String body =
+        mockMvc
+            .perform(
+                org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch(
+                    started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    String[] lines = body.split("\n");
+    org.junit.jupiter.api.Assertions.assertEquals(2, lines.length);
+    org.junit.jupiter.api.Assertions.assertTrue(lines[0].contains("\"id\":\"1\""));
+    org.junit.jupiter.api.Assertions.assertTrue(lines[1].contains("\"id\":\"2\""));
+
+    ArgumentCaptor<RestaurantFilter> filter = ArgumentCaptor.forClass(RestaurantFilter.class);
+    verify(searchService).stream(filter.capture(), isNull(), any());
+    org.junit.jupiter.api.Assertions.assertEquals("Thai", filter.getValue().cuisine());
+  }
+
+  /**
+   * Tests the {@code fields} parameter. Verifies that the selection reaches the service and that
+   * only the requested properties are serialized.
+   */
+  @Test
+  void list_withFields_returnsOnlySelectedProperties() throws Exception {
+    RestaurantFields selection = RestaurantFields.summary(List.of("id", "name"));
+    when(restaurantService.getRestaurants(null, null, null, selection))
+        .thenReturn(page(r("a", "A", "long description", "Thai")));
+
+    mockMvc
+        .perform(get("/api/restaurants").param("fields", "id,name"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].id").value("a"))
+        .andExpect(jsonPath("$[0].name").value("A"))
+        .andExpect(jsonPath("$[0].description").doesNotExist())
+        .andExpect(jsonPath("$[0].voteCount").doesNotExist());
+  }
+
+  /** Tests that a field outside the whitelist is rejected rather than silently ignored. */
+  @Test
+  void list_withUnknownField_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(get("/api/restaurants").param("fields", "id,upvoteUserIds"))
+        .andExpect(status().isBadRequest());
+  }
+
+  /**
+   * Tests the GET /api/restaurants/trending endpoint. Verifies that the parsed window and limit
+   * reach the service and the ranking order is kept.
+   */
+  @Test
+  void trending_returnsRankedRestaurants() throws Exception {
+    when(restaurantService.getTrending(
+            java.time.Duration.ofDays(7), 2, null, RestaurantFields.ALL))
+        .thenReturn(
+            List.of(
+                RestaurantSummary.from(r("b", "B", "d", "X"), null),
+                RestaurantSummary.from(r("a", "A", "d", "Y"), null)));
+
+    mockMvc
+        .perform(get("/api/restaurants/trending").param("window", "7d").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].id").value("b"))
+        .andExpect(jsonPath("$[1].id").value("a"));
+  }
+
+  /** Tests that a malformed or too long trending window is rejected. */
+  @Test
+  void trending_withInvalidWindow_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(get("/api/restaurants/trending").param("window", "yesterday"))
+        .andExpect(status().isBadRequest());
+    mockMvc
+        .perform(get("/api/restaurants/trending").param("window", "30d"))
+        .andExpect(status().isBadRequest());
   }
 }
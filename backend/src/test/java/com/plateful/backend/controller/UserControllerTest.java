@@ -1,6 +1,12 @@
 package com.plateful.backend.controller;
 
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantSummary;
 import com.plateful.backend.model.AppUser;
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import com.plateful.backend.service.HistoryIngestQueue;
+import com.plateful.backend.service.RestaurantService;
 import com.plateful.backend.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -14,8 +20,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +43,12 @@ class UserControllerTest {
     @MockitoBean
     private UserService userService;
 
+    @MockitoBean
+    private HistoryIngestQueue historyQueue;
+
+    @MockitoBean
+    private RestaurantService restaurantService;
+
     private final String userId = "test-user-123";
     private final String restaurantId = "restaurant-1";
 
@@ -43,7 +57,8 @@ class UserControllerTest {
     @Test
     void getFavorites_ShouldReturnListOfFavoriteIds() throws Exception {
         // Arrange
-        List<String> favorites = Arrays.asList("restaurant-1", "restaurant-2", "restaurant-3");
+        Set<String> favorites =
+                new LinkedHashSet<>(Arrays.asList("restaurant-1", "restaurant-2", "restaurant-3"));
         when(userService.getFavorites(userId)).thenReturn(favorites);
 
         // Act & Assert
@@ -63,7 +78,7 @@ class UserControllerTest {
     @Test
     void getFavorites_ShouldReturnEmptyListWhenNoFavorites() throws Exception {
         // Arrange
-        when(userService.getFavorites(userId)).thenReturn(Arrays.asList());
+        when(userService.getFavorites(userId)).thenReturn(Set.of());
 
         // Act & Assert
         mockMvc.perform(get("/api/user/favorites")
@@ -74,12 +89,46 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.length()").value(0));
     }
 
+    @Test
+    void getFavorites_ShouldExpandToSummariesInFavoriteOrder() throws Exception {
+        // Arrange
+        when(userService.getFavorites(userId))
+                .thenReturn(new LinkedHashSet<>(List.of("restaurant-2", "restaurant-1")));
+        when(restaurantService.getSummaries(eq(List.of("restaurant-2", "restaurant-1")),
+                eq(userId), any(RestaurantFields.class)))
+                .thenReturn(List.of(
+                        summary("restaurant-2", Vote.Direction.UP), summary("restaurant-1", null)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/user/favorites")
+                .param("userId", userId)
+                .param("expand", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value("restaurant-2"))
+                .andExpect(jsonPath("$[0].upvoteCount").value(4))
+                .andExpect(jsonPath("$[0].hasUpvoted").value(true))
+                .andExpect(jsonPath("$[1].id").value("restaurant-1"));
+    }
+
+    @Test
+    void getFavorites_ShouldRejectUnknownExpand() throws Exception {
+        // Arrange
+        when(userService.getFavorites(userId)).thenReturn(Set.of(restaurantId));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/user/favorites")
+                .param("userId", userId)
+                .param("expand", "detail"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(restaurantService);
+    }
+
     @Test
     void addFavorite_ShouldReturnSuccessMessage() throws Exception {
         // Arrange
-        AppUser mockUser = new AppUser();
-        mockUser.setId(userId);
-        when(userService.addFavorite(userId, restaurantId)).thenReturn(mockUser);
+        when(userService.addFavorite(userId, restaurantId)).thenReturn(true);
 
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("userId", userId);
@@ -90,7 +139,8 @@ class UserControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestBody)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("Added to favorites"));
+                .andExpect(jsonPath("$.message").value("Added to favorites"))
+                .andExpect(jsonPath("$.changed").value(true));
 
         verify(userService, times(1)).addFavorite(userId, restaurantId);
     }
@@ -98,9 +148,7 @@ class UserControllerTest {
     @Test
     void removeFavorite_ShouldReturnSuccessMessage() throws Exception {
         // Arrange
-        AppUser mockUser = new AppUser();
-        mockUser.setId(userId);
-        when(userService.removeFavorite(userId, restaurantId)).thenReturn(mockUser);
+        when(userService.removeFavorite(userId, restaurantId)).thenReturn(false);
 
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("userId", userId);
@@ -111,7 +159,8 @@ class UserControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestBody)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("Removed from favorites"));
+                .andExpect(jsonPath("$.message").value("Removed from favorites"))
+                .andExpect(jsonPath("$.changed").value(false));
 
         verify(userService, times(1)).removeFavorite(userId, restaurantId);
     }
@@ -125,7 +174,7 @@ class UserControllerTest {
             new AppUser.HistoryEntry("restaurant-1", "Restaurant 1", LocalDateTime.now(), "Details viewed"),
             new AppUser.HistoryEntry("restaurant-2", "Restaurant 2", LocalDateTime.now().minusHours(1), "Details viewed")
         );
-        when(userService.getHistory(userId)).thenReturn(history);
+        when(userService.getHistory(userId, null, null, null, null)).thenReturn(history);
 
         // Act & Assert
         mockMvc.perform(get("/api/user/history")
@@ -138,17 +187,41 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].restaurantName").value("Restaurant 1"))
                 .andExpect(jsonPath("$[1].restaurantId").value("restaurant-2"));
 
-        verify(userService, times(1)).getHistory(userId);
+        verify(userService, times(1)).getHistory(userId, null, null, null, null);
     }
 
     @Test
-    void addToHistory_ShouldReturnSuccessMessage() throws Exception {
+    void getHistory_ShouldPassWindowToService() throws Exception {
         // Arrange
-        AppUser mockUser = new AppUser();
-        mockUser.setId(userId);
-        when(userService.addToHistory(eq(userId), eq(restaurantId), eq("Test Restaurant"), anyString()))
-            .thenReturn(mockUser);
+        LocalDateTime before = LocalDateTime.of(2025, 1, 31, 18, 30, 5);
+        when(userService.getHistory(userId, 20, before, "r9", null)).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/user/history")
+                .param("userId", userId)
+                .param("limit", "20")
+                .param("before", "2025-01-31T18:30:05")
+                .param("beforeId", "r9"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
 
+        verify(userService, times(1)).getHistory(userId, 20, before, "r9", null);
+    }
+
+    @Test
+    void getHistory_ShouldRejectMalformedTimestamp() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/user/history")
+                .param("userId", userId)
+                .param("since", "yesterday"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void addToHistory_ShouldReturnSuccessMessage() throws Exception {
+        // Arrange
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("userId", userId);
         requestBody.put("restaurantId", restaurantId);
@@ -159,19 +232,16 @@ class UserControllerTest {
         mockMvc.perform(post("/api/user/history")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(requestBody)))
-                .andExpect(status().isOk())
+                .andExpect(status().isAccepted())
                 .andExpect(jsonPath("$.message").value("Added to history"));
 
-        verify(userService, times(1)).addToHistory(userId, restaurantId, "Test Restaurant", "Details viewed");
+        verify(historyQueue, times(1)).enqueue(userId, restaurantId, "Test Restaurant", "Details viewed");
+        verifyNoInteractions(userService);
     }
 
     @Test
     void clearHistory_ShouldReturnSuccessMessage() throws Exception {
         // Arrange
-        AppUser mockUser = new AppUser();
-        mockUser.setId(userId);
-        when(userService.clearHistory(userId)).thenReturn(mockUser);
-
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("userId", userId);
 
@@ -201,4 +271,12 @@ class UserControllerTest {
                 .content(objectMapper.writeValueAsString(requestBody)))
                 .andExpect(status().isInternalServerError());
     }
+
+    private static RestaurantSummary summary(String id, Vote.Direction vote) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setName("Restaurant " + id);
+        r.setUpvoteCount(4);
+        return RestaurantSummary.from(r, vote);
+    }
 }
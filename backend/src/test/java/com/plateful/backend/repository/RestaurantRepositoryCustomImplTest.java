@@ -0,0 +1,81 @@
+package com.plateful.backend.repository;
+
+import com.plateful.backend.model.Restaurant;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RestaurantRepositoryCustomImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private RestaurantRepositoryCustomImpl repository;
+
+    @Test
+    void save_ShouldNotWriteStaleVoteCounters() {
+        when(mongoTemplate.getConverter()).thenReturn(
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        when(mongoTemplate.getCollectionName(Restaurant.class)).thenReturn("restaurants");
+        Restaurant stale = new Restaurant();
+        stale.setId("r1");
+        stale.setName("Renamed");
+        stale.setUpvoteCount(3);
+        stale.setDownvoteCount(1);
+
+        repository.save(stale);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(Restaurant.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        Document unset = update.getValue().getUpdateObject().get("$unset", Document.class);
+        assertEquals("Renamed", set.get("name"));
+        for (String counter : List.of("upvote_count", "downvote_count")) {
+            assertFalse(set.containsKey(counter));
+            assertFalse(unset.containsKey(counter));
+        }
+        // A null field is removed, as a replace would
+        assertTrue(unset.containsKey("description"));
+        assertFalse(set.containsKey("_id"));
+        verify(mongoTemplate, never()).save(any());
+        // The write listener still sees the save
+        verify(eventPublisher).publishEvent(any(BeforeConvertEvent.class));
+        verify(eventPublisher).publishEvent(any(AfterSaveEvent.class));
+    }
+
+    @Test
+    void save_ShouldInsertRestaurantWithoutId() {
+        Restaurant fresh = new Restaurant();
+        when(mongoTemplate.insert(fresh)).thenReturn(fresh);
+
+        assertSame(fresh, repository.save(fresh));
+
+        verify(mongoTemplate, never())
+                .upsert(any(Query.class), any(Update.class), eq(Restaurant.class));
+    }
+}
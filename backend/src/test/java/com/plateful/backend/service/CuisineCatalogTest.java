@@ -0,0 +1,80 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuisineCatalogTest {
+
+    private CuisineCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new CuisineCatalog(null);
+        catalog.update(restaurant("r1", "Thai"));
+        catalog.update(restaurant("r2", "Italian"));
+        catalog.update(restaurant("r3", "Thai"));
+    }
+
+    private static Restaurant restaurant(String id, String cuisine) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setCuisine(cuisine);
+        return r;
+    }
+
+    @Test
+    void snapshot_ShouldListSortedCuisinesWithCounts() {
+        assertEquals(List.of("Italian", "Thai"), catalog.snapshot().cuisines());
+        assertEquals(Map.of("Italian", 1, "Thai", 2), catalog.snapshot().counts());
+    }
+
+    @Test
+    void update_ShouldMoveRestaurantToItsNewCuisine() {
+        catalog.update(restaurant("r2", "Thai"));
+
+        assertEquals(List.of("Thai"), catalog.snapshot().cuisines());
+        assertEquals(3, catalog.snapshot().counts().get("Thai"));
+    }
+
+    @Test
+    void update_ShouldKeepSnapshotWhenCuisineUnchanged() {
+        CuisineCatalog.Snapshot before = catalog.snapshot();
+
+        catalog.update(restaurant("r1", "Thai"));
+
+        assertSame(before, catalog.snapshot());
+    }
+
+    @Test
+    void snapshot_ShouldGetHigherVersionOnEveryChange() {
+        long before = catalog.snapshot().version();
+
+        catalog.update(restaurant("r2", "Thai"));
+        long moved = catalog.snapshot().version();
+        catalog.remove("r3");
+
+        assertTrue(moved > before);
+        assertTrue(catalog.snapshot().version() > moved);
+    }
+
+    @Test
+    void update_ShouldIgnoreBlankCuisine() {
+        catalog.update(restaurant("r4", "  "));
+        catalog.update(restaurant("r1", null));
+
+        assertEquals(Map.of("Italian", 1, "Thai", 1), catalog.snapshot().counts());
+    }
+
+    @Test
+    void remove_ShouldDropCuisineWhenLastRestaurantGoes() {
+        catalog.remove("r2");
+
+        assertEquals(List.of("Thai"), catalog.snapshot().cuisines());
+    }
+}
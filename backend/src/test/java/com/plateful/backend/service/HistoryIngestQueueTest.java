@@ -0,0 +1,137 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.AppUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryIngestQueueTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulk;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void flush_ShouldCollapseRepeatedViewsIntoOneUpdatePerUser() {
+        stubBulk();
+        HistoryIngestQueue queue = queue(100);
+
+        assertTrue(queue.enqueue("u1", "r1", "Restaurant 1", null));
+        assertTrue(queue.enqueue("u1", "r1", "Restaurant 1", "Menu viewed"));
+        assertTrue(queue.enqueue("u1", "r2", "Restaurant 2", null));
+        assertTrue(queue.enqueue("u2", "r1", "Restaurant 1", null));
+        assertEquals(3.0, meterRegistry.get("plateful.history.queue.depth").gauge().value());
+
+        queue.flush();
+
+        verify(bulk, times(2)).updateOne(any(Query.class), any(UpdateDefinition.class));
+        verify(bulk).execute();
+        assertEquals(1.0, meterRegistry.get("plateful.history.queue.collapsed").counter().count());
+        assertEquals(0.0, meterRegistry.get("plateful.history.queue.depth").gauge().value());
+        assertEquals(1, meterRegistry.get("plateful.history.flush").timer().count());
+    }
+
+    @Test
+    void enqueue_ShouldDropNewViewsWhileFull() {
+        HistoryIngestQueue queue = queue(2);
+
+        assertTrue(queue.enqueue("u1", "r1", "Restaurant 1", null));
+        assertTrue(queue.enqueue("u1", "r2", "Restaurant 2", null));
+        assertFalse(queue.enqueue("u1", "r3", "Restaurant 3", null));
+        // A repeat view takes no extra room
+        assertTrue(queue.enqueue("u1", "r1", "Restaurant 1", null));
+
+        assertEquals(1.0, dropped("queue_full"));
+        assertEquals(2.0, meterRegistry.get("plateful.history.queue.depth").gauge().value());
+    }
+
+    @Test
+    void flush_ShouldCountViewsOfFailedBatchAsDropped() {
+        stubBulk();
+        when(bulk.execute()).thenThrow(new RuntimeException("connection lost"));
+        HistoryIngestQueue queue = queue(100);
+        queue.enqueue("u1", "r1", "Restaurant 1", null);
+        queue.enqueue("u2", "r2", "Restaurant 2", null);
+
+        queue.flush();
+
+        assertEquals(2.0, dropped("write_failed"));
+        assertEquals(0.0, meterRegistry.get("plateful.history.queue.depth").gauge().value());
+    }
+
+    @Test
+    void discard_ShouldDropOnlyThatUsersViews() {
+        stubBulk();
+        HistoryIngestQueue queue = queue(100);
+        queue.enqueue("u1", "r1", "Restaurant 1", null);
+        queue.enqueue("u1", "r2", "Restaurant 2", null);
+        queue.enqueue("u2", "r1", "Restaurant 1", null);
+
+        assertEquals(2, queue.discard("u1"));
+        assertEquals(1.0, meterRegistry.get("plateful.history.queue.depth").gauge().value());
+
+        queue.flush();
+
+        verify(bulk, times(1)).updateOne(
+                eq(Query.query(Criteria.where("id").is("u2"))), any(UpdateDefinition.class));
+    }
+
+    @Test
+    void flush_ShouldNotWriteWhenNothingQueued() {
+        queue(100).flush();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    /** A queue whose own flusher never fires during a test. */
+    private HistoryIngestQueue queue(int capacity) {
+        return new HistoryIngestQueue(mongoTemplate, meterRegistry, 3_600_000, capacity);
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.get("plateful.history.queue.dropped").tag("reason", reason)
+                .counter().count();
+    }
+
+    private void stubBulk() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter =
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.bulkOps(eq(BulkMode.UNORDERED), eq(AppUser.class))).thenReturn(bulk);
+    }
+}
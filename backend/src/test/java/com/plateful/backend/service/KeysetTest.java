@@ -0,0 +1,50 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.model.Restaurant;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetTest {
+
+    @Test
+    void pageSize_ShouldDefaultWhenNoLimitGiven() {
+        assertEquals(Keyset.DEFAULT_LIMIT, Keyset.pageSize(null));
+    }
+
+    @Test
+    void pageSize_ShouldClampRequestedLimit() {
+        assertEquals(1, Keyset.pageSize(0));
+        assertEquals(Keyset.MAX_LIMIT, Keyset.pageSize(10_000));
+        assertEquals(20, Keyset.pageSize(20));
+    }
+
+    @Test
+    void toPage_ShouldCutExtraRowIntoCursor() {
+        List<Restaurant> rows = List.of(restaurant("r1"), restaurant("r2"), restaurant("r3"));
+
+        CursorPage<Restaurant> page = Keyset.toPage(rows, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals("r2", CursorPage.decodeCursor(page.nextCursor()));
+        assertNull(Keyset.toPage(rows.subList(0, 2), 2).nextCursor());
+    }
+
+    @Test
+    void seek_ShouldStartAfterCursorAndKeepOneExtraId() {
+        TreeSet<String> ids = new TreeSet<>(List.of("r1", "r2", "r3", "r4"));
+
+        assertEquals(List.of("r2", "r3"), Keyset.seek(ids, CursorPage.encodeCursor("r1"), 1));
+        assertEquals(List.of("r1", "r2", "r3", "r4"), Keyset.seek(ids, null, Keyset.MAX_LIMIT));
+    }
+
+    private static Restaurant restaurant(String id) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        return r;
+    }
+}
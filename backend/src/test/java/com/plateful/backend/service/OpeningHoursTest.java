@@ -0,0 +1,87 @@
+package com.plateful.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningHoursTest {
+
+    private static final ZoneId NZ = ZoneId.of("Pacific/Auckland");
+
+    // 2025-06-02 is a Monday
+    private static ZonedDateTime at(int dayOffset, int hour, int minute) {
+        return ZonedDateTime.of(2025, 6, 2 + dayOffset, hour, minute, 0, 0, NZ);
+    }
+
+    @Test
+    void isOpenAt_ShouldRespectSameDaySpan() {
+        OpeningHours hours = OpeningHours.compile(Map.of("monday", "09:00-17:00"));
+
+        assertFalse(hours.isOpenAt(at(0, 8, 59)));
+        assertTrue(hours.isOpenAt(at(0, 9, 0)));
+        assertTrue(hours.isOpenAt(at(0, 16, 59)));
+        assertFalse(hours.isOpenAt(at(0, 17, 0)));
+        assertFalse(hours.isOpenAt(at(1, 10, 0)));
+    }
+
+    @Test
+    void isOpenAt_ShouldCarryOvernightSpanIntoNextDay() {
+        OpeningHours hours = OpeningHours.compile(Map.of("friday", "22:00-02:00"));
+
+        assertTrue(hours.isOpenAt(at(4, 23, 30)));
+        assertTrue(hours.isOpenAt(at(5, 1, 59)));
+        assertFalse(hours.isOpenAt(at(5, 2, 0)));
+        // Friday early morning belongs to Thursday night, which has no hours
+        assertFalse(hours.isOpenAt(at(4, 1, 0)));
+    }
+
+    @Test
+    void isOpenAt_ShouldWrapSundayNightIntoMonday() {
+        OpeningHours hours = OpeningHours.compile(Map.of("sunday", "20:00-01:00"));
+
+        assertTrue(hours.isOpenAt(at(6, 21, 0)));
+        assertTrue(hours.isOpenAt(at(0, 0, 30)));
+        assertFalse(hours.isOpenAt(at(0, 1, 0)));
+    }
+
+    @Test
+    void compile_ShouldSupportMultipleSpansAndMidnightEnd() {
+        OpeningHours hours = OpeningHours.compile(Map.of("tuesday", "11:00-14:00, 17:00-24:00"));
+
+        assertTrue(hours.isOpenAt(at(1, 12, 0)));
+        assertFalse(hours.isOpenAt(at(1, 15, 0)));
+        assertTrue(hours.isOpenAt(at(1, 23, 59)));
+        assertFalse(hours.isOpenAt(at(2, 0, 0)));
+    }
+
+    @Test
+    void compile_ShouldReportUnparseableEntries() {
+        OpeningHours hours = OpeningHours.compile(Map.of("monday", "9am-5pm", "funday", "09:00-17:00"));
+
+        assertEquals(2, hours.problems().size());
+        assertFalse(hours.isOpenAt(at(0, 12, 0)));
+    }
+
+    @Test
+    void compile_ShouldTreatMissingOrClosedAsClosed() {
+        assertFalse(OpeningHours.compile(null).isOpenAt(at(0, 12, 0)));
+        OpeningHours closed = OpeningHours.compile(Map.of("monday", "Closed"));
+        assertFalse(closed.isOpenAt(at(0, 12, 0)));
+        assertTrue(closed.problems().isEmpty());
+    }
+
+    @Test
+    void intervals_ShouldSplitSpanThatWrapsPastSundayMidnight() {
+        var intervals = OpeningHours.compile(Map.of("sunday", "22:00-02:00")).intervals();
+
+        assertEquals(2, intervals.size());
+        assertEquals(0, intervals.get(0).getStart());
+        assertEquals(120, intervals.get(0).getEnd());
+        assertEquals(6 * OpeningHours.MINUTES_PER_DAY + 22 * 60, intervals.get(1).getStart());
+        assertEquals(OpeningHours.MINUTES_PER_WEEK, intervals.get(1).getEnd());
+    }
+}
@@ -0,0 +1,87 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RestaurantMaintenanceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOps;
+
+    @Test
+    void ensureRestaurantIndexes_ShouldCreateOpenIntervalsIndex() {
+        List<IndexDefinition> created = ensureIndexes();
+
+        IndexDefinition openIntervals = created.stream()
+                .filter(i -> "ix_open_intervals".equals(i.getIndexOptions().get("name")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("ix_open_intervals not created"));
+        assertEquals(new Document("open_intervals.start", 1).append("open_intervals.end", 1),
+                openIntervals.getIndexKeys());
+    }
+
+    @Test
+    void ensureRestaurantIndexes_ShouldCreateGeoAndTagIndexesButNoTextIndex() {
+        List<IndexDefinition> created = ensureIndexes();
+
+        assertTrue(created.stream()
+                .anyMatch(i -> "2dsphere".equals(i.getIndexKeys().get("location"))));
+        assertTrue(created.stream().anyMatch(i -> i.getIndexKeys().containsKey("tags")));
+        assertTrue(created.stream().noneMatch(i -> i.getIndexKeys().containsValue("text")));
+    }
+
+    @Test
+    void ensureRestaurantIndexes_ShouldCreateRemainingIndexesWhenOneFails() {
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        when(mongoTemplate.indexOps(Restaurant.class)).thenReturn(indexOps);
+        doThrow(new RuntimeException("IndexOptionsConflict")).doReturn("ok")
+                .when(indexOps).createIndex(any(IndexDefinition.class));
+
+        new RestaurantMaintenance(mongoTemplate).ensureRestaurantIndexes();
+
+        // Every index after the failed first one is still attempted
+        long declared = StreamSupport.stream(IndexResolver.create(converter().getMappingContext())
+                        .resolveIndexFor(Restaurant.class).spliterator(), false)
+                .filter(i -> !i.getIndexKeys().containsValue("text"))
+                .count();
+        verify(indexOps, times((int) declared)).createIndex(any(IndexDefinition.class));
+    }
+
+    private List<IndexDefinition> ensureIndexes() {
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        when(mongoTemplate.indexOps(Restaurant.class)).thenReturn(indexOps);
+
+        new RestaurantMaintenance(mongoTemplate).ensureRestaurantIndexes();
+
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOps, atLeastOnce()).createIndex(index.capture());
+        return index.getAllValues();
+    }
+
+    private static MappingMongoConverter converter() {
+        return new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+    }
+}
@@ -0,0 +1,162 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.dto.RestaurantFacets;
+import com.plateful.backend.dto.RestaurantFields;
+import com.plateful.backend.dto.RestaurantFilter;
+import com.plateful.backend.dto.RestaurantSummary;
+import com.plateful.backend.model.Restaurant;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RestaurantSearchServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    private final VotingQueryService votingQueryService = mock(VotingQueryService.class);
+
+    private static final Point AUCKLAND = new Point(174.7633, -36.8485);
+    private static final Point WELLINGTON = new Point(174.7762, -41.2865);
+
+    @Test
+    void distanceKm_ShouldReturnGreatCircleDistance() {
+        assertEquals(493.5, RestaurantSearchService.distanceKm(AUCKLAND, WELLINGTON), 1.0);
+        assertEquals(0.0, RestaurantSearchService.distanceKm(AUCKLAND, AUCKLAND), 1e-9);
+        assertNull(RestaurantSearchService.distanceKm(AUCKLAND, null));
+    }
+
+    @Test
+    void parseNear_ShouldReadLatitudeThenLongitude() {
+        Point p = RestaurantSearchService.parseNear("-36.8485, 174.7633");
+
+        assertEquals(174.7633, p.getX());
+        assertEquals(-36.8485, p.getY());
+        assertNull(RestaurantSearchService.parseNear(" "));
+    }
+
+    @Test
+    void parseNear_ShouldRejectMalformedOrOutOfRangeValues() {
+        assertThrows(IllegalArgumentException.class, () -> RestaurantSearchService.parseNear("abc"));
+        assertThrows(IllegalArgumentException.class, () -> RestaurantSearchService.parseNear("1,2,3"));
+        assertThrows(IllegalArgumentException.class, () -> RestaurantSearchService.parseNear("91,0"));
+    }
+
+    @Test
+    void buildFilterCriteria_ShouldSendTextMatchesAsIdList() {
+        RestaurantSearchService service = serviceWithRestaurants(3);
+
+        Document query = criteria(service, filter("pizza"));
+
+        assertTrue(query.toJson().contains("\"$in\""));
+        assertFalse(query.toString().contains("\\Qpizza\\E"));
+    }
+
+    @Test
+    void buildFilterCriteria_ShouldLeaveBroadTextMatchesToChunks() {
+        RestaurantSearchService service =
+                serviceWithRestaurants(RestaurantSearchService.MAX_TEXT_IDS + 1);
+
+        Document query = criteria(service, filter("pizza"));
+
+        // Neither one huge $in nor a substring regex with different semantics
+        assertFalse(query.toJson().contains("\"$in\""));
+        assertFalse(query.toString().contains("\\Qpizza\\E"));
+    }
+
+    @Test
+    void filter_ShouldPageBroadTextMatchesInIdChunks() {
+        RestaurantSearchService service =
+                serviceWithRestaurants(RestaurantSearchService.MAX_TEXT_IDS * 2 + 500);
+        // The other criteria only let these through
+        Set<String> others = Set.of("r0", "r1500", "r2000", "r2499");
+        List<List<String>> chunks = new ArrayList<>();
+        when(mongoTemplate.find(any(Query.class), eq(Restaurant.class))).thenAnswer(inv -> {
+            Query q = inv.getArgument(0);
+            List<String> ids = new ArrayList<>(inIds(q));
+            chunks.add(ids);
+            return ids.stream().filter(others::contains).sorted().limit(q.getLimit())
+                    .map(RestaurantSearchServiceTest::pizzeria).toList();
+        });
+
+        CursorPage<RestaurantSummary> first =
+                service.filter(filter("pizza"), null, 3, null, RestaurantFields.ALL);
+
+        assertEquals(List.of("r0", "r1500", "r2000"), ids(first));
+        assertTrue(chunks.stream().allMatch(c -> c.size() <= RestaurantSearchService.MAX_TEXT_IDS));
+        assertEquals(2, chunks.size());
+
+        CursorPage<RestaurantSummary> second =
+                service.filter(filter("pizza"), first.nextCursor(), 3, null, RestaurantFields.ALL);
+
+        assertEquals(List.of("r2499"), ids(second));
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void facets_ShouldCountTagsCaseInsensitively() {
+        RestaurantSearchService service = serviceWithRestaurants(0);
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(
+                aggregation.capture(), eq(Restaurant.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("tags", List.of(
+                        new Document("_id", "vegan").append("count", 3)))), new Document()));
+
+        RestaurantFacets facets = service.facets(filter(null));
+
+        assertEquals(Map.of("vegan", 3), facets.tags());
+        String pipeline = aggregation.getValue()
+                .toDocument("restaurants", Aggregation.DEFAULT_CONTEXT).toJson();
+        assertTrue(pipeline.contains("{\"$toLower\": {\"$trim\": {\"input\": \"$tags\"}}}"));
+    }
+
+    private RestaurantSearchService serviceWithRestaurants(int pizzerias) {
+        when(mongoTemplate.stream(any(Query.class), eq(Restaurant.class)))
+                .thenReturn(IntStream.range(0, pizzerias).mapToObj(i -> pizzeria("r" + i)));
+        RestaurantTextIndex textIndex = new RestaurantTextIndex(mongoTemplate);
+        textIndex.rebuild();
+        return new RestaurantSearchService(mongoTemplate, textIndex, null, votingQueryService);
+    }
+
+    private static Document criteria(RestaurantSearchService service, RestaurantFilter filter) {
+        return service.buildFilterCriteria(filter, service.textMatches(filter)).getCriteriaObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> inIds(Query query) {
+        return (Collection<String>) query.getQueryObject().get("id", Document.class).get("$in");
+    }
+
+    private static List<String> ids(CursorPage<RestaurantSummary> page) {
+        return page.items().stream().map(RestaurantSummary::id).toList();
+    }
+
+    private static RestaurantFilter filter(String query) {
+        return new RestaurantFilter(query, null, null, null, null, null, List.of(), null, null);
+    }
+
+    private static Restaurant pizzeria(String id) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setName("Pizza " + id);
+        return r;
+    }
+}
@@ -0,0 +1,94 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.CursorPage;
+import com.plateful.backend.model.Restaurant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestaurantTagIndexTest {
+
+    private RestaurantTagIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RestaurantTagIndex(null);
+        index.index(restaurant("r1", "Vegan", "Date Night"));
+        index.index(restaurant("r2", "family", "vegan"));
+        index.index(restaurant("r3", "takeaway"));
+    }
+
+    private static Restaurant restaurant(String id, String... tags) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setTags(List.of(tags));
+        return r;
+    }
+
+    private List<String> match(List<String> any, List<String> all) {
+        return index.seek(any, all, null, Keyset.MAX_LIMIT);
+    }
+
+    @Test
+    void match_ShouldOrAnyTagsCaseInsensitively() {
+        assertEquals(List.of("r1", "r2", "r3"), match(List.of("VEGAN", "takeaway"), null));
+    }
+
+    @Test
+    void match_ShouldAndAllTags() {
+        assertEquals(List.of("r2"), match(null, List.of("vegan", "Family")));
+        assertEquals(List.of(), match(null, List.of("vegan", "unknown")));
+    }
+
+    @Test
+    void match_ShouldCombineAnyAndAll() {
+        assertEquals(List.of("r1"), match(List.of("date night", "takeaway"), List.of("vegan")));
+    }
+
+    @Test
+    void match_ShouldReturnEverythingWithoutTags() {
+        assertEquals(List.of("r1", "r2", "r3"), match(List.of(" "), List.of()));
+    }
+
+    @Test
+    void index_ShouldRetractTagsRemovedOnUpdate() {
+        index.index(restaurant("r1", "takeaway"));
+
+        assertEquals(List.of("r2"), match(List.of("vegan"), null));
+        assertEquals(List.of("r1", "r3"), match(List.of("takeaway"), null));
+    }
+
+    @Test
+    void remove_ShouldDropRestaurantFromEveryTag() {
+        index.remove("r2");
+
+        assertEquals(List.of("r1"), match(List.of("vegan", "family"), null));
+        assertEquals(List.of("r1", "r3"), match(null, null));
+    }
+
+    @Test
+    void seek_ShouldReturnLimitPlusOneMatchesAfterCursor() {
+        index.index(restaurant("r4", "vegan"));
+        index.index(restaurant("r0", "vegan"));
+
+        assertEquals(List.of("r0", "r1", "r2"), index.seek(List.of("vegan"), null, null, 2));
+        assertEquals(List.of("r2", "r4"),
+                index.seek(List.of("vegan"), null, CursorPage.encodeCursor("r1"), 2));
+        assertEquals(List.of("r3", "r4"), index.seek(null, null, CursorPage.encodeCursor("r2"), 5));
+    }
+
+    @Test
+    void seek_ShouldPageSparseMatchesInIdOrder() {
+        for (int i = 10; i < 10 + RestaurantTagIndex.SPARSE_RATIO * 4; i++) {
+            index.index(restaurant("r" + i, "plain"));
+        }
+        index.index(restaurant("r05", "rare"));
+
+        assertEquals(List.of("r05", "r3"), index.seek(List.of("rare", "takeaway"), null, null, 5));
+        assertEquals(List.of("r3"),
+                index.seek(List.of("rare", "takeaway"), null, CursorPage.encodeCursor("r05"), 5));
+    }
+}
@@ -0,0 +1,106 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RestaurantTextIndexTest {
+
+    private RestaurantTextIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RestaurantTextIndex(null);
+        index.index(restaurant("r1", "Sushi Place", "Fresh nigiri and rolls", "Japanese", List.of("Date Night")));
+        index.index(restaurant("r2", "Burger Town", "Burgers & fries", "American", List.of("family")));
+        index.index(restaurant("r3", "Sushi Express", "Quick rolls to go", "Japanese", List.of("takeaway")));
+    }
+
+    private static Restaurant restaurant(String id, String name, String desc, String cuisine, List<String> tags) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setName(name);
+        r.setDescription(desc);
+        r.setCuisine(cuisine);
+        r.setTags(tags);
+        return r;
+    }
+
+    @Test
+    void search_ShouldMatchTokensCaseInsensitively() {
+        assertEquals(List.of("r1", "r3"), List.copyOf(index.search("SUSHI")));
+    }
+
+    @Test
+    void search_ShouldTreatEachWordAsPrefix() {
+        assertEquals(List.of("r2"), List.copyOf(index.search("burg")));
+        assertEquals(List.of("r1", "r3"), List.copyOf(index.search("jap")));
+    }
+
+    @Test
+    void search_ShouldIntersectAllWords() {
+        assertEquals(List.of("r3"), List.copyOf(index.search("sushi quick")));
+        assertTrue(index.search("sushi burger").isEmpty());
+    }
+
+    @Test
+    void search_ShouldMatchTags() {
+        assertEquals(List.of("r1"), List.copyOf(index.search("date night")));
+    }
+
+    @Test
+    void index_ShouldReplaceStaleTermsOnUpdate() {
+        index.index(restaurant("r2", "Taco Town", "Tacos", "Mexican", null));
+
+        assertTrue(index.search("burger").isEmpty());
+        assertEquals(List.of("r2"), List.copyOf(index.search("taco")));
+    }
+
+    @Test
+    void remove_ShouldDropRestaurantFromResults() {
+        index.remove("r1");
+
+        assertEquals(List.of("r3"), List.copyOf(index.search("sushi")));
+    }
+
+    @Test
+    void search_ShouldReturnEmptyForBlankOrPunctuationOnlyQuery() {
+        assertTrue(index.search("   ").isEmpty());
+        assertTrue(index.search("&&").isEmpty());
+    }
+
+    @Test
+    void rebuild_ShouldKeepWritesMadeWhileLoading() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        RestaurantTextIndex rebuilt = new RestaurantTextIndex(mongoTemplate);
+        Restaurant stale = restaurant("r1", "Sushi Place", null, "Japanese", List.of());
+        Restaurant renamed = restaurant("r1", "Taco Place", null, "Mexican", List.of());
+        Restaurant deleted = restaurant("r2", "Burger Town", null, "American", List.of());
+        // Both writes land after the load has read r1 but before it reads r2
+        when(mongoTemplate.stream(any(Query.class), eq(Restaurant.class)))
+                .thenReturn(Stream.of(stale, deleted).peek(r -> {
+                    if (r == stale) {
+                        rebuilt.index(renamed);
+                        rebuilt.remove("r2");
+                    }
+                }));
+
+        rebuilt.rebuild();
+
+        assertTrue(rebuilt.isReady());
+        assertEquals(List.of("r1"), List.copyOf(rebuilt.search("taco")));
+        assertTrue(rebuilt.search("sushi").isEmpty());
+        assertTrue(rebuilt.search("burger").isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package com.plateful.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenReportWait() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 2 * SECOND, 100, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("u1"));
+        assertEquals(0, limiter.tryAcquire("u1"));
+        assertEquals(0, limiter.tryAcquire("u1"));
+        assertEquals(2 * SECOND, limiter.tryAcquire("u1"));
+
+        // Other users have their own bucket
+        assertEquals(0, limiter.tryAcquire("u2"));
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillOverTime() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, SECOND, 100, clock::get);
+        limiter.tryAcquire("u1");
+        limiter.tryAcquire("u1");
+        assertTrue(limiter.tryAcquire("u1") > 0);
+
+        clock.addAndGet(SECOND);
+        assertEquals(0, limiter.tryAcquire("u1"));
+        assertTrue(limiter.tryAcquire("u1") > 0);
+    }
+
+    @Test
+    void tryAcquire_ShouldNotChargeRejectedRequests() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, SECOND, 100, clock::get);
+        limiter.tryAcquire("u1");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(SECOND, limiter.tryAcquire("u1"));
+        }
+
+        clock.addAndGet(SECOND);
+        assertEquals(0, limiter.tryAcquire("u1"));
+    }
+
+    @Test
+    void tryAcquire_ShouldEvictIdleUsersWhenFull() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, SECOND, 2, clock::get);
+        limiter.tryAcquire("u1");
+        limiter.tryAcquire("u2");
+        assertEquals(2, limiter.trackedKeys());
+
+        // Both buckets have refilled, so a new user displaces them
+        clock.addAndGet(SECOND);
+        assertEquals(0, limiter.tryAcquire("u3"));
+        assertEquals(1, limiter.trackedKeys());
+    }
+
+    @Test
+    void tryAcquire_ShouldStayBoundedWhenAllUsersActive() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, SECOND, 2, clock::get);
+        limiter.tryAcquire("u1");
+        limiter.tryAcquire("u2");
+
+        // No room and nobody idle: the newcomer is let through without being tracked
+        assertEquals(0, limiter.tryAcquire("u3"));
+        assertEquals(0, limiter.tryAcquire("u3"));
+        assertEquals(2, limiter.trackedKeys());
+        assertTrue(limiter.tryAcquire("u1") > 0);
+    }
+
+    @Test
+    void tryAcquire_ShouldSweepIdleUsersPeriodically() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, SECOND, 100, clock::get);
+        limiter.tryAcquire("u1");
+        limiter.tryAcquire("u2");
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        limiter.tryAcquire("u3");
+        assertEquals(1, limiter.trackedKeys());
+    }
+}
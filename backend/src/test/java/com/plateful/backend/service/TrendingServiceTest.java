@@ -0,0 +1,178 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.VoteActivity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingServiceTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T12:30:00Z");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulk;
+
+    private final MutableClock clock = new MutableClock();
+
+    private TrendingService service() {
+        return new TrendingService(
+                mongoTemplate, Duration.ofHours(6), Duration.ofMinutes(1), clock);
+    }
+
+    @Test
+    void trending_ShouldRankByDecayedNetVotes() {
+        List<VoteActivity> buckets = List.of(
+                bucket("fresh", 0, 4, 0),
+                bucket("old-but-big", 12, 10, 0),   // 10 * 0.25
+                bucket("disliked", 0, 3, 5),
+                bucket("recent", 1, 3, 0),          // 3 * 0.5^(1/6)
+                bucket("fresh", 2, 0, 1));
+        when(mongoTemplate.stream(any(Query.class), eq(VoteActivity.class)))
+                .thenAnswer(inv -> buckets.stream());
+
+        TrendingService service = service();
+
+        assertEquals(List.of("fresh", "recent", "old-but-big"),
+                service.trending(Duration.ofHours(24), null));
+        assertEquals(List.of("fresh"), service.trending(Duration.ofHours(24), 1));
+    }
+
+    @Test
+    void trending_ShouldCacheRankingUntilRefresh() {
+        when(mongoTemplate.stream(any(Query.class), eq(VoteActivity.class)))
+                .thenAnswer(inv -> List.of(bucket("r1", 0, 1, 0)).stream());
+        TrendingService service = service();
+
+        service.trending(Duration.ofHours(24), 10);
+        service.trending(Duration.ofHours(24), 5);
+        verify(mongoTemplate, times(1)).stream(any(Query.class), eq(VoteActivity.class));
+
+        // Windows are ranked separately
+        service.trending(Duration.ofDays(7), 5);
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(VoteActivity.class));
+
+        clock.now = NOW.plus(2, ChronoUnit.MINUTES);
+        service.trending(Duration.ofHours(24), 10);
+        verify(mongoTemplate, times(3)).stream(any(Query.class), eq(VoteActivity.class));
+    }
+
+    @Test
+    void trending_ShouldServeExpiredRankingWhileAnotherCallerRefreshesIt() throws Exception {
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mongoTemplate.stream(any(Query.class), eq(VoteActivity.class)))
+                .thenAnswer(inv -> List.of(bucket("old", 0, 1, 0)).stream())
+                .thenAnswer(inv -> {
+                    refreshing.countDown();
+                    release.await();
+                    return List.of(bucket("new", 0, 1, 0)).stream();
+                })
+                .thenAnswer(inv -> List.<VoteActivity>of().stream());
+        TrendingService service = service();
+        service.trending(Duration.ofHours(24), 10);
+        clock.now = NOW.plus(2, ChronoUnit.MINUTES);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<String>> refresh =
+                    executor.submit(() -> service.trending(Duration.ofHours(24), 10));
+            assertTrue(refreshing.await(5, TimeUnit.SECONDS));
+
+            // Neither blocked behind the refresh nor computing a second one
+            assertEquals(List.of("old"), service.trending(Duration.ofHours(24), 10));
+            // Other windows are not held up either
+            service.trending(Duration.ofDays(7), 10);
+
+            release.countDown();
+            assertEquals(List.of("new"), refresh.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of("new"), service.trending(Duration.ofHours(24), 10));
+            verify(mongoTemplate, times(3)).stream(any(Query.class), eq(VoteActivity.class));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void record_ShouldIncrementCurrentHourBucket() {
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, VoteActivity.class)).thenReturn(bulk);
+
+        service().record("r1", 1, -1);
+
+        verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+        verify(bulk).execute();
+    }
+
+    @Test
+    void record_ShouldIgnoreNoChange() {
+        service().record("r1", 0, 0);
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void parseWindow_ShouldAcceptHoursAndDays() {
+        assertEquals(Duration.ofHours(24), TrendingService.parseWindow(null));
+        assertEquals(Duration.ofHours(6), TrendingService.parseWindow("6h"));
+        assertEquals(Duration.ofDays(7), TrendingService.parseWindow("7D"));
+        assertThrows(IllegalArgumentException.class, () -> TrendingService.parseWindow("0h"));
+        assertThrows(IllegalArgumentException.class, () -> TrendingService.parseWindow("8d"));
+        assertThrows(IllegalArgumentException.class, () -> TrendingService.parseWindow("PT1H"));
+    }
+
+    private static VoteActivity bucket(String restaurantId, int hoursAgo, int up, int down) {
+        VoteActivity b = new VoteActivity();
+        b.setRestaurantId(restaurantId);
+        b.setHour(VoteActivity.hourOf(NOW).minus(hoursAgo, ChronoUnit.HOURS));
+        b.setUp(up);
+        b.setDown(down);
+        return b;
+    }
+
+    private static class MutableClock extends Clock {
+        Instant now = NOW;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
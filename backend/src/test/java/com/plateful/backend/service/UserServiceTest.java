@@ -1,27 +1,47 @@
 package com.plateful.backend.service;
 
+import com.mongodb.client.result.UpdateResult;
 import com.plateful.backend.model.AppUser;
-import com.plateful.backend.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
 
     @Mock
-    private UserRepository userRepository;
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private HistoryIngestQueue historyQueue;
 
     @InjectMocks
     private UserService userService;
@@ -36,100 +56,95 @@ class UserServiceTest {
         testUser = new AppUser();
         testUser.setId(userId);
         testUser.setEmail("test@example.com");
-        testUser.setFavoriteRestaurantIds(new ArrayList<>());
+        testUser.setFavoriteRestaurantIds(new LinkedHashSet<>());
         testUser.setBrowseHistory(new ArrayList<>());
     }
 
     // ========== Favorites Tests ==========
 
     @Test
-    void addFavorite_ShouldAddRestaurantToFavorites() {
+    void addFavorite_ShouldAddRestaurantWithAtomicUpdate() {
         // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AppUser.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // Act
-        AppUser result = userService.addFavorite(userId, restaurantId1);
+        boolean changed = userService.addFavorite(userId, restaurantId1);
 
         // Assert
-        assertNotNull(result);
-        assertTrue(result.getFavoriteRestaurantIds().contains(restaurantId1));
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(testUser);
+        assertTrue(changed);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(AppUser.class));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$addToSet"));
+        verifyNoMoreInteractions(mongoTemplate);
     }
 
     @Test
-    void addFavorite_ShouldNotAddDuplicateFavorite() {
-        // Arrange
-        testUser.getFavoriteRestaurantIds().add(restaurantId1);
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+    void addFavorite_ShouldReportUnchangedForDuplicate() {
+        // Arrange: $addToSet of an existing member matches but modifies nothing
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AppUser.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 0L, null));
 
-        // Act
-        AppUser result = userService.addFavorite(userId, restaurantId1);
-
-        // Assert
-        assertNotNull(result);
-        assertEquals(1, result.getFavoriteRestaurantIds().size());
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, never()).save(any(AppUser.class));
+        // Act & Assert
+        assertFalse(userService.addFavorite(userId, restaurantId1));
+        verify(mongoTemplate, never()).save(any(AppUser.class));
     }
 
     @Test
     void addFavorite_ShouldThrowExceptionWhenUserNotFound() {
         // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AppUser.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
         // Act & Assert
-        assertThrows(RuntimeException.class, () -> 
+        assertThrows(RuntimeException.class, () ->
             userService.addFavorite(userId, restaurantId1)
         );
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, never()).save(any(AppUser.class));
     }
 
     @Test
-    void removeFavorite_ShouldRemoveRestaurantFromFavorites() {
+    void removeFavorite_ShouldPullRestaurantFromFavorites() {
         // Arrange
-        testUser.getFavoriteRestaurantIds().add(restaurantId1);
-        testUser.getFavoriteRestaurantIds().add(restaurantId2);
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
-
-        // Act
-        AppUser result = userService.removeFavorite(userId, restaurantId1);
-
-        // Assert
-        assertNotNull(result);
-        assertFalse(result.getFavoriteRestaurantIds().contains(restaurantId1));
-        assertTrue(result.getFavoriteRestaurantIds().contains(restaurantId2));
-        assertEquals(1, result.getFavoriteRestaurantIds().size());
-        verify(userRepository, times(1)).save(testUser);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AppUser.class)))
+                .thenReturn(
+                        UpdateResult.acknowledged(1, 1L, null),
+                        UpdateResult.acknowledged(1, 0L, null));
+
+        // Act & Assert: the second removal finds nothing to pull
+        assertTrue(userService.removeFavorite(userId, restaurantId1));
+        assertFalse(userService.removeFavorite(userId, restaurantId1));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2))
+                .updateFirst(any(Query.class), update.capture(), eq(AppUser.class));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$pull"));
+        verify(mongoTemplate, never()).save(any(AppUser.class));
     }
 
     @Test
-    void getFavorites_ShouldReturnListOfFavoriteIds() {
+    void getFavorites_ShouldReturnSetOfFavoriteIds() {
         // Arrange
         testUser.getFavoriteRestaurantIds().add(restaurantId1);
         testUser.getFavoriteRestaurantIds().add(restaurantId2);
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(mongoTemplate.findOne(any(Query.class), eq(AppUser.class))).thenReturn(testUser);
 
         // Act
-        List<String> favorites = userService.getFavorites(userId);
+        Set<String> favorites = userService.getFavorites(userId);
 
         // Assert
-        assertNotNull(favorites);
-        assertEquals(2, favorites.size());
-        assertTrue(favorites.contains(restaurantId1));
-        assertTrue(favorites.contains(restaurantId2));
+        assertEquals(List.of(restaurantId1, restaurantId2), List.copyOf(favorites));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findOne(query.capture(), eq(AppUser.class));
+        // Only the favorites are read
+        assertEquals(1, query.getValue().getFieldsObject().size());
     }
 
     @Test
-    void getFavorites_ShouldReturnEmptyListWhenNoFavorites() {
+    void getFavorites_ShouldReturnEmptySetWhenNoFavorites() {
         // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(mongoTemplate.findOne(any(Query.class), eq(AppUser.class))).thenReturn(testUser);
 
         // Act
-        List<String> favorites = userService.getFavorites(userId);
+        Set<String> favorites = userService.getFavorites(userId);
 
         // Assert
         assertNotNull(favorites);
@@ -139,114 +154,160 @@ class UserServiceTest {
     // ========== Browse History Tests ==========
 
     @Test
-    void addToHistory_ShouldAddNewHistoryEntry() {
-        // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
+    void prependToHistory_ShouldPutEntriesInFront() {
+        // Act
+        Document history = historyExpression(UserService.prependToHistory(converter(), List.of(
+                new AppUser.HistoryEntry(
+                        restaurantId1, "Test Restaurant", LocalDateTime.now(), "Details viewed"))));
+
+        // Assert: $set browseHistory = $slice([new entry] ++ others, 100)
+        List<?> slice = history.getList("$slice", Object.class);
+        assertEquals(UserService.MAX_HISTORY, slice.get(1));
+        List<?> parts = ((Document) slice.get(0)).getList("$concatArrays", Object.class);
+        Document entry = (Document) ((Document) ((List<?>) parts.get(0)).get(0)).get("$literal");
+        assertEquals(restaurantId1, entry.get("restaurantId"));
+        assertEquals("Test Restaurant", entry.get("restaurantName"));
+        assertEquals("Details viewed", entry.get("viewType"));
+        assertInstanceOf(Date.class, entry.get("viewedAt"));
+        assertFalse(entry.containsKey("_class"));
+    }
 
+    @Test
+    void prependToHistory_ShouldFilterOutEarlierEntriesForSameRestaurants() {
         // Act
-        AppUser result = userService.addToHistory(userId, restaurantId1, "Test Restaurant", "Details viewed");
+        LocalDateTime now = LocalDateTime.now();
+        Document history = historyExpression(UserService.prependToHistory(converter(), List.of(
+                new AppUser.HistoryEntry(restaurantId1, "Restaurant 1", now, "Details viewed"),
+                new AppUser.HistoryEntry(restaurantId2, "Restaurant 2", now, "Details viewed"))));
 
         // Assert
-        assertNotNull(result);
-        assertEquals(1, result.getBrowseHistory().size());
-        AppUser.HistoryEntry entry = result.getBrowseHistory().get(0);
-        assertEquals(restaurantId1, entry.getRestaurantId());
-        assertEquals("Test Restaurant", entry.getRestaurantName());
-        assertEquals("Details viewed", entry.getViewType());
-        assertNotNull(entry.getViewedAt());
-        verify(userRepository, times(1)).save(testUser);
+        List<?> parts = ((Document) history.getList("$slice", Object.class).get(0))
+                .getList("$concatArrays", Object.class);
+        assertEquals(2, ((List<?>) parts.get(0)).size());
+        Document filter = ((Document) parts.get(1)).get("$filter", Document.class);
+        Document in = (Document) filter.get("cond", Document.class)
+                .getList("$not", Object.class).get(0);
+        List<?> theseRestaurants = in.getList("$in", Object.class);
+        assertEquals("$$entry.restaurantId", theseRestaurants.get(0));
+        assertEquals(new Document("$literal", List.of(restaurantId1, restaurantId2)),
+                theseRestaurants.get(1));
     }
 
     @Test
-    void addToHistory_ShouldRemoveDuplicateAndAddNewEntry() {
+    void getHistory_ShouldReturnHistoryList() {
         // Arrange
-        AppUser.HistoryEntry oldEntry = new AppUser.HistoryEntry(
-            restaurantId1, "Test Restaurant", null, "Details viewed"
-        );
-        testUser.getBrowseHistory().add(oldEntry);
         testUser.getBrowseHistory().add(new AppUser.HistoryEntry(
-            restaurantId2, "Another Restaurant", null, "Details viewed"
+            restaurantId1, "Restaurant 1", null, "Details viewed"
+        ));
+        testUser.getBrowseHistory().add(new AppUser.HistoryEntry(
+            restaurantId2, "Restaurant 2", null, "Details viewed"
         ));
-        
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
+        stubHistoryRead(testUser);
 
         // Act
-        AppUser result = userService.addToHistory(userId, restaurantId1, "Test Restaurant", "Details viewed");
+        List<AppUser.HistoryEntry> history = userService.getHistory(userId, null, null, null, null);
 
-        // Assert
-        assertNotNull(result);
-        assertEquals(2, result.getBrowseHistory().size());
-        // The newest entry should be at index 0
-        assertEquals(restaurantId1, result.getBrowseHistory().get(0).getRestaurantId());
-        assertEquals(restaurantId2, result.getBrowseHistory().get(1).getRestaurantId());
+        // Assert: the whole history, and nothing else of the user
+        assertNotNull(history);
+        assertEquals(2, history.size());
+        assertEquals(new Document("$ifNull", List.of("$browseHistory", List.of())),
+                historyProjection().get("browseHistory"));
+        verify(mongoTemplate, never()).findById(any(), eq(AppUser.class));
     }
 
     @Test
-    void addToHistory_ShouldLimitHistoryTo100Entries() {
+    void getHistory_ShouldReturnEmptyListWhenNoHistory() {
         // Arrange
-        for (int i = 0; i < 100; i++) {
-            testUser.getBrowseHistory().add(new AppUser.HistoryEntry(
-                "restaurant-" + i, "Restaurant " + i, null, "Details viewed"
-            ));
-        }
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
+        stubHistoryRead(testUser);
 
         // Act
-        AppUser result = userService.addToHistory(userId, "new-restaurant", "New Restaurant", "Details viewed");
+        List<AppUser.HistoryEntry> history = userService.getHistory(userId, null, null, null, null);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(100, result.getBrowseHistory().size());
-        assertEquals("new-restaurant", result.getBrowseHistory().get(0).getRestaurantId());
+        assertNotNull(history);
+        assertTrue(history.isEmpty());
     }
 
     @Test
-    void addToHistory_ShouldUseDefaultViewTypeWhenNull() {
+    void getHistory_ShouldSliceTimeWindowInDatabase() {
         // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
+        stubHistoryRead(testUser);
+        LocalDateTime before = LocalDateTime.of(2025, 1, 31, 18, 30);
 
         // Act
-        AppUser result = userService.addToHistory(userId, restaurantId1, "Test Restaurant", null);
-
-        // Assert
-        assertNotNull(result);
-        assertEquals("Details viewed", result.getBrowseHistory().get(0).getViewType());
+        userService.getHistory(userId, 10, before, null, before.minusDays(7));
+
+        // Assert: $slice($filter(history, before > viewedAt >= since), 10)
+        Document projection = historyProjection();
+        assertEquals(Set.of("browseHistory"), projection.keySet());
+        List<?> slice = projection.get("browseHistory", Document.class)
+                .getList("$slice", Object.class);
+        assertEquals(10, slice.get(1));
+        Document filter = ((Document) slice.get(0)).get("$filter", Document.class);
+        List<?> conditions = filter.get("cond", Document.class).getList("$and", Object.class);
+        List<?> lt = ((Document) conditions.get(0)).getList("$lt", Object.class);
+        assertEquals("$$entry.viewedAt", lt.get(0));
+        assertInstanceOf(Date.class, lt.get(1));
+        assertTrue(((Document) conditions.get(1)).containsKey("$gte"));
     }
 
     @Test
-    void getHistory_ShouldReturnHistoryList() {
+    void getHistory_ShouldKeepEntriesTiedWithCursorThatFollowIt() {
         // Arrange
-        testUser.getBrowseHistory().add(new AppUser.HistoryEntry(
-            restaurantId1, "Restaurant 1", null, "Details viewed"
-        ));
-        testUser.getBrowseHistory().add(new AppUser.HistoryEntry(
-            restaurantId2, "Restaurant 2", null, "Details viewed"
-        ));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        stubHistoryRead(testUser);
+        LocalDateTime before = LocalDateTime.of(2025, 1, 31, 18, 30);
 
         // Act
-        List<AppUser.HistoryEntry> history = userService.getHistory(userId);
-
-        // Assert
-        assertNotNull(history);
-        assertEquals(2, history.size());
+        userService.getHistory(userId, 10, before, restaurantId1, null);
+
+        // Assert: viewedAt < before, or viewedAt == before and placed after the cursor's entry
+        Document filter = ((Document) historyProjection().get("browseHistory", Document.class)
+                .getList("$slice", Object.class).get(0)).get("$filter", Document.class);
+        List<?> conditions = filter.get("cond", Document.class).getList("$and", Object.class);
+        List<?> either = ((Document) conditions.get(0)).getList("$or", Object.class);
+        assertTrue(((Document) either.get(0)).containsKey("$lt"));
+        List<?> tied = ((Document) either.get(1)).getList("$and", Object.class);
+        assertTrue(((Document) tied.get(0)).containsKey("$eq"));
+        List<?> later = ((Document) tied.get(1)).getList("$gt", Object.class);
+        assertEquals(new Document("$indexOfArray",
+                        List.of("$browseHistory.restaurantId", "$$entry.restaurantId")),
+                later.get(0));
+        assertEquals(new Document("$indexOfArray",
+                        List.of("$browseHistory.restaurantId", restaurantId1)),
+                later.get(1));
     }
 
     @Test
-    void getHistory_ShouldReturnEmptyListWhenNoHistory() {
+    void getHistory_ShouldCapLimitAtHistorySize() {
         // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        stubHistoryRead(testUser);
 
         // Act
-        List<AppUser.HistoryEntry> history = userService.getHistory(userId);
+        userService.getHistory(userId, 5000, null, null, null);
 
         // Assert
-        assertNotNull(history);
-        assertTrue(history.isEmpty());
+        List<?> slice = historyProjection().get("browseHistory", Document.class)
+                .getList("$slice", Object.class);
+        assertEquals(UserService.MAX_HISTORY, slice.get(1));
+    }
+
+    @Test
+    void getHistory_ShouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () ->
+            userService.getHistory(userId, 0, null, null, null)
+        );
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void getHistory_ShouldThrowExceptionWhenUserNotFound() {
+        // Arrange
+        stubHistoryRead(null);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () ->
+            userService.getHistory(userId, null, null, null, null)
+        );
     }
 
     @Test
@@ -258,26 +319,68 @@ class UserServiceTest {
         testUser.getBrowseHistory().add(new AppUser.HistoryEntry(
             restaurantId2, "Restaurant 2", null, "Details viewed"
         ));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(AppUser.class))).thenReturn(testUser);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AppUser.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // Act
-        AppUser result = userService.clearHistory(userId);
-
-        // Assert
-        assertNotNull(result);
-        assertTrue(result.getBrowseHistory().isEmpty());
-        verify(userRepository, times(1)).save(testUser);
+        userService.clearHistory(userId);
+
+        // Assert: queued views dropped first, then only the history is set, never read or saved
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        InOrder order = inOrder(historyQueue, mongoTemplate);
+        order.verify(historyQueue).discard(userId);
+        order.verify(mongoTemplate)
+                .updateFirst(any(Query.class), update.capture(), eq(AppUser.class));
+        assertEquals(new Document("$set", new Document("browseHistory", List.of())),
+                update.getValue().getUpdateObject());
+        verifyNoMoreInteractions(mongoTemplate);
     }
 
     @Test
     void clearHistory_ShouldThrowExceptionWhenUserNotFound() {
         // Arrange
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AppUser.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> 
             userService.clearHistory(userId)
         );
     }
+
+    /** The expression a history update assigns to browseHistory. */
+    private static Document historyExpression(AggregationUpdate update) {
+        List<Document> pipeline = update.toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(1, pipeline.size());
+        return pipeline.get(0).get("$set", Document.class).get("browseHistory", Document.class);
+    }
+
+    private void stubHistoryRead(AppUser user) {
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(AppUser.class), eq(AppUser.class)))
+                .thenReturn(new AggregationResults<>(
+                        user != null ? List.of(user) : List.of(), new Document()));
+    }
+
+    /** The $project stage of the history read. */
+    private Document historyProjection() {
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate)
+                .aggregate(aggregation.capture(), eq(AppUser.class), eq(AppUser.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(2, pipeline.size());
+        return pipeline.get(1).get("$project", Document.class);
+    }
+
+    /** A converter as Spring Boot configures it, so java.time values are written as dates. */
+    private static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter =
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
 }
@@ -0,0 +1,118 @@
+package com.plateful.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VoteBroadcasterTest {
+
+    private final VoteChangeStream changeStream = mock(VoteChangeStream.class);
+
+    // Long window: tests broadcast explicitly
+    private final VoteBroadcaster broadcaster =
+            new VoteBroadcaster(Duration.ofHours(1), new SimpleMeterRegistry(), changeStream);
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void subscribe_ShouldSendSnapshotFirst() {
+        CapturingEmitter emitter = new CapturingEmitter();
+
+        broadcaster.subscribe(List.of("r1"), List.of(VoteChangedEvent.of("r1", 3, 1)), emitter);
+
+        assertEquals(List.of(VoteChangedEvent.of("r1", 3, 1)), emitter.votes);
+        assertEquals(1, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void broadcast_ShouldCoalesceChangesPerRestaurant() {
+        CapturingEmitter emitter = new CapturingEmitter();
+        broadcaster.subscribe(List.of("r1", "r2"), List.of(), emitter);
+
+        broadcaster.onVoteChanged(VoteChangedEvent.of("r1", 1, 0));
+        broadcaster.onVoteChanged(VoteChangedEvent.of("r1", 2, 0));
+        broadcaster.onVoteChanged(VoteChangedEvent.of("r1", 2, 1));
+        broadcaster.broadcast();
+
+        // Only the latest counts go out
+        assertEquals(List.of(VoteChangedEvent.of("r1", 2, 1)), emitter.votes);
+
+        broadcaster.broadcast();
+        assertEquals(1, emitter.votes.size());
+    }
+
+    @Test
+    void broadcast_ShouldOnlyReachInterestedSubscribers() {
+        CapturingEmitter first = new CapturingEmitter();
+        CapturingEmitter second = new CapturingEmitter();
+        broadcaster.subscribe(List.of("r1"), List.of(), first);
+        broadcaster.subscribe(List.of("r2"), List.of(), second);
+
+        broadcaster.onVoteChanged(VoteChangedEvent.of("r2", 5, 0));
+        broadcaster.onVoteChanged(VoteChangedEvent.of("nobody-watching", 1, 0));
+        broadcaster.broadcast();
+
+        assertTrue(first.votes.isEmpty());
+        assertEquals(List.of(VoteChangedEvent.of("r2", 5, 0)), second.votes);
+    }
+
+    @Test
+    void broadcast_ShouldTakeChangesOnlyFromActiveChangeStream() {
+        CapturingEmitter emitter = new CapturingEmitter();
+        broadcaster.subscribe(List.of("r1"), List.of(), emitter);
+        when(changeStream.isActive()).thenReturn(true);
+
+        // The stream reports the newer local write late; the local event must not replace it
+        broadcaster.onVoteChanged(VoteChangedEvent.of("r1", 2, 0));
+        broadcaster.onObserved(new VoteChangeStream.Observed(VoteChangedEvent.of("r1", 1, 0)));
+        broadcaster.onObserved(new VoteChangeStream.Observed(VoteChangedEvent.of("r1", 2, 0)));
+        broadcaster.broadcast();
+
+        assertEquals(List.of(VoteChangedEvent.of("r1", 2, 0)), emitter.votes);
+    }
+
+    @Test
+    void broadcast_ShouldDropSubscribersThatFail() {
+        CapturingEmitter emitter = new CapturingEmitter();
+        broadcaster.subscribe(List.of("r1"), List.of(), emitter);
+        emitter.failing = true;
+
+        broadcaster.onVoteChanged(VoteChangedEvent.of("r1", 1, 0));
+        broadcaster.broadcast();
+
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    /** Records the vote payloads sent instead of writing to a response. */
+    private static class CapturingEmitter extends SseEmitter {
+        final List<VoteChangedEvent> votes = new ArrayList<>();
+        boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("client gone");
+            }
+            Set<DataWithMediaType> parts = builder.build();
+            for (DataWithMediaType part : parts) {
+                if (part.getData() instanceof VoteChangedEvent event) {
+                    votes.add(event);
+                }
+            }
+        }
+    }
+}
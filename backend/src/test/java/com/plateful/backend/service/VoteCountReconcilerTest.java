@@ -0,0 +1,132 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VoteCountReconcilerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BulkOperations bulk;
+
+    private VoteCountReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        // A pass only runs when called
+        reconciler = new VoteCountReconciler(
+                mongoTemplate, eventPublisher, new SimpleMeterRegistry(), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciler.shutdown();
+    }
+
+    @Test
+    void reconcile_ShouldRepairDriftSeenOnTwoPasses() {
+        // r1 stores 3 up while only 2 upvotes exist; r2 agrees
+        stubVotes(countRow("r1", "UP", 2), countRow("r2", "DOWN", 1));
+        stubRestaurants(restaurant("r1", 3, 0), restaurant("r2", 0, 1));
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Restaurant.class)).thenReturn(bulk);
+
+        assertEquals(0, reconciler.reconcile());
+        verifyNoInteractions(bulk);
+        assertEquals(1, reconciler.reconcile());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(query.capture(), update.capture());
+        // Compare-and-set on the counters that were read
+        assertEquals(3, query.getValue().getQueryObject().get("upvoteCount"));
+        assertEquals(new Document("upvoteCount", 2).append("downvoteCount", 0),
+                update.getValue().getUpdateObject().get("$set"));
+        verify(bulk).execute();
+        verify(eventPublisher).publishEvent(VoteChangedEvent.of("r1", 2, 0));
+    }
+
+    @Test
+    void reconcile_ShouldLeaveDriftThatChangedBetweenPasses() {
+        stubVotes(countRow("r1", "UP", 2));
+        // The counter caught up with an in-flight vote, then another vote's $inc is in flight
+        when(mongoTemplate.stream(any(Query.class), eq(Restaurant.class)))
+                .thenAnswer(inv -> Stream.of(restaurant("r1", 1, 0)))
+                .thenAnswer(inv -> Stream.of(restaurant("r1", 3, 0)));
+
+        assertEquals(0, reconciler.reconcile());
+        assertEquals(0, reconciler.reconcile());
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), eq(Restaurant.class));
+    }
+
+    @Test
+    void reconcile_ShouldCountRestaurantsWithoutVotesAsZero() {
+        stubVotes();
+        stubRestaurants(restaurant("r1", 0, 1));
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Restaurant.class)).thenReturn(bulk);
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(any(Query.class), update.capture());
+        assertEquals(new Document("upvoteCount", 0).append("downvoteCount", 0),
+                update.getValue().getUpdateObject().get("$set"));
+    }
+
+    private void stubVotes(Document... rows) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Vote.class), eq(Document.class)))
+                .thenAnswer(inv -> new AggregationResults<>(List.of(rows), new Document()));
+    }
+
+    private void stubRestaurants(Restaurant... restaurants) {
+        when(mongoTemplate.stream(any(Query.class), eq(Restaurant.class)))
+                .thenAnswer(inv -> Stream.of(restaurants));
+    }
+
+    private static Document countRow(String restaurantId, String direction, int count) {
+        return new Document("_id",
+                new Document("restaurantId", restaurantId).append("direction", direction))
+                .append("count", count);
+    }
+
+    private static Restaurant restaurant(String id, int up, int down) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setUpvoteCount(up);
+        r.setDownvoteCount(down);
+        return r;
+    }
+}
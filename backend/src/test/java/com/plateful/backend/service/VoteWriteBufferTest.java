@@ -0,0 +1,414 @@
+package com.plateful.backend.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VoteWriteBufferTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private TrendingService trendingService;
+
+    @Mock
+    private BulkOperations voteBulk;
+
+    @Mock
+    private BulkOperations restaurantBulk;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private VoteWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = buffer(1000, 3_600_000);
+    }
+
+    @Test
+    void record_ShouldCoalesceTogglesWithoutReadingPerClick() {
+        stubRestaurant("r1", 4, 2);
+        stubStoredVotes();
+
+        buffer.record("r1", "u1", Vote.Direction.UP);
+        buffer.record("r1", "u1", Vote.Direction.DOWN);
+        Restaurant r = buffer.record("r1", "u1", Vote.Direction.UP);
+
+        assertEquals(5, r.getUpvoteCount());
+        assertEquals(2, r.getDownvoteCount());
+        Map<String, Vote.Direction> votes = new HashMap<>();
+        buffer.overlay("u1", votes);
+        assertEquals(Map.of("r1", Vote.Direction.UP), votes);
+        // Counters and the user's votes are read once, not per click
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Restaurant.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Vote.class));
+    }
+
+    @Test
+    void record_ShouldMoveCountersFromStoredVote() {
+        stubRestaurant("r1", 4, 2);
+        stubStoredVotes(vote("r1", Vote.Direction.UP));
+
+        Restaurant r = buffer.record("r1", "u1", Vote.Direction.DOWN);
+
+        assertEquals(3, r.getUpvoteCount());
+        assertEquals(3, r.getDownvoteCount());
+        Restaurant read = buffer.withPendingCounts(restaurant("r1", 4, 2));
+        assertEquals(3, read.getUpvoteCount());
+        assertEquals(3, read.getDownvoteCount());
+    }
+
+    @Test
+    void record_ShouldRejectUnknownRestaurant() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Restaurant.class))).thenReturn(null);
+
+        assertThrows(RuntimeException.class, () -> buffer.record("r1", "u1", Vote.Direction.UP));
+
+        Map<String, Vote.Direction> votes = new HashMap<>();
+        buffer.overlay("u1", votes);
+        assertTrue(votes.isEmpty());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Vote.class));
+    }
+
+    @Test
+    void record_ShouldRejectWhileBacklogIsFull() {
+        buffer = buffer(1, 3_600_000);
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        buffer.record("r1", "u1", Vote.Direction.UP);
+
+        assertThrows(RateLimitExceededException.class,
+                () -> buffer.record("r1", "u2", Vote.Direction.UP));
+
+        assertEquals(1.0,
+                meterRegistry.get("plateful.votes.write_behind.rejected").counter().count());
+        assertEquals(1.0, backlog());
+    }
+
+    @Test
+    void overlay_ShouldRemoveBufferedRemovals() {
+        stubRestaurant("r1", 1, 0);
+        stubStoredVotes(vote("r1", Vote.Direction.UP));
+
+        buffer.record("r1", "u1", null);
+
+        Map<String, Vote.Direction> votes = new HashMap<>(Map.of("r1", Vote.Direction.UP));
+        buffer.overlay("u1", votes);
+        assertTrue(votes.isEmpty());
+        buffer.overlay("someone-else", votes);
+        assertTrue(votes.isEmpty());
+    }
+
+    @Test
+    void flush_ShouldWriteVotesAndNetCounters() {
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        stubBulks();
+
+        buffer.record("r1", "u1", Vote.Direction.UP);
+        buffer.record("r1", "u2", Vote.Direction.UP);
+        buffer.record("r1", "u3", Vote.Direction.DOWN);
+        buffer.flush();
+
+        verify(voteBulk, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(voteBulk).execute();
+        // One $inc for the restaurant, however many votes it received
+        verify(restaurantBulk, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(restaurantBulk).execute();
+        verify(trendingService).recordAll(any());
+        assertEquals(0.0, backlog());
+
+        Restaurant read = buffer.withPendingCounts(restaurant("r1", 2, 1));
+        assertEquals(2, read.getUpvoteCount());
+        assertEquals(1, read.getDownvoteCount());
+        // The kept counters moved with the write, so the next click needs no read either
+        Restaurant r = buffer.record("r1", "u4", Vote.Direction.UP);
+        assertEquals(3, r.getUpvoteCount());
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Restaurant.class));
+    }
+
+    @Test
+    void flush_ShouldNotCountSentIncrementAsUnwritten() {
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        stubBulks();
+        buffer.record("r1", "u1", Vote.Direction.UP);
+        List<Integer> inFlight = new ArrayList<>();
+        doAnswer(invocation -> {
+            // A read that lands once the $inc is applied, before the flush returns
+            inFlight.add(buffer.withPendingCounts(restaurant("r1", 1, 0)).getUpvoteCount());
+            return null;
+        }).when(restaurantBulk).execute();
+
+        buffer.flush();
+
+        assertEquals(List.of(1), inFlight);
+        assertEquals(1, buffer.withPendingCounts(restaurant("r1", 1, 0)).getUpvoteCount());
+    }
+
+    @Test
+    void record_ShouldCountConcurrentClicksOnOneRestaurant() throws Exception {
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> clicks = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String userId = "u" + i;
+                Vote.Direction direction = i % 4 == 0 ? Vote.Direction.DOWN : Vote.Direction.UP;
+                clicks.add(executor.submit(() -> buffer.record("r1", userId, direction)));
+            }
+            for (Future<?> click : clicks) {
+                click.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Restaurant read = buffer.withPendingCounts(restaurant("r1", 0, 0));
+        assertEquals(300, read.getUpvoteCount());
+        assertEquals(100, read.getDownvoteCount());
+        assertEquals(400.0, backlog());
+    }
+
+    @Test
+    void flush_ShouldWriteExactCountersUnderConcurrentToggles() throws Exception {
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        stubBulks();
+        int[] written = new int[2];
+        doAnswer(invocation -> {
+            Update update = invocation.getArgument(1);
+            Document inc = (Document) update.getUpdateObject().get("$inc");
+            written[0] += inc.getInteger("upvoteCount");
+            written[1] += inc.getInteger("downvoteCount");
+            return restaurantBulk;
+        }).when(restaurantBulk).updateOne(any(Query.class), any(Update.class));
+        Vote.Direction[] choices = {Vote.Direction.UP, Vote.Direction.DOWN, null};
+        Vote.Direction[] last = new Vote.Direction[32];
+        AtomicBoolean clicking = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (clicking.get()) {
+                    buffer.flush();
+                }
+            });
+            List<Future<?>> users = new ArrayList<>();
+            for (int u = 0; u < last.length; u++) {
+                int user = u;
+                users.add(executor.submit(() -> {
+                    Random random = new Random(user);
+                    for (int click = 0; click < 200; click++) {
+                        last[user] = choices[random.nextInt(choices.length)];
+                        buffer.record("r1", "u" + user, last[user]);
+                    }
+                }));
+            }
+            for (Future<?> user : users) {
+                user.get(10, TimeUnit.SECONDS);
+            }
+            clicking.set(false);
+            flusher.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        buffer.flush();
+
+        int up = (int) Arrays.stream(last).filter(d -> d == Vote.Direction.UP).count();
+        int down = (int) Arrays.stream(last).filter(d -> d == Vote.Direction.DOWN).count();
+        assertEquals(up, written[0]);
+        assertEquals(down, written[1]);
+        Restaurant read = buffer.withPendingCounts(restaurant("r1", up, down));
+        assertEquals(up, read.getUpvoteCount());
+        assertEquals(down, read.getDownvoteCount());
+        assertEquals(0.0, backlog());
+    }
+
+    @Test
+    void flush_ShouldSkipTogglesBackToStoredVote() {
+        stubRestaurant("r1", 1, 0);
+        stubStoredVotes(vote("r1", Vote.Direction.UP));
+
+        buffer.record("r1", "u1", null);
+        buffer.record("r1", "u1", Vote.Direction.UP);
+        buffer.flush();
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), eq(Vote.class));
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), eq(Restaurant.class));
+        verifyNoInteractions(trendingService);
+        assertEquals(0.0, backlog());
+    }
+
+    @Test
+    void flush_ShouldRetryFailedVoteBatch() {
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        stubBulks();
+        when(voteBulk.execute())
+                .thenThrow(new IllegalStateException("network down"))
+                .thenReturn(null);
+
+        buffer.record("r1", "u1", Vote.Direction.UP);
+        buffer.flush();
+
+        // Still unwritten: counts keep the change and the vote's baseline is the unwritten one
+        assertEquals(1, buffer.withPendingCounts(restaurant("r1", 0, 0)).getUpvoteCount());
+        assertEquals(1.0, backlog());
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), eq(Restaurant.class));
+        Restaurant r = buffer.record("r1", "u1", Vote.Direction.DOWN);
+        assertEquals(0, r.getUpvoteCount());
+        assertEquals(1, r.getDownvoteCount());
+
+        buffer.flush();
+
+        verify(voteBulk, times(2)).execute();
+        verify(restaurantBulk, times(1)).execute();
+        assertEquals(0.0, backlog());
+        Restaurant read = buffer.withPendingCounts(restaurant("r1", 0, 1));
+        assertEquals(0, read.getUpvoteCount());
+        assertEquals(1, read.getDownvoteCount());
+    }
+
+    @Test
+    void flush_ShouldRetryOnlyFailedCounterIncrements() {
+        stubRestaurant("r1", 0, 0);
+        stubRestaurant("r2", 0, 0);
+        stubStoredVotes();
+        stubBulks();
+        buffer.record("r1", "u1", Vote.Direction.UP);
+        buffer.record("r2", "u1", Vote.Direction.UP);
+        List<Query> increments = new ArrayList<>();
+        doAnswer(invocation -> {
+            increments.add(invocation.getArgument(0));
+            return restaurantBulk;
+        }).when(restaurantBulk).updateOne(any(Query.class), any(Update.class));
+        doAnswer(invocation -> {
+            throw bulkFailure(increments.indexOf(incrementOf("r2")));
+        }).doReturn(null).when(restaurantBulk).execute();
+
+        buffer.flush();
+
+        assertEquals(2, increments.size());
+        verify(trendingService).recordAll(
+                argThat(applied -> applied.keySet().equals(Set.of("r1"))));
+        assertEquals(1, buffer.withPendingCounts(restaurant("r2", 0, 0)).getUpvoteCount());
+
+        buffer.flush();
+
+        // The vote documents are not written again, and only r2 is incremented again
+        verify(voteBulk, times(1)).execute();
+        assertEquals(List.of(incrementOf("r2")), increments.subList(2, increments.size()));
+        verify(trendingService).recordAll(
+                argThat(applied -> applied.keySet().equals(Set.of("r2"))));
+        assertEquals(1, buffer.withPendingCounts(restaurant("r2", 1, 0)).getUpvoteCount());
+    }
+
+    @Test
+    void flush_ShouldForgetIdleUsersAndRestaurants() {
+        buffer = buffer(1000, 0);
+        stubRestaurant("r1", 0, 0);
+        stubStoredVotes();
+        stubBulks();
+        buffer.record("r1", "u1", Vote.Direction.UP);
+
+        buffer.flush();
+        buffer.record("r1", "u1", null);
+
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(Restaurant.class));
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(Vote.class));
+    }
+
+    /** A buffer whose own flusher never fires during a test. */
+    private VoteWriteBuffer buffer(int maxBacklog, long idleMs) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new VoteWriteBuffer(mongoTemplate, trendingService, meterRegistry,
+                true, 3_600_000, 1000, maxBacklog, idleMs);
+    }
+
+    private double backlog() {
+        return meterRegistry.get("plateful.votes.write_behind.backlog").gauge().value();
+    }
+
+    private void stubRestaurant(String id, int up, int down) {
+        lenient().when(mongoTemplate.findOne(argThat(q -> q != null
+                        && id.equals(q.getQueryObject().get("id"))), eq(Restaurant.class)))
+                .thenReturn(restaurant(id, up, down));
+    }
+
+    private void stubStoredVotes(Vote... votes) {
+        when(mongoTemplate.find(any(Query.class), eq(Vote.class))).thenReturn(List.of(votes));
+    }
+
+    private void stubBulks() {
+        when(mongoTemplate.bulkOps(BulkMode.ORDERED, Vote.class)).thenReturn(voteBulk);
+        lenient().when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Restaurant.class))
+                .thenReturn(restaurantBulk);
+    }
+
+    private static Query incrementOf(String restaurantId) {
+        return Query.query(Criteria.where("id").is(restaurantId));
+    }
+
+    private static BulkOperationException bulkFailure(int index) {
+        BulkWriteError error = new BulkWriteError(2, "bad counter", new BsonDocument(), index);
+        return new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(),
+                Set.of()));
+    }
+
+    private static Restaurant restaurant(String id, int up, int down) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        r.setUpvoteCount(up);
+        r.setDownvoteCount(down);
+        return r;
+    }
+
+    private static Vote vote(String restaurantId, Vote.Direction direction) {
+        Vote v = new Vote();
+        v.setRestaurantId(restaurantId);
+        v.setDirection(direction);
+        return v;
+    }
+}
@@ -0,0 +1,114 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.dto.VoteListing;
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import com.plateful.backend.repository.VoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VotingQueryServiceTest {
+
+    @Mock
+    private VoteRepository votes;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private VoteWriteBuffer voteWriteBuffer;
+
+    @InjectMocks
+    private VotingQueryService service;
+
+    @Test
+    void getUpvotedByUser_ShouldReturnSliceWithoutCounting() {
+        when(mongoTemplate.find(any(Query.class), eq(Vote.class)))
+                .thenReturn(List.of(
+                        vote("v3", "r3", 300), vote("v2", "r2", 200), vote("v1", "r1", 100)));
+        when(mongoTemplate.find(any(Query.class), eq(Restaurant.class)))
+                .thenReturn(List.of(restaurant("r2"), restaurant("r3")));
+
+        VoteListing listing = service.getUpvotedByUser("u1", null, 0, 2, false);
+
+        assertEquals(List.of("r3", "r2"), listing.content().stream().map(r -> r.id()).toList());
+        assertTrue(listing.content().get(0).hasUpvoted());
+        assertTrue(listing.hasNext());
+        assertNotNull(listing.nextCursor());
+        assertNull(listing.totalElements());
+        verify(votes, never()).countByUserIdAndDirection(any(), any());
+    }
+
+    @Test
+    void getUpvotedByUser_ShouldSeekPastCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Vote.class)))
+                .thenReturn(List.of(vote("v2", "r2", 200), vote("v1", "r1", 100)));
+        when(mongoTemplate.find(any(Query.class), eq(Restaurant.class)))
+                .thenReturn(List.of(restaurant("r2")));
+        String cursor = service.getUpvotedByUser("u1", null, 0, 1, false).nextCursor();
+
+        when(mongoTemplate.find(any(Query.class), eq(Vote.class)))
+                .thenReturn(List.of(vote("v1", "r1", 100)));
+        when(mongoTemplate.find(any(Query.class), eq(Restaurant.class)))
+                .thenReturn(List.of(restaurant("r1")));
+        VoteListing next = service.getUpvotedByUser("u1", cursor, 0, 1, false);
+
+        assertFalse(next.hasNext());
+        assertNull(next.nextCursor());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(Vote.class));
+        Query seek = query.getAllValues().get(1);
+        assertTrue(seek.getQueryObject().containsKey("$or"));
+        assertEquals(0, seek.getSkip());
+    }
+
+    @Test
+    void getDownvotedByUser_ShouldCacheTotalUntilUserVotes() {
+        when(mongoTemplate.find(any(Query.class), eq(Vote.class))).thenReturn(List.of());
+        when(votes.countByUserIdAndDirection("u1", Vote.Direction.DOWN)).thenReturn(7L, 8L);
+
+        assertEquals(7L, service.getDownvotedByUser("u1", null, 0, 20, true).totalElements());
+        assertEquals(7L, service.getDownvotedByUser("u1", null, 0, 20, true).totalElements());
+        verify(votes, times(1)).countByUserIdAndDirection("u1", Vote.Direction.DOWN);
+
+        service.forgetTotals("u1");
+        assertEquals(8L, service.getDownvotedByUser("u1", null, 0, 20, true).totalElements());
+    }
+
+    @Test
+    void getUpvotedByUser_ShouldRejectForeignCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getUpvotedByUser("u1", "bm90LWEta2V5", 0, 20, false));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static Vote vote(String id, String restaurantId, long votedAtMillis) {
+        Vote v = new Vote();
+        v.setId(id);
+        v.setRestaurantId(restaurantId);
+        v.setDirection(Vote.Direction.UP);
+        v.setVotedAt(Instant.ofEpochMilli(votedAtMillis));
+        return v;
+    }
+
+    private static Restaurant restaurant(String id) {
+        Restaurant r = new Restaurant();
+        r.setId(id);
+        return r;
+    }
+}
@@ -0,0 +1,192 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers {@link VotingService} from many threads against a real MongoDB and checks that the
+ * stored counters always equal the number of votes in the votes collection. Also covers the
+ * migration of legacy voter arrays. Skipped locally when Docker is unavailable; on CI (where
+ * {@code CI} is set) it always runs, so a missing Docker fails the build instead of hiding it.
+ */
+@DataMongoTest
+@Import({VotingService.class, VotingQueryService.class, VoteWriteBuffer.class,
+        SimpleMeterRegistry.class,
+        TrendingService.class, RestaurantMaintenance.class})
+@Testcontainers
+@EnabledIf("dockerRequiredOrAvailable")
+class VotingServiceConcurrencyTest {
+
+    static boolean dockerRequiredOrAvailable() {
+        return System.getenv("CI") != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", MONGO::getReplicaSetUrl);
+    }
+
+    private static final int USERS = 64;
+    private static final int CLICKS_PER_USER = 50;
+
+    @Autowired
+    private VotingService votingService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RestaurantMaintenance maintenance;
+
+    private String restaurantId;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(Restaurant.class);
+        mongoTemplate.dropCollection(Vote.class);
+        maintenance.migrateVotes(); // creates the unique (user, restaurant) index
+        Restaurant r = new Restaurant();
+        r.setName("Contended");
+        restaurantId = mongoTemplate.insert(r).getId();
+    }
+
+    @Test
+    void concurrentUpvotes_ShouldAllBeCounted() throws Exception {
+        runConcurrently(user -> votingService.upvote(restaurantId, user));
+
+        Restaurant stored = mongoTemplate.findById(restaurantId, Restaurant.class);
+        assertEquals(USERS, voters(Vote.Direction.UP).size());
+        assertEquals(USERS, stored.getUpvoteCount());
+        assertEquals(0, stored.getDownvoteCount());
+    }
+
+    @Test
+    void concurrentMixedVotes_ShouldKeepCountersExact() throws Exception {
+        Set<String> expectedUp = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        Set<String> expectedDown = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+        runConcurrently(user -> {
+            Random random = new Random(user.hashCode());
+            int last = -1;
+            for (int i = 0; i < CLICKS_PER_USER; i++) {
+                last = random.nextInt(3);
+                switch (last) {
+                    case 0 -> votingService.upvote(restaurantId, user);
+                    case 1 -> votingService.downvote(restaurantId, user);
+                    default -> votingService.removeVote(restaurantId, user);
+                }
+            }
+            if (last == 0) expectedUp.add(user);
+            if (last == 1) expectedDown.add(user);
+        });
+
+        Restaurant stored = mongoTemplate.findById(restaurantId, Restaurant.class);
+        assertEquals(expectedUp, voters(Vote.Direction.UP));
+        assertEquals(expectedDown, voters(Vote.Direction.DOWN));
+        assertEquals(expectedUp.size(), stored.getUpvoteCount());
+        assertEquals(expectedDown.size(), stored.getDownvoteCount());
+    }
+
+    @Test
+    void repeatedVote_ShouldNotChangeCounters() {
+        votingService.upvote(restaurantId, "u1");
+        Restaurant again = votingService.upvote(restaurantId, "u1");
+        assertEquals(1, again.getUpvoteCount());
+
+        Restaurant switched = votingService.downvote(restaurantId, "u1");
+        assertEquals(0, switched.getUpvoteCount());
+        assertEquals(1, switched.getDownvoteCount());
+
+        votingService.removeVote(restaurantId, "u1");
+        Restaurant removedTwice = votingService.removeVote(restaurantId, "u1");
+        assertEquals(0, removedTwice.getUpvoteCount());
+        assertEquals(0, removedTwice.getDownvoteCount());
+    }
+
+    @Test
+    void migrateVotes_ShouldMoveLegacyArraysIntoVotes() {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(restaurantId)),
+                new Update()
+                        .set("upvote_user_ids", List.of("a", "b"))
+                        .set("downvote_user_ids", List.of("c")),
+                Restaurant.class);
+        votingService.upvote(restaurantId, "a"); // already in the collection: must not be duplicated
+
+        maintenance.migrateVotes();
+
+        assertEquals(Set.of("a", "b"), voters(Vote.Direction.UP));
+        assertEquals(Set.of("c"), voters(Vote.Direction.DOWN));
+        String collection = mongoTemplate.getCollectionName(Restaurant.class);
+        Document raw = mongoTemplate.findById(restaurantId, Document.class, collection);
+        assertFalse(raw.containsKey("upvote_user_ids"));
+        assertEquals(2, raw.getInteger("upvote_count"));
+        assertEquals(1, raw.getInteger("downvote_count"));
+    }
+
+    private Set<String> voters(Vote.Direction direction) {
+        Query query = Query.query(
+                Criteria.where("restaurantId").is(restaurantId).and("direction").is(direction));
+        Set<String> users = new HashSet<>();
+        mongoTemplate.find(query, Vote.class).forEach(v -> users.add(v.getUserId()));
+        return users;
+    }
+
+    private interface UserAction {
+        void run(String userId) throws Exception;
+    }
+
+    /** Runs {@code action} once per user, all users in parallel, and rethrows any failure. */
+    private static void runConcurrently(UserAction action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int u = 0; u < USERS; u++) {
+                String user = "user-" + u;
+                Callable<Void> task = () -> {
+                    action.run(user);
+                    return null;
+                };
+                futures.add(pool.submit(task));
+            }
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
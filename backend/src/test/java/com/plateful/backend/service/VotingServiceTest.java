@@ -0,0 +1,196 @@
+package com.plateful.backend.service;
+
+import com.plateful.backend.model.Restaurant;
+import com.plateful.backend.model.Vote;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VotingServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private VoteWriteBuffer voteWriteBuffer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TrendingService trendingService;
+
+    @Mock
+    private VotingQueryService votingQueryService;
+
+    @InjectMocks
+    private VotingService votingService;
+
+    @Test
+    void getVoteStatuses_ShouldReturnKnownRestaurantsInRequestOrder() {
+        List<Document> rows = List.of(
+                new Document("_id", "r2").append("upvote_count", 1).append("downvote_count", 0)
+                        .append("vote", List.of()),
+                new Document("_id", "r1").append("upvote_count", 5).append("downvote_count", 2)
+                        .append("vote", List.of(new Document("direction", "DOWN"))));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Restaurant.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(rows, new Document()));
+
+        Map<String, Map<String, Object>> statuses =
+                votingService.getVoteStatuses(List.of("r1", "missing", "r2", "r1", " "), "u1");
+
+        assertEquals(List.of("r1", "r2"), new ArrayList<>(statuses.keySet()));
+        assertEquals(true, statuses.get("r1").get("hasDownvoted"));
+        assertEquals(false, statuses.get("r1").get("hasUpvoted"));
+        assertEquals(3, statuses.get("r1").get("voteCount"));
+        assertEquals(false, statuses.get("r2").get("hasUpvoted"));
+        assertEquals(1, statuses.get("r2").get("upvoteCount"));
+        // One query for the whole page
+        verify(mongoTemplate, times(1))
+                .aggregate(any(Aggregation.class), eq(Restaurant.class), eq(Document.class));
+    }
+
+    @Test
+    void getVoteStatuses_ShouldRejectTooManyIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i <= VotingService.MAX_VOTE_STATUS_IDS; i++) {
+            ids.add("r" + i);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> votingService.getVoteStatuses(ids, null));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void getVoteStatuses_ShouldNotQueryForEmptyRequest() {
+        assertTrue(votingService.getVoteStatuses(Collections.emptyList(), "u1").isEmpty());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void upvote_ShouldCountFirstVote() {
+        stubVote(null);
+        stubCounterUpdate(restaurant(1, 0));
+
+        votingService.upvote("r1", "u1");
+
+        assertEquals(new Document("upvoteCount", 1).append("downvoteCount", 0), countedDelta());
+        verify(trendingService).record("r1", 1, 0);
+        verify(eventPublisher).publishEvent(VoteChangedEvent.of("r1", 1, 0));
+    }
+
+    @Test
+    void downvote_ShouldMoveUpvoteToDownvote() {
+        stubVote(Vote.Direction.UP);
+        stubCounterUpdate(restaurant(0, 1));
+
+        votingService.downvote("r1", "u1");
+
+        assertEquals(new Document("upvoteCount", -1).append("downvoteCount", 1), countedDelta());
+        verify(trendingService).record("r1", -1, 1);
+    }
+
+    @Test
+    void removeVote_ShouldUncountDownvote() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Vote.class)))
+                .thenReturn(vote(Vote.Direction.DOWN));
+        stubCounterUpdate(restaurant(0, 0));
+
+        votingService.removeVote("r1", "u1");
+
+        assertEquals(new Document("upvoteCount", 0).append("downvoteCount", -1), countedDelta());
+    }
+
+    @Test
+    void upvote_ShouldNotCountRepeatedClick() {
+        stubVote(Vote.Direction.UP);
+        when(mongoTemplate.findOne(any(Query.class), eq(Restaurant.class)))
+                .thenReturn(restaurant(1, 0));
+
+        Restaurant counts = votingService.upvote("r1", "u1");
+
+        assertEquals(1, counts.getUpvoteCount());
+        verify(mongoTemplate, never()).findAndModify(
+                any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Restaurant.class));
+        verifyNoInteractions(trendingService, eventPublisher);
+    }
+
+    @Test
+    void upvote_ShouldPutBackReplacedVoteWhenRestaurantMissing() {
+        stubVote(Vote.Direction.DOWN);
+        stubCounterUpdate(null);
+
+        assertThrows(RuntimeException.class, () -> votingService.upvote("missing", "u1"));
+
+        // The upvote is undone by writing the replaced downvote back
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(
+                any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(Vote.class));
+        assertEquals(Vote.Direction.DOWN,
+                update.getAllValues().get(1).getUpdateObject().get("$set", Document.class)
+                        .get("direction"));
+        verifyNoInteractions(trendingService, eventPublisher);
+    }
+
+    /** The user's vote before the change. */
+    private void stubVote(Vote.Direction previous) {
+        when(mongoTemplate.findAndModify(
+                any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Vote.class)))
+                .thenReturn(previous != null ? vote(previous) : null);
+    }
+
+    private void stubCounterUpdate(Restaurant updated) {
+        when(mongoTemplate.findAndModify(
+                any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Restaurant.class)))
+                .thenReturn(updated);
+    }
+
+    /** The $inc the counters were moved by. */
+    private Document countedDelta() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(
+                any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(Restaurant.class));
+        return update.getValue().getUpdateObject().get("$inc", Document.class);
+    }
+
+    private static Vote vote(Vote.Direction direction) {
+        Vote vote = new Vote();
+        vote.setDirection(direction);
+        return vote;
+    }
+
+    private static Restaurant restaurant(int up, int down) {
+        Restaurant r = new Restaurant();
+        r.setId("r1");
+        r.setUpvoteCount(up);
+        r.setDownvoteCount(down);
+        return r;
+    }
+}
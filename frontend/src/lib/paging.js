@@ -0,0 +1,22 @@
+// src/lib/paging.js
+import { buildApiUrl } from "./config";
+
+// Listing endpoints return one bounded page and put the next page's cursor in this header.
+export const NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+// Fetches every page of a listing endpoint, following X-Next-Cursor until the last page.
+export async function fetchAllPages(path, params = new URLSearchParams()) {
+  const items = [];
+  let cursor = null;
+  do {
+    const query = new URLSearchParams(params);
+    if (cursor) query.set("cursor", cursor);
+    const qs = query.toString();
+    const res = await fetch(buildApiUrl(qs ? `${path}?${qs}` : path));
+    if (!res.ok) throw new Error(`API ${res.status}`);
+    const data = await res.json();
+    if (Array.isArray(data)) items.push(...data);
+    cursor = res.headers.get(NEXT_CURSOR_HEADER);
+  } while (cursor);
+  return items;
+}
@@ -6,6 +6,7 @@ import Dropdown from "../components/Dropdown";
 import RestaurantList from "../components/RestaurantList";
 import RestaurantMarkers from "../components/RestaurantMarkers";
 import { buildApiUrl } from "../lib/config";
+import { fetchAllPages } from "../lib/paging";
 import { useTheme } from "../context/ThemeContext"; // adjust path
 import "@tomtom-international/web-sdk-maps/dist/maps.css";
 import useRecommendations from "../services/useRecommendations";
@@ -42,12 +43,7 @@ export default function Home() {
     setLoading(true);
     setErr("");
 
-    const fetchRestaurants = fetch(buildApiUrl("/api/restaurants"))
-      .then((res) => {
-        if (!res.ok) throw new Error(`API ${res.status}`);
-        return res.json();
-      })
-      .then((data) => setRestaurantsRaw(Array.isArray(data) ? data : []));
+    const fetchRestaurants = fetchAllPages("/api/restaurants").then(setRestaurantsRaw);
 
     const fetchCuisines = fetch(buildApiUrl("/api/restaurants/cuisines"))
       .then((res) => {
@@ -94,11 +90,7 @@ export default function Home() {
     if (selectedCuisine) params.append("cuisine", selectedCuisine);
 
     try {
-      const response = await fetch(
-        buildApiUrl(`/api/restaurants/filter?${params.toString()}`)
-      );
-      if (!response.ok) throw new Error("Failed to fetch");
-      const data = await response.json();
+      const data = await fetchAllPages("/api/restaurants/filter", params);
       navigate(`/search?${params.toString()}`, { state: { results: data } });
     } catch (error) {
       console.error("Search error:", error);
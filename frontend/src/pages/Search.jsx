@@ -6,6 +6,7 @@ import MapContainer from "../components/MapContainer";
 import Dropdown from "../components/Dropdown";
 import RestaurantMarkers from "../components/RestaurantMarkers";
 import { buildApiUrl } from "../lib/config";
+import { fetchAllPages } from "../lib/paging";
 import { useTheme } from "../context/ThemeContext"; // adjust path
 import "@tomtom-international/web-sdk-maps/dist/maps.css";
 
@@ -74,13 +75,7 @@ export default function Search() {
       if (openNowParam !== null) params.append("openNow", openNowParam);
       if (city) params.append("city", city);
 
-      const response = await fetch(
-        buildApiUrl(`/api/restaurants/filter?${params.toString()}`)
-      );
-      if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
-
-      const data = await response.json();
-      const allRestaurants = Array.isArray(data) ? data : [];
+      const allRestaurants = await fetchAllPages("/api/restaurants/filter", params);
       setRestaurants(allRestaurants);
       setDisplayedRestaurants(allRestaurants.slice(0, ITEMS_PER_PAGE));
       setHasMore(allRestaurants.length > ITEMS_PER_PAGE);